@@ -10,10 +10,9 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import com.google.ar.core.Anchor;
-import com.google.ar.core.Camera;
-import com.google.ar.core.Frame;
 import com.google.ar.core.Pose;
 import com.google.ar.core.Session;
+import com.google.ar.core.examples.java.navigation.NavLog;
 import com.google.ar.core.exceptions.CameraNotAvailableException;
 
 import java.util.ArrayList;
@@ -28,6 +27,9 @@ public class ARRenderer implements GLSurfaceView.Renderer {
     private Session arSession;
     private Anchor destinationAnchor = null;
     private boolean destinationReached = false;
+    private final FrameContext frameContext = new FrameContext();
+    private final float[] modelMatrix = new float[16];
+    private final PathRenderer pathRenderer = new PathRenderer();
 
     public ARRenderer(Session session) {
         if (session == null) {
@@ -41,7 +43,7 @@ public class ARRenderer implements GLSurfaceView.Renderer {
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         // OpenGL initialization
         GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
-        OpenGLRenderer.initShaderProgram(); // Initialize shaders
+        pathRenderer.createOnGlThread(); // Initialize shaders
     }
 
     @Override
@@ -55,27 +57,25 @@ public class ARRenderer implements GLSurfaceView.Renderer {
 
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
-        Frame frame;
+        // The only update() of this frame; every stage below reads from frameContext
         try {
-            frame = arSession.update();
+            frameContext.update(arSession);
         } catch (CameraNotAvailableException e) {
             Log.e("ARRenderer", "Camera not available during onDrawFrame", e);
             return;
         }
 
-        Camera camera = frame.getCamera();
+        checkDestinationReached(frameContext);
 
-        // Get the view and projection matrices
-        float[] viewMatrix = new float[16];
-        float[] projectionMatrix = new float[16];
-
-        camera.getViewMatrix(viewMatrix, 0);
-        camera.getProjectionMatrix(projectionMatrix, 0, 0.1f, 100.0f);
+        // Render anchors (these will be drawn on the screen)
+        renderAnchors(frameContext);
+    }
 
-        // ✅ Check distance to destinationAnchor
+    // ✅ Check distance to destinationAnchor
+    private void checkDestinationReached(FrameContext frameContext) {
         if (destinationAnchor != null && !destinationReached) {
             Pose anchorPose = destinationAnchor.getPose();
-            Pose cameraPose = camera.getPose();
+            Pose cameraPose = frameContext.cameraPose;
 
             float dx = cameraPose.tx() - anchorPose.tx();
             float dy = cameraPose.ty() - anchorPose.ty();
@@ -108,9 +108,6 @@ public class ARRenderer implements GLSurfaceView.Renderer {
                 });
             }
         }
-
-        // Render anchors (these will be drawn on the screen)
-        renderAnchors(viewMatrix, projectionMatrix);
     }
 
 
@@ -136,7 +133,9 @@ public class ARRenderer implements GLSurfaceView.Renderer {
                 destinationReached = false; // reset flag
             }
 
-            Log.d(TAG, "Anchor placed at: " + point[0] + ", " + point[1] + ", " + point[2]);
+            if (NavLog.isLoggable(NavLog.DEBUG)) {
+                NavLog.d(TAG, "Anchor placed at: " + point[0] + ", " + point[1] + ", " + point[2]);
+            }
         }
     }
 
@@ -151,33 +150,24 @@ public class ARRenderer implements GLSurfaceView.Renderer {
 
 
     // Function to render anchors in OpenGL
-    public void renderAnchors(float[] viewMatrix, float[] projectionMatrix) {
-        GLES20.glUseProgram(OpenGLRenderer.shaderProgram);
+    public void renderAnchors(FrameContext frameContext) {
+        pathRenderer.clear();
 
         // Get current camera height (Y-axis)
-        float cameraY = 0f;
-        try {
-            Frame frame = arSession.update();
-            Pose cameraPose = frame.getCamera().getPose();
-            cameraY = cameraPose.ty();
-        } catch (CameraNotAvailableException e) {
-            Log.e(TAG, "Camera not available for height check", e);
-            return;
-        }
+        float cameraY = frameContext.cameraPose.ty();
 
-        for (Anchor anchor : anchors) {
+        for (int i = 0; i < anchors.size(); i++) {
+            Anchor anchor = anchors.get(i);
             Pose pose = anchor.getPose();
             float anchorY = pose.ty();
             float heightDifference = Math.abs(cameraY - anchorY);
 
             if (heightDifference < 1.5f) {  // Only render anchors within 1.5 meters vertically
-                float[] modelMatrix = new float[16];
                 pose.toMatrix(modelMatrix, 0);
-                OpenGLRenderer.drawAnchorAtPosition(modelMatrix, viewMatrix, projectionMatrix);
-            } else {
-                Log.d(TAG, "Skipping anchor due to height diff: " + heightDifference);
+                pathRenderer.add(modelMatrix);
             }
         }
+        pathRenderer.draw(frameContext.viewMatrix, frameContext.projectionMatrix);
     }
 
     // Java side (MainActivity.java)
@@ -0,0 +1,33 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.util.Log;
+
+import com.google.ar.core.examples.java.navigation.NavLog;
+
+/**
+ * Sends {@link NavLog} records to logcat. Debuggable builds log from DEBUG up; release builds only
+ * keep warnings and errors, so the guarded debug messages in the frame loop and the graph builder
+ * are never built.
+ */
+final class AndroidLogSink implements NavLog.Sink {
+    // Per-frame tags: keep about one message a second at 60 fps
+    private static final int FRAME_TAG_SAMPLING = 60;
+
+    static void install(Context context) {
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        NavLog.setSink(new AndroidLogSink());
+        NavLog.setMinLevel(debuggable ? NavLog.DEBUG : NavLog.WARN);
+        NavLog.setSampling(CloudAnchorActivity.FRAME_LOG_TAG, FRAME_TAG_SAMPLING);
+        NavLog.setSampling(GraphActivity.DRAW_LOG_TAG, FRAME_TAG_SAMPLING);
+    }
+
+    @Override
+    public void write(int level, String tag, String message, Throwable error) {
+        if (error != null) {
+            message = message + '\n' + Log.getStackTraceString(error);
+        }
+        Log.println(level, tag, message);
+    }
+}
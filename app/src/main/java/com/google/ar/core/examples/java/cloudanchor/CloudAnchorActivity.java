@@ -20,6 +20,7 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 
 import com.google.android.gms.common.api.ApiException;
 import com.google.android.gms.tasks.Task;
@@ -28,10 +29,10 @@ import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.ar.core.AugmentedImage;
 
 import android.graphics.Color;
+import android.graphics.Typeface;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 import android.os.Bundle;
-import android.os.SystemClock;
 import android.text.InputType;
 import android.text.TextUtils;
 import android.util.Log;
@@ -77,6 +78,14 @@ import com.google.ar.core.examples.java.common.rendering.ObjectRenderer;
 import com.google.ar.core.examples.java.common.rendering.ObjectRenderer.BlendMode;
 import com.google.ar.core.examples.java.common.rendering.PlaneRenderer;
 import com.google.ar.core.examples.java.common.rendering.PointCloudRenderer;
+import com.google.ar.core.examples.java.navigation.AStarPathfinder;
+import com.google.ar.core.examples.java.navigation.FrameProfiler;
+import com.google.ar.core.examples.java.navigation.GraphModel;
+import com.google.ar.core.examples.java.navigation.MetricsRegistry;
+import com.google.ar.core.examples.java.navigation.NavLog;
+import com.google.ar.core.examples.java.navigation.NavigationGraph;
+import com.google.ar.core.examples.java.navigation.RouteCache;
+import com.google.ar.core.examples.java.navigation.RouteTable;
 import com.google.ar.core.exceptions.CameraNotAvailableException;
 
 import com.google.ar.core.exceptions.UnavailableApkTooOldException;
@@ -89,9 +98,12 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -111,8 +123,22 @@ import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 public class CloudAnchorActivity extends AppCompatActivity
     implements GLSurfaceView.Renderer, NoticeDialogListener {
   private static final String TAG = CloudAnchorActivity.class.getSimpleName();
+  /** Tag of the logs written from {@code onDrawFrame}, sampled by {@link AndroidLogSink}. */
+  static final String FRAME_LOG_TAG = "CloudAnchorFrame";
   private static final float[] OBJECT_COLOR = new float[] {139.0f, 195.0f, 74.0f, 255.0f};
   private GraphBuilder1 graphBuilder;
+  // Held so onDestroy can cancel it while the graph model is still loading.
+  private final GraphStore.ModelCallback routeCallback = new GraphStore.ModelCallback() {
+    @Override
+    public void onModel(GraphModel model) {
+      Astar(model);
+    }
+
+    @Override
+    public void onError() {
+      Log.e("A*", "Navigation graph could not be loaded; no route computed");
+    }
+  };
   public String current_location = "";
   public String destination_loc = "";
 
@@ -133,10 +159,10 @@ public class CloudAnchorActivity extends AppCompatActivity
   private final ObjectRenderer virtualObjectShadow = new ObjectRenderer();
   private final PlaneRenderer planeRenderer = new PlaneRenderer();
   private final PointCloudRenderer pointCloudRenderer = new PointCloudRenderer();
+  private final PathRenderer pathRenderer = new PathRenderer();
   private final HashMap<Integer, Anchor> imageAnchors = new HashMap<>();
   private String lastPlacedCloudAnchorId = null;
   private List<Anchor> storedAnchors = new ArrayList<>();
-  private final Map<String, float[]> landmarkPositions = new HashMap<>();
   private float[] pendingAnchorPosition = null;
   private boolean shouldCreateAnchor = false;
   private boolean installRequested;
@@ -145,6 +171,34 @@ public class CloudAnchorActivity extends AppCompatActivity
   private final float[] anchorMatrix = new float[16];
   private final float[] viewMatrix = new float[16];
   private final float[] projectionMatrix = new float[16];
+  private final float[] colorCorrectionRgba = new float[4];
+
+  // Objects ARCore's own API may create in one frame (Frame, Poses, trackable collections).
+  private static final int FRAME_ALLOCATION_BUDGET = 64;
+  private FrameAllocationMonitor frameAllocations;
+
+  // Stages of onDrawFrame timed by frameProfiler. The renderers also get GPU timer queries.
+  private static final int STAGE_SESSION_UPDATE = 0;
+  private static final int STAGE_CLOUD_UPDATE = 1;
+  private static final int STAGE_BACKGROUND = 2;
+  private static final int STAGE_POINT_CLOUD = 3;
+  private static final int STAGE_PLANES = 4;
+  private static final int STAGE_AUGMENTED_IMAGES = 5;
+  private static final int STAGE_ANCHORS = 6;
+  private static final String[] FRAME_STAGES = {
+    "session.update", "cloud.onUpdate", "background", "pointCloud", "planes", "images", "anchors"
+  };
+  private static final int TIMING_OVERLAY_INTERVAL_FRAMES = 60;
+  // Written to the app's files dir on pause, e.g. for `adb shell run-as <package> cat files/...`
+  private static final String FRAME_TIMINGS_FILE = "frame_timings.tsv";
+  private final FrameProfiler frameProfiler = new FrameProfiler(FRAME_STAGES);
+  private final GpuStageTimer gpuTimer = new GpuStageTimer(FRAME_STAGES.length);
+  // Debug builds only: p50/p95/p99 of every stage, refreshed from the GL thread
+  private TextView timingOverlay;
+  private final StringBuilder timingOverlayText = new StringBuilder();
+  private volatile String timingSummary = "";
+  private final Runnable showTimingSummary = () -> timingOverlay.setText(timingSummary);
+  private int framesSinceTimingOverlay;
 
   // Locks needed for synchronization
   private final Object singleTapLock = new Object();
@@ -179,7 +233,6 @@ public class CloudAnchorActivity extends AppCompatActivity
   private final List<Anchor> hostedAnchors = new ArrayList<>();
   public float x,y,z;
   private String lastPlacedAnchorId = null;
-  Map<String, List<String>> connections = new HashMap<>();
   private static final int PERMISSION_REQUEST_CODE = 100; // Any integer value will work
   private final List<Anchor> resolvedAnchors = new ArrayList<>(); // 🔹 Fix: Declare the list
   private GoogleSignInClient googleSignInClient;
@@ -238,6 +291,10 @@ public class CloudAnchorActivity extends AppCompatActivity
     setContentView(R.layout.activity_main);
     surfaceView = findViewById(R.id.surfaceview);
     displayRotationHelper = new DisplayRotationHelper(this);
+    if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+      // Before setRenderer, which starts the GL thread that reads it
+      timingOverlay = createTimingOverlay();
+    }
 
 
     new android.app.AlertDialog.Builder(this)
@@ -306,6 +363,7 @@ public class CloudAnchorActivity extends AppCompatActivity
 
     // Initialize Cloud Anchor variables.
     firebaseManager = new FirebaseManager(this);
+    frameAllocations = new FrameAllocationMonitor(this, FRAME_ALLOCATION_BUDGET, /*strict=*/ BuildConfig.DEBUG);
     currentMode = HostResolveMode.NONE;
     sharedPreferences = getSharedPreferences(PREFERENCE_FILE_KEY, Context.MODE_PRIVATE);
 
@@ -364,6 +422,9 @@ public class CloudAnchorActivity extends AppCompatActivity
   protected void onDestroy() {
     // Clear all registered listeners.
     resetMode();
+    frameAllocations.release();
+    GraphStore.get().cancel(routeCallback);
+    firebaseManager.flushAnchorConnections();
 
     if (session != null) {
       // Explicitly close ARCore Session to release native resources.
@@ -400,10 +461,59 @@ public class CloudAnchorActivity extends AppCompatActivity
   @Override
   public void onPause() {
     super.onPause();
+    // Queued connections would be lost if the process is killed while in the background
+    firebaseManager.flushAnchorConnections();
     if (session != null) {
       displayRotationHelper.onPause();
       surfaceView.onPause();
       session.pause();
+      // The GL thread is paused now, so the profiler can be read here
+      writeFrameTimings();
+      GraphStore.get().exportMetrics();
+    }
+  }
+
+  /** Monospaced text in the top-left corner, above the AR view. */
+  private TextView createTimingOverlay() {
+    TextView overlay = new TextView(this);
+    overlay.setTypeface(Typeface.MONOSPACE);
+    overlay.setTextSize(10);
+    overlay.setTextColor(Color.WHITE);
+    overlay.setBackgroundColor(0x80000000);
+    overlay.setPadding(8, 8, 8, 8);
+    FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    params.gravity = Gravity.TOP | Gravity.START;
+    FrameLayout rootLayout = findViewById(android.R.id.content);
+    rootLayout.addView(overlay, params);
+    return overlay;
+  }
+
+  /**
+   * Every {@link #TIMING_OVERLAY_INTERVAL_FRAMES} frames, hands the timing summary to the overlay.
+   * Called after the frame's allocation check, since building the text allocates.
+   */
+  private void publishFrameTimings() {
+    if (timingOverlay == null || ++framesSinceTimingOverlay < TIMING_OVERLAY_INTERVAL_FRAMES) {
+      return;
+    }
+    framesSinceTimingOverlay = 0;
+    timingOverlayText.setLength(0);
+    frameProfiler.appendSummary(timingOverlayText);
+    timingSummary = timingOverlayText.toString();
+    runOnUiThread(showTimingSummary);
+  }
+
+  /** Writes the timing histograms of every frame drawn so far to {@link #FRAME_TIMINGS_FILE}. */
+  private void writeFrameTimings() {
+    if (frameProfiler.frames().count() == 0) {
+      return;
+    }
+    File file = new File(getFilesDir(), FRAME_TIMINGS_FILE);
+    try (Writer writer = new FileWriter(file)) {
+      frameProfiler.writeReport(writer);
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to write frame timings", e);
     }
   }
 
@@ -595,6 +705,9 @@ public class CloudAnchorActivity extends AppCompatActivity
               this, "models/andy_shadow.obj", "models/andy_shadow.png");
       virtualObjectShadow.setBlendMode(BlendMode.Shadow);
       virtualObjectShadow.setMaterialProperties(1.0f, 0.0f, 0.0f, 1.0f);
+
+      pathRenderer.createOnGlThread();
+      gpuTimer.createOnGlThread(/*wanted=*/ timingOverlay != null);
     } catch (IOException ex) {
       Log.e(TAG, "Failed to read an asset file", ex);
     }
@@ -621,9 +734,13 @@ public class CloudAnchorActivity extends AppCompatActivity
     }
     displayRotationHelper.updateSessionIfNeeded(session);
 
+    frameAllocations.beginFrame();
+    frameProfiler.beginFrame();
+    gpuTimer.beginFrame(frameProfiler);
     try {
       session.setCameraTextureName(backgroundRenderer.getTextureId());
       Frame frame = session.update();
+      frameProfiler.lap(STAGE_SESSION_UPDATE);
       Camera camera = frame.getCamera();
       TrackingState cameraTrackingState = camera.getTrackingState();
 
@@ -657,9 +774,16 @@ public class CloudAnchorActivity extends AppCompatActivity
         pendingAnchorPosition = null;
       }
 
-      cloudManager.onUpdate();
+      frameProfiler.mark();
+      cloudManager.onUpdate(
+          cameraTrackingState == TrackingState.TRACKING ? camera.getPose() : null);
+      frameProfiler.lap(STAGE_CLOUD_UPDATE);
       handleTap(frame, cameraTrackingState);
+      frameProfiler.mark();
+      gpuTimer.begin(STAGE_BACKGROUND);
       backgroundRenderer.draw(frame);
+      gpuTimer.end();
+      frameProfiler.lap(STAGE_BACKGROUND);
       trackingStateHelper.updateKeepScreenOnFlag(cameraTrackingState);
 
       if (cameraTrackingState == TrackingState.PAUSED) {
@@ -668,16 +792,25 @@ public class CloudAnchorActivity extends AppCompatActivity
 
       camera.getViewMatrix(viewMatrix, 0);
       camera.getProjectionMatrix(projectionMatrix, 0, 0.1f, 100.0f);
+      frame.getLightEstimate().getColorCorrection(colorCorrectionRgba, 0);
 
+      frameProfiler.mark();
+      gpuTimer.begin(STAGE_POINT_CLOUD);
       try (PointCloud pointCloud = frame.acquirePointCloud()) {
         pointCloudRenderer.update(pointCloud);
         pointCloudRenderer.draw(viewMatrix, projectionMatrix);
       }
+      gpuTimer.end();
+      frameProfiler.lap(STAGE_POINT_CLOUD);
 
+      gpuTimer.begin(STAGE_PLANES);
       planeRenderer.drawPlanes(
               session.getAllTrackables(Plane.class), camera.getDisplayOrientedPose(), projectionMatrix);
+      gpuTimer.end();
+      frameProfiler.lap(STAGE_PLANES);
 
       // 🔹 Augmented Image Detection Logic
+      gpuTimer.begin(STAGE_AUGMENTED_IMAGES);
       Collection<AugmentedImage> updatedAugmentedImages = frame.getUpdatedTrackables(AugmentedImage.class);
 
       for (AugmentedImage augmentedImage : updatedAugmentedImages) {
@@ -687,47 +820,43 @@ public class CloudAnchorActivity extends AppCompatActivity
                     augmentedImage.getCenterPose().compose(Pose.makeTranslation(0, 0.05f, 0))
             );
             imageAnchors.put(augmentedImage.getIndex(), anchor);
-            Log.d(TAG, "✅ Anchor placed at: " + anchor.getPose().toString());
+            if (NavLog.shouldLog(NavLog.DEBUG, FRAME_LOG_TAG)) {
+              NavLog.emit(NavLog.DEBUG, FRAME_LOG_TAG, "✅ Anchor placed at: " + anchor.getPose(), null);
+            }
             showInputDialog1(augmentedImage, lastPlacedCloudAnchorId);
 
             // ✅ Assign the last placed Cloud Anchor ID when an image is detected
-            if (lastPlacedCloudAnchorId != null) {
-              Log.d(TAG, "🔹 Assigning Cloud Anchor ID: " + lastPlacedCloudAnchorId + " to Augmented Image.");
-            } else {
-              Log.d(TAG, "⚠️ No Cloud Anchor ID available yet.");
+            if (lastPlacedCloudAnchorId == null) {
+              NavLog.d(FRAME_LOG_TAG, "⚠️ No Cloud Anchor ID available yet.");
+            } else if (NavLog.shouldLog(NavLog.DEBUG, FRAME_LOG_TAG)) {
+              NavLog.emit(NavLog.DEBUG, FRAME_LOG_TAG,
+                  "🔹 Assigning Cloud Anchor ID: " + lastPlacedCloudAnchorId + " to Augmented Image.", null);
             }
           }
 
           Anchor anchor = imageAnchors.get(augmentedImage.getIndex());
 
           if (anchor.getTrackingState() == TrackingState.TRACKING) {
-            Log.d(TAG, "✅ Rendering at anchor position: " + anchor.getPose().toString());
-
-            float[] anchorMatrix = new float[16];
             anchor.getPose().toMatrix(anchorMatrix, 0);
 
-            // ✅ Make sure colorCorrectionRgba is properly set
-            float[] colorCorrectionRgba = new float[4];
-            frame.getLightEstimate().getColorCorrection(colorCorrectionRgba, 0);
-
             float scaleFactor = 0.2f;  // Adjust size if needed
             virtualObject.updateModelMatrix(anchorMatrix, scaleFactor);
             virtualObject.draw(viewMatrix, projectionMatrix, colorCorrectionRgba, OBJECT_COLOR);
           } else {
-            Log.d(TAG, "❌ Anchor is not tracking.");
+            NavLog.d(FRAME_LOG_TAG, "❌ Anchor is not tracking.");
           }
         }
       }
+      gpuTimer.end();
+      frameProfiler.lap(STAGE_AUGMENTED_IMAGES);
 
+      gpuTimer.begin(STAGE_ANCHORS);
       synchronized (anchorLock) {
-        for (Anchor anchor : hostedAnchors) {
+        for (int i = 0; i < hostedAnchors.size(); i++) {
+          Anchor anchor = hostedAnchors.get(i);
           if (anchor.getTrackingState() == TrackingState.TRACKING) {
-            float[] anchorMatrix = new float[16];
             anchor.getPose().toMatrix(anchorMatrix, 0);
 
-            float[] colorCorrectionRgba = new float[4];
-            frame.getLightEstimate().getColorCorrection(colorCorrectionRgba, 0);
-
             float scaleFactor = 1.0f;
             virtualObject.updateModelMatrix(anchorMatrix, scaleFactor);
             virtualObjectShadow.updateModelMatrix(anchorMatrix, scaleFactor);
@@ -739,18 +868,12 @@ public class CloudAnchorActivity extends AppCompatActivity
 
       synchronized (anchorLock) {
         // Render **RESOLVED** anchors from anchorList
-        for (Anchor anchor : anchorList) {
+        pathRenderer.clear();
+        for (int i = 0; i < anchorList.size(); i++) {
+          Anchor anchor = anchorList.get(i);
           if (anchor.getTrackingState() == TrackingState.TRACKING) {
-            float[] anchorMatrix = new float[16];
             anchor.getPose().toMatrix(anchorMatrix, 0);
-
-            float[] colorCorrectionRgba = new float[4];
-            frame.getLightEstimate().getColorCorrection(colorCorrectionRgba, 0);
-
-            if (anchor.getTrackingState() == TrackingState.TRACKING) {
-              Log.d("anchorTracking", "Drawing anchor at: " + anchor.getPose().toString());
-              OpenGLRenderer.drawAnchorAtPosition(anchorMatrix, viewMatrix, projectionMatrix);
-            }
+            pathRenderer.add(anchorMatrix);
 
             float scaleFactor = 1.0f;
             virtualObject.updateModelMatrix(anchorMatrix, scaleFactor);
@@ -759,10 +882,19 @@ public class CloudAnchorActivity extends AppCompatActivity
             virtualObjectShadow.draw(viewMatrix, projectionMatrix, colorCorrectionRgba, OBJECT_COLOR);
           }
         }
+        // All breadcrumbs in one draw call
+        pathRenderer.draw(viewMatrix, projectionMatrix);
       }
+      gpuTimer.end();
+      frameProfiler.lap(STAGE_ANCHORS);
 
     } catch (Throwable t) {
       Log.e(TAG, "Exception on the OpenGL thread", t);
+    } finally {
+      gpuTimer.endFrame();
+      frameProfiler.endFrame();
+      frameAllocations.endFrame();
+      publishFrameTimings();
     }
   }
 
@@ -989,13 +1121,8 @@ public class CloudAnchorActivity extends AppCompatActivity
 
     Log.d("New2", "The path is " + path);
 
-
-    for (String cloudAnchorId : path) {
-      Log.d("New1", "resolveAnchorsFromPath: Resolving Cloud Anchor ID: " + cloudAnchorId);
-
-      CloudAnchorResolveStateListener resolveListener = new CloudAnchorResolveStateListener();
-      cloudManager.resolveCloudAnchor(cloudAnchorId, resolveListener, SystemClock.uptimeMillis());
-    }
+    // Resolved nearest-first a few at a time, instead of all at once.
+    cloudManager.resolveAStarPath(path, new CloudAnchorResolveStateListener());
   }
 
 
@@ -1161,12 +1288,8 @@ public class CloudAnchorActivity extends AppCompatActivity
     }
 
     private void connectAnchorsSequentially(String prevAnchorId, String currentAnchorId) {
-      DatabaseReference connectionsRef = FirebaseDatabase.getInstance()
-              .getReference("anchorConnections");
-
-      // Store bidirectional connections
-      connectionsRef.child(prevAnchorId).child(currentAnchorId).setValue(true);
-      connectionsRef.child(currentAnchorId).child(prevAnchorId).setValue(true);
+      // Both directions are queued together and written in one batched update
+      firebaseManager.connectAnchors(prevAnchorId, currentAnchorId);
 
       Log.d("AnchorConnections", "Connected: " + prevAnchorId + " <--> " + currentAnchorId);
     }
@@ -1263,209 +1386,60 @@ public class CloudAnchorActivity extends AppCompatActivity
     // Store a reference to the activity context
     final CloudAnchorActivity activity = CloudAnchorActivity.this;
 
-    pos(new Runnable() {
-      @Override
-      public void run() {
-        getconnections(new Runnable() {
-          @Override
-          public void run() {
-            // Run Astar algorithm
-            Astar();
-          }
-        });
-      }
-    });
-  }
-
-
-  //For the 3rd parameter of A* (Positions of landmarks)
-  private void pos(Runnable onComplete) {
-    long startTime = SystemClock.uptimeMillis();
-    DatabaseReference detectedImagesRef = FirebaseDatabase.getInstance().getReference("detected_images");
-    DatabaseReference anchorsRef = FirebaseDatabase.getInstance().getReference("anchors");
-
-    detectedImagesRef.addListenerForSingleValueEvent(new ValueEventListener() {
-      @Override
-      public void onDataChange(DataSnapshot dataSnapshot) {
-        List<String> cloudAnchorIds = new ArrayList<>();
-
-        for (DataSnapshot landmarkSnapshot : dataSnapshot.getChildren()) {
-          String landmarkName = landmarkSnapshot.getKey();
-          String cloudAnchorId = landmarkSnapshot.child("cloudAnchorId").getValue(String.class);
-
-          if (cloudAnchorId != null) {
-            cloudAnchorIds.add(cloudAnchorId);
-            Log.d("A*", "Landmark: " + landmarkName + ", CloudAnchorId: " + cloudAnchorId);
-          }
-        }
-
-        // Fetch and store all anchors
-        anchorsRef.addListenerForSingleValueEvent(new ValueEventListener() {
-          @Override
-          public void onDataChange(DataSnapshot anchorSnapshot) {
-            for (DataSnapshot anchor : anchorSnapshot.getChildren()) {
-              String anchorCloudId = anchor.child("cloudAnchorid").getValue(String.class);
-
-              if (anchorCloudId != null) {
-                // Convert manually to float
-                double xVal = anchor.child("x").getValue(Double.class);
-                double yVal = anchor.child("y").getValue(Double.class);
-                double zVal = anchor.child("z").getValue(Double.class);
-
-                float x = (float) xVal;
-                float y = (float) yVal;
-                float z = (float) zVal;
-
-                // Store in landmarkPositions
-                landmarkPositions.put(anchorCloudId, new float[]{x, y, z});
-
-                Log.d("A*", "Stored Anchor: " + anchorCloudId + " -> Position: (" + x + ", " + y + ", " + z + ")");
-              }
-            }
-
-            Log.e("A*", "Updated LandmarkPositions: " + landmarkPositions);
-            onComplete.run(); // Notify completion if needed
-          }
-
-          @Override
-          public void onCancelled(DatabaseError databaseError) {
-            Log.e("FirebaseData", "Error fetching anchor data", databaseError.toException());
-          }
-        });
-      }
-
-      @Override
-      public void onCancelled(DatabaseError databaseError) {
-        Log.e("FirebaseData", "Error fetching landmark data", databaseError.toException());
-      }
-    });
-  }
-
-
-
-
-  private void getconnections(Runnable onComplete) {
-    DatabaseReference connectionsRef = FirebaseDatabase.getInstance().getReference("anchorConnections");
-    DatabaseReference anchorsRef = FirebaseDatabase.getInstance().getReference("anchors");
-
-    Map<String, String> anchorToCloudId = new HashMap<>();
-    // Remove this line completely - don't create a local variable with the same name as class field
-    // Map<String, List<String>> connections = new HashMap<>();
-
-    // Clear existing connections to avoid duplicates
-    connections.clear();
-
-    anchorsRef.addListenerForSingleValueEvent(new ValueEventListener() {
-      @Override
-      public void onDataChange(DataSnapshot snapshot) {
-        for (DataSnapshot anchor : snapshot.getChildren()) {
-          String anchorId = anchor.getKey();
-          String cloudAnchorId = anchor.child("cloudAnchorid").getValue(String.class);
-
-          if (cloudAnchorId != null) {
-            anchorToCloudId.put(anchorId, cloudAnchorId);
-          }
-        }
-
-        connectionsRef.addListenerForSingleValueEvent(new ValueEventListener() {
-          @Override
-          public void onDataChange(DataSnapshot snapshot) {
-            for (DataSnapshot anchorSnapshot : snapshot.getChildren()) {
-              String localAnchor = anchorSnapshot.getKey();
-              String cloudAnchor = anchorToCloudId.get(localAnchor);
-
-              if (cloudAnchor == null) continue;
-
-              List<String> connectedCloudAnchors = new ArrayList<>();
-              for (DataSnapshot connectedAnchor : anchorSnapshot.getChildren()) {
-                String connectedLocal = connectedAnchor.getKey();
-                String connectedCloud = anchorToCloudId.get(connectedLocal);
-
-                if (connectedCloud != null) {
-                  connectedCloudAnchors.add(connectedCloud);
-                }
-              }
-
-              connections.put(cloudAnchor, connectedCloudAnchors);
-            }
-
-            Log.d("A*1", "Cloud Anchor Connections: " + connections);
-
-            // ✅ Call next function when done
-            Log.e("connections69", "Connections: "+ connections);
-            if (onComplete != null) onComplete.run();
-          }
-
-          @Override
-          public void onCancelled(DatabaseError error) {
-            Log.e("Firebase", "Failed to load anchor connections", error.toException());
-          }
-        });
-      }
-
-      @Override
-      public void onCancelled(DatabaseError error) {
-        Log.e("Firebase", "Failed to load anchor data", error.toException());
-      }
-    });
+    GraphStore.get().loadModel(routeCallback);
   }
 
 
 
-  private void Astar() {
-
-    for (String key : landmarkPositions.keySet()) {
-      float[] pos = landmarkPositions.get(key);
-      Log.d("DEBUGfuck", "Key: " + key + " -> Position: " + pos[0] + ", " + pos[1] + ", " + pos[2]);
-    }
-
-
-    Log.e("A*LandmarkPosition", "Landmark Positions: " + landmarkPositions);
-    for (Map.Entry<String, float[]> entry : landmarkPositions.entrySet()) {
-      String key = entry.getKey();
-      float[] position = entry.getValue();
-      Log.e("LandmarkPosition", "  Key: " + key + ", Position: " + Arrays.toString(position));
-    }
-
-    // Correctly log the contents of connections
-    Log.e("Connections1", "Connections: " + connections);
-
-
-    if (landmarkPositions.isEmpty() || connections.isEmpty()) {
+  /** Routes on one consistent graph version: graph, route table and landmarks all come from model. */
+  private void Astar(GraphModel model) {
+    NavigationGraph graph = model.navigationGraph();
+    if (graph.nodeCount() == 0) {
       Log.e("A*", "Data not loaded yet! Waiting...");
       return;
     }
 
-    // Check if the specific landmarks exist
-    Log.e("A**", "Current location is " + current_location);
-    Log.e("A**", "Current location is " + destination_loc);
-    Log.e("A*", "Landmark 1 exists in map: " + landmarkPositions.containsKey(current_location));
-    Log.e("A*", "Landmark 2 exists in map: " + landmarkPositions.containsKey(destination_loc));
-
-    // Use the found keys, or default to your original ones
+    // Nodes of the routing graph are keyed by cloud anchor id.
     String start = current_location;
     String end = destination_loc;
-
-
-    Log.e("A*Debug", "🔥 Attempting A* pathfinding...");
     Log.e("A*Debug", "🏁 Start: " + start + ", 🎯 Goal: " + end);
 
     if (start == null || end == null) {
       Log.e("A*Debug", "❌ Start or End is NULL!");
-    } else if (!landmarkPositions.containsKey(start) || !landmarkPositions.containsKey(end)) {
-      Log.e("A*Debug", "❌ Start or End landmark NOT found in landmarkPositions!");
-    } else if (!connections.containsKey(start) && !connections.containsKey(end)) {
-      Log.e("A*Debug", "❌ Start and End are ISOLATED (No connections)!");
-    } else {
-      Log.e("A*Debug", "✅ All checks passed, calling AStarPathfinder.findShortestPath...");
+    } else if (graph.indexOf(start) < 0 || graph.indexOf(end) < 0) {
+      Log.e("A*Debug", "❌ Start or End landmark NOT found in the navigation graph!");
     }
 
     try {
-      path = AStarPathfinder.findShortestPath(start, end, landmarkPositions, connections);
-      Log.e("A*Debug", "The A* path is " + path);
+      // Repeated requests for the same route on the same graph version skip the search.
+      RouteCache cache = GraphStore.get().routeCache();
+      path = cache.computeIfAbsent(start, end, model.version(), (from, to) -> findRoute(model, from, to));
+      Log.e("A*Debug", "The path is " + path + " (route cache: " + cache.hits() + " hits, "
+          + cache.misses() + " misses)");
 
     } catch (Exception e) {
       Log.e("A*Debug", "Error in pathfinding: " + e.getMessage(), e);
     }
   }
+
+  /**
+   * Routes to landmarks are precomputed; anything else falls back to an A* search. Records the
+   * latency of either, and the nodes A* expanded, in the {@link MetricsRegistry}.
+   */
+  private static List<String> findRoute(GraphModel model, String start, String end) {
+    MetricsRegistry metrics = MetricsRegistry.get();
+    long startNanos = System.nanoTime();
+    RouteTable routes = model.routeTable();
+    if (routes != null && routes.hasDestination(end)) {
+      List<String> route = routes.findShortestPath(start, end);
+      metrics.histogram("route.table.us").recordMicrosSince(startNanos);
+      return route;
+    }
+    // Created once per graph version; its scratch and path buffers are reused by every query.
+    AStarPathfinder pathfinder = GraphStore.get().pathfinder(model);
+    List<String> route = pathfinder.findShortestPath(start, end);
+    metrics.histogram("route.astar.us").recordMicrosSince(startNanos);
+    metrics.histogram("route.astar.expanded_nodes").record(pathfinder.expandedNodes());
+    return route;
+  }
   }
\ No newline at end of file
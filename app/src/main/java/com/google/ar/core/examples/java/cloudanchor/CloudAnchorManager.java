@@ -18,42 +18,48 @@ package com.google.ar.core.examples.java.cloudanchor;
 
 import android.os.SystemClock;
 import android.util.Log;
-import android.util.Pair;
 import androidx.annotation.Nullable;
 
-import com.google.android.gms.auth.api.signin.GoogleSignIn;
-import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.ar.core.Anchor;
 import com.google.ar.core.Anchor.CloudAnchorState;
 import com.google.ar.core.AugmentedImage;
 import com.google.ar.core.Frame;
-import com.google.ar.core.FutureState;
-import com.google.ar.core.HostCloudAnchorFuture;
+import com.google.ar.core.Pose;
 import com.google.ar.core.ResolveCloudAnchorFuture;
 import com.google.ar.core.Session;
 import com.google.ar.core.TrackingState;
-import com.google.ar.core.exceptions.CameraNotAvailableException;
+import com.google.ar.core.examples.java.navigation.ResolveScheduler;
 import com.google.common.base.Preconditions;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A helper class to handle all the Cloud Anchors logic, and add a callback-like mechanism on top of
  * the existing ARCore API.
+ *
+ * <p>Host and resolve results arrive through the futures' own callbacks, which only append a task
+ * to a lock-free queue. {@link #onUpdate} runs on the GL thread and drains that queue, so a frame
+ * costs O(completed operations) rather than a poll of every pending future, and the listeners are
+ * still invoked on the GL thread. Calls from other threads are queued the same way, so the
+ * manager's state is only touched on the GL thread and needs no lock.
  */
 class CloudAnchorManager {
   private static final String TAG =
       CloudAnchorActivity.class.getSimpleName() + "." + CloudAnchorManager.class.getSimpleName();
   private static final long DURATION_FOR_NO_RESOLVE_RESULT_MS = 10000;
-  private long deadlineForMessageMillis;
-  private int totalAnchorsToResolve = 0;
-  private int resolvedAnchorsCount = 0;
-  private boolean resolutionFinished = false;
+  private static final long DURATION_FOR_WRONG_LOCATION_MS = 5000;
+  // Route resolves: a few at a time, retried with backoff on transient service errors.
+  private static final int MAX_CONCURRENT_RESOLVES = 3;
+  private static final int MAX_RESOLVE_ATTEMPTS = 4;
+  private static final long RESOLVE_BACKOFF_BASE_MS = 1000;
+  private static final long RESOLVE_BACKOFF_MAX_MS = 8000;
+  // The user counts as having reached a route anchor within this distance of it.
+  private static final float ANCHOR_REACHED_DISTANCE_M = 1.5f;
 
   /** Listener for the results of a host operation. */
   interface CloudAnchorHostListener {
@@ -74,32 +80,76 @@ class CloudAnchorManager {
     void onShowResolveMessage1();
   }
 
-  @Nullable private Session session = null;
+  @Nullable private volatile Session session = null;
 
-  /** The pending hosting operations. */
-  private final ArrayList<Pair<HostCloudAnchorFuture, CloudAnchorHostListener>> hostTasks =
-      new ArrayList<>();
+  /** Work for the GL thread: completed futures and requests made on other threads. */
+  private final ConcurrentLinkedQueue<Runnable> glTasks = new ConcurrentLinkedQueue<>();
 
-  /** The pending resolving operations. */
-  private final ArrayList<Pair<ResolveCloudAnchorFuture, CloudAnchorResolveListener>> resolveTasks =
-      new ArrayList<>();
+  /**
+   * Bumped by {@link #clearListeners}; results of operations started in an earlier generation are
+   * dropped instead of being delivered.
+   */
+  private final AtomicInteger generation = new AtomicInteger();
+
+  /** Resolves of the anchors along the current route, see {@link #resolveAStarPath}. */
+  private final ResolveScheduler<RouteResolve> pathResolves =
+      new ResolveScheduler<>(
+          new ResolveScheduler.Backend<RouteResolve>() {
+            @Override
+            public RouteResolve start(String cloudAnchorId) {
+              RouteResolve resolve = new RouteResolve();
+              int startedIn = generation.get();
+              resolve.future =
+                  session.resolveCloudAnchorAsync(
+                      cloudAnchorId,
+                      (anchor, state) ->
+                          post(startedIn, () -> onRouteResolveDone(resolve, anchor, state)));
+              return resolve;
+            }
+
+            @Override
+            public void cancel(RouteResolve task) {
+              task.future.cancel();
+            }
+          },
+          MAX_CONCURRENT_RESOLVES,
+          MAX_RESOLVE_ATTEMPTS,
+          RESOLVE_BACKOFF_BASE_MS,
+          RESOLVE_BACKOFF_MAX_MS);
+
+  // Everything below is only touched on the GL thread.
+  @Nullable private CloudAnchorResolveListener pathListener;
+  /** Resolved route anchors by path index, null where not resolved (yet). */
+  private Anchor[] pathAnchors = new Anchor[0];
+  private int reachedPathIndex;
+  private int resolvedAnchorsCount = 0;
+  /** Listener of the latest resolve, told when no result arrived in time. */
+  @Nullable private CloudAnchorResolveListener deadlineListener;
+  private long deadlineForMessageMillis;
+  private long wrongLocationDeadlineMillis;
+
+  /** A running route resolve; the future is filled in once {@code resolveCloudAnchorAsync} returns. */
+  private static final class RouteResolve {
+    ResolveCloudAnchorFuture future;
+  }
 
   /**
    * This method is used to set the session, since it might not be available when this object is
    * created.
    */
-  synchronized void setSession(Session session) {
+  void setSession(Session session) {
     this.session = session;
   }
 
   /**
-   * This method hosts an anchor. The {@code listener} will be invoked when the results are
-   * available.
+   * This method hosts an anchor. The {@code listener} will be invoked on the GL thread when the
+   * results are available.
    */
-  synchronized void hostCloudAnchor(Anchor anchor, CloudAnchorHostListener listener) {
+  void hostCloudAnchor(Anchor anchor, CloudAnchorHostListener listener) {
     Preconditions.checkNotNull(session, "The session cannot be null.");
+    int startedIn = generation.get();
 
-    HostCloudAnchorFuture future = session.hostCloudAnchorAsync(anchor, 365, (cloudAnchorId, state) -> {
+    session.hostCloudAnchorAsync(anchor, 365, (cloudAnchorId, state) -> {
       if (state == CloudAnchorState.SUCCESS) {
         Log.d("CloudAnchor420", "✅ Hosting successful! Anchor ID: " + cloudAnchorId);
       } else {
@@ -128,101 +178,130 @@ class CloudAnchorManager {
             break;
         }
       }
+      post(startedIn, () -> listener.onCloudTaskComplete(cloudAnchorId, state));
     });
-
-    hostTasks.add(new Pair<>(future, listener));
   }
 
 
 
 
   /**
-   * This method resolves an anchor. The {@code listener} will be invoked when the results are
-   * available.
+   * This method resolves an anchor. The {@code listener} will be invoked on the GL thread when the
+   * results are available.
    */
-  synchronized void resolveCloudAnchor(
+  void resolveCloudAnchor(
       String anchorId, CloudAnchorResolveListener listener, long startTimeMillis) {
     Preconditions.checkNotNull(session, "The session cannot be null.");
-    ResolveCloudAnchorFuture future = session.resolveCloudAnchorAsync(anchorId, null);
-    resolveTasks.add(new Pair<>(future, listener));
-    deadlineForMessageMillis = startTimeMillis + DURATION_FOR_NO_RESOLVE_RESULT_MS;
+    int startedIn = generation.get();
+    session.resolveCloudAnchorAsync(
+        anchorId,
+        (anchor, state) -> post(startedIn, () -> onResolveDone(listener, anchor, state)));
+    post(startedIn, () -> startResolveDeadlines(listener, startTimeMillis));
   }
 
+  /**
+   * Should be called on the GL thread after a {@link Session#update()} call, with the camera pose
+   * of the frame or null while the camera is not tracking.
+   */
+  void onUpdate(@Nullable Pose cameraPose) {
+    for (Runnable task; (task = glTasks.poll()) != null; ) {
+      task.run();
+    }
 
-  private boolean resolveTimerStarted = false;
-  private long resolveStartTime = 0;
-
-  /** Should be called after a {@link Session#update()} call. */
-  synchronized void onUpdate() throws CameraNotAvailableException {
-    Preconditions.checkNotNull(session, "The session cannot be null.");
-    Iterator<Pair<HostCloudAnchorFuture, CloudAnchorHostListener>> hostIter = hostTasks.iterator();
-    while (hostIter.hasNext()) {
-      Pair<HostCloudAnchorFuture, CloudAnchorHostListener> entry = hostIter.next();
-      if (entry.first.getState() == FutureState.DONE) {
-        CloudAnchorHostListener listener = entry.second;
-        String cloudAnchorId = entry.first.getResultCloudAnchorId();
-        CloudAnchorState cloudAnchorState = entry.first.getResultCloudAnchorState();
-        listener.onCloudTaskComplete(cloudAnchorId, cloudAnchorState);
-        hostIter.remove();
+    long now = SystemClock.uptimeMillis();
+    if (pathListener != null) {
+      if (cameraPose != null) {
+        updateReachedAnchor(cameraPose);
       }
+      pathResolves.pump(now);
     }
 
-   // Frame frame = session.update();
-    // Process augmented images
-    //processAugmentedImages(frame);
-
-    Iterator<Pair<ResolveCloudAnchorFuture, CloudAnchorResolveListener>> resolveIter =
-        resolveTasks.iterator();
-    Log.d("Checkifin", "Number of pending resolve tasks: " + resolveTasks.size());
-
-    // Start resolve timer only once
-    if (!resolveTimerStarted && !resolveTasks.isEmpty()) {
-      resolveStartTime = SystemClock.uptimeMillis();
-      resolveTimerStarted = true;
-      Log.d("Checkifin", "⏱️ Started 5-second timeout for resolve check");
+    if (deadlineListener != null) {
+      if (deadlineForMessageMillis > 0 && now > deadlineForMessageMillis) {
+        deadlineListener.onShowResolveMessage();
+        deadlineForMessageMillis = 0;
+      }
+      if (wrongLocationDeadlineMillis > 0 && now > wrongLocationDeadlineMillis) {
+        if (resolvedAnchorsCount == 0) {
+          deadlineListener.onShowResolveMessage1();  // You're at the wrong location
+        }
+        wrongLocationDeadlineMillis = 0;
+      }
     }
+  }
 
-    while (resolveIter.hasNext()) {
-      Pair<ResolveCloudAnchorFuture, CloudAnchorResolveListener> entry = resolveIter.next();
-      CloudAnchorResolveListener listener = entry.second;
-      Log.d("Checkifin", "Checking resolve state: " + entry.first.getState());
-      if (entry.first.getState() == FutureState.DONE) {
-        Anchor anchor = entry.first.getResultAnchor();
-        CloudAnchorState cloudAnchorState = entry.first.getResultCloudAnchorState();
-        Log.d("Checkifin", "Resolved Anchor state: " + cloudAnchorState);
-
-        if (cloudAnchorState == CloudAnchorState.SUCCESS) {
-          resolvedAnchorsCount++; // ✅ Count successful ones
-        }
+  /** Queues {@code task} for the GL thread unless the listeners were cleared since {@code startedIn}. */
+  private void post(int startedIn, Runnable task) {
+    glTasks.add(() -> {
+      if (generation.get() == startedIn) task.run();
+    });
+  }
 
-        Log.d("Checkifin", "✅ Resolved Anchors: " + resolvedAnchorsCount);
+  private void startResolveDeadlines(CloudAnchorResolveListener listener, long startTimeMillis) {
+    deadlineListener = listener;
+    deadlineForMessageMillis = startTimeMillis + DURATION_FOR_NO_RESOLVE_RESULT_MS;
+    wrongLocationDeadlineMillis = startTimeMillis + DURATION_FOR_WRONG_LOCATION_MS;
+  }
 
-        listener.onCloudTaskComplete(anchor, cloudAnchorState);
-        resolveIter.remove();
+  private void onResolveDone(
+      CloudAnchorResolveListener listener, Anchor anchor, CloudAnchorState state) {
+    if (state == CloudAnchorState.SUCCESS) {
+      resolvedAnchorsCount++;
+    }
+    listener.onCloudTaskComplete(anchor, state);
+    if (resolvedAnchorsCount == 0) {
+      listener.onShowResolveMessage1();  // You're at the wrong location
+    }
+  }
 
-          if (resolvedAnchorsCount == 0) {
-            listener.onShowResolveMessage1();  // ✅ This will trigger "You are at the wrong location"
-          }
+  /** Reports a finished route resolve, or queues it again after a transient service error. */
+  private void onRouteResolveDone(RouteResolve resolve, Anchor anchor, CloudAnchorState state) {
+    int pathIndex = pathResolves.pathIndexOf(resolve);
+    if (pathIndex < 0) return; // Preempted while the result was on its way
+    if (isTransient(state) && pathResolves.retry(resolve, SystemClock.uptimeMillis())) {
+      Log.d(TAG, "Resolve hit " + state + ", retrying with backoff");
+      return;
+    }
+    pathResolves.complete(resolve);
+    if (state == CloudAnchorState.SUCCESS) {
+      pathAnchors[pathIndex] = anchor;
+    }
+    onResolveDone(pathListener, anchor, state);
+  }
 
+  /** Preempts the route anchors behind the furthest resolved anchor the camera is close to. */
+  private void updateReachedAnchor(Pose cameraPose) {
+    int reached = reachedPathIndex;
+    for (int i = reached + 1; i < pathAnchors.length; i++) {
+      Anchor anchor = pathAnchors[i];
+      if (anchor != null
+          && anchor.getTrackingState() == TrackingState.TRACKING
+          && distance(cameraPose, anchor.getPose()) < ANCHOR_REACHED_DISTANCE_M) {
+        reached = i;
       }
-      if (deadlineForMessageMillis > 0 && SystemClock.uptimeMillis() > deadlineForMessageMillis) {
-        listener.onShowResolveMessage();
-        deadlineForMessageMillis = 0;
-      }
-
-      // ⏰ After 5 seconds, check if still 0 resolved
-      if (resolveTimerStarted && SystemClock.uptimeMillis() - resolveStartTime > 5000) {
-        if (resolvedAnchorsCount == 0) {
-          Log.d("Checkifin", "⚠️ No anchors resolved after 5 seconds");
-          for (Pair<ResolveCloudAnchorFuture, CloudAnchorResolveListener> entry1 : resolveTasks) {
-            entry.second.onShowResolveMessage1();  // Show: You're at the wrong location
-          }
-          resolveTimerStarted = false; // prevent it from repeating
-        }
+    }
+    if (reached > reachedPathIndex) {
+      reachedPathIndex = reached;
+      int preempted = pathResolves.advanceTo(reached);
+      if (preempted > 0) {
+        Log.d(TAG, "Reached route anchor " + reached + ", dropped " + preempted + " behind it");
       }
     }
   }
 
+  /** States worth another attempt: the service is briefly down or rate limiting us. */
+  private static boolean isTransient(CloudAnchorState state) {
+    return state == CloudAnchorState.ERROR_SERVICE_UNAVAILABLE
+        || state == CloudAnchorState.ERROR_RESOURCE_EXHAUSTED;
+  }
+
+  private static float distance(Pose a, Pose b) {
+    float dx = a.tx() - b.tx();
+    float dy = a.ty() - b.ty();
+    float dz = a.tz() - b.tz();
+    return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+  }
+
   private void processAugmentedImages(Frame frame) {
     Collection<AugmentedImage> updatedAugmentedImages =
             frame.getUpdatedTrackables(AugmentedImage.class);
@@ -237,18 +316,25 @@ class CloudAnchorManager {
     }
   }
 
-  public void resolveAStarPath(List<String> anchorIds, CloudAnchorResolveListener listener) {
+  /**
+   * Resolves the cloud anchors of a route, in path order and a few at a time, replacing any route
+   * being resolved. Anchors the user has walked past are skipped and transient service errors are
+   * retried; {@code listener} gets one result per anchor that is not skipped. The route starts on
+   * the next {@link #onUpdate}.
+   */
+  void resolveAStarPath(List<String> anchorIds, CloudAnchorResolveListener listener) {
     Preconditions.checkNotNull(session, "The session cannot be null.");
-
-    totalAnchorsToResolve = anchorIds.size();   // ✅ how many to resolve
     Log.d("Checkifin", "Anchors to resolve: " + anchorIds.size());
-    resolvedAnchorsCount = 0;
-    resolutionFinished = false;
-
-    for (String anchorId : anchorIds) {
-      ResolveCloudAnchorFuture future = session.resolveCloudAnchorAsync(anchorId, null);
-      resolveTasks.add(new Pair<>(future, listener));
-    }
+    long startTimeMillis = SystemClock.uptimeMillis();
+
+    post(generation.get(), () -> {
+      resolvedAnchorsCount = 0;
+      pathListener = listener;
+      pathAnchors = new Anchor[anchorIds.size()];
+      reachedPathIndex = 0;
+      pathResolves.submit(anchorIds);
+      startResolveDeadlines(listener, startTimeMillis);
+    });
   }
 
 
@@ -269,10 +355,18 @@ class CloudAnchorManager {
 
 
   /** Used to clear any currently registered listeners, so they won't be called again. */
-  synchronized void clearListeners() {
-    hostTasks.clear();
-    resolveTasks.clear();
-    deadlineForMessageMillis = 0;
+  void clearListeners() {
+    // Results already queued or still in flight are dropped from here on.
+    int cleared = generation.incrementAndGet();
+    glTasks.add(() -> {
+      if (generation.get() != cleared) return;
+      pathResolves.cancelAll();
+      pathListener = null;
+      pathAnchors = new Anchor[0];
+      deadlineListener = null;
+      deadlineForMessageMillis = 0;
+      wrongLocationDeadlineMillis = 0;
+    });
   }
 
 
@@ -17,11 +17,18 @@
 package com.google.ar.core.examples.java.cloudanchor;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.google.ar.core.Anchor;
+import com.google.ar.core.examples.java.navigation.AnchorData;
+import com.google.ar.core.examples.java.navigation.AnchorGrid;
+import com.google.ar.core.examples.java.navigation.Distances;
+import com.google.ar.core.examples.java.navigation.EdgeWriteBatcher;
 import com.google.common.base.Preconditions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.database.DataSnapshot;
@@ -73,6 +80,19 @@ class FirebaseManager {
   // Names of the nodes used in the Firebase Database
   private static final String ROOT_FIREBASE_HOTSPOTS = "hotspot_list";
   private static final String ROOT_LAST_ROOM_CODE = "last_room_code";
+  private static final String ROOT_ANCHORS = "anchors";
+  // Anchors bucketed by AnchorGrid cell, as anchorCells/<cell name>/<anchor id>/{x, y, z}.
+  private static final String ROOT_ANCHOR_CELLS = "anchorCells";
+  private static final String ROOT_ANCHOR_CELLS_VERSION = "anchorCellsVersion";
+
+  // Bump when the cell layout changes; older data is re-bucketed from the anchors node on start.
+  private static final long ANCHOR_CELLS_VERSION = 1;
+  private static final double ANCHOR_CELL_SIZE_M = 2.0;
+  private static final String ROOT_ANCHOR_CONNECTIONS = "anchorConnections";
+
+  // Connection edges are flushed once this many are queued, or this long after the first one.
+  private static final int EDGE_BATCH_MAX_EDGES = 64;
+  private static final long EDGE_BATCH_MAX_DELAY_MS = 200;
 
   // Some common keys and values used when writing to the Firebase Database.
   private static final String KEY_DISPLAY_NAME = "display_name";
@@ -85,6 +105,9 @@ class FirebaseManager {
   private final DatabaseReference roomCodeRef;
   private DatabaseReference currentRoomRef = null;
   private ValueEventListener currentRoomListener = null;
+  // Local cache of every anchor fetched so far, bucketed the same way as ROOT_ANCHOR_CELLS.
+  private final AnchorGrid anchorGrid = new AnchorGrid(ANCHOR_CELL_SIZE_M);
+  private final EdgeWriteBatcher edgeWriter;
 
 
   /**
@@ -93,6 +116,9 @@ class FirebaseManager {
    * @param context The application context.
    */
   FirebaseManager(Context context) {
+    Handler mainHandler = new Handler(Looper.getMainLooper());
+    edgeWriter = new EdgeWriteBatcher(new FirebaseEdgeBackend(), mainHandler::postDelayed,
+        ROOT_ANCHOR_CONNECTIONS, EDGE_BATCH_MAX_EDGES, EDGE_BATCH_MAX_DELAY_MS);
     app = FirebaseApp.initializeApp(context);
     if (app != null) {
       DatabaseReference rootRef = FirebaseDatabase.getInstance(app).getReference();
@@ -100,6 +126,7 @@ class FirebaseManager {
       roomCodeRef = rootRef.child(ROOT_LAST_ROOM_CODE);
 
       DatabaseReference.goOnline();
+      ensureAnchorCells(rootRef);
     } else {
       Log.d(TAG, "Could not connect to Firebase Database!");
       hotspotListRef = null;
@@ -108,60 +135,178 @@ class FirebaseManager {
   }
 
   /**
-   * Gets a new room code from the Firebase Database. Invokes the listener method when a new room
-   * code is available.
+   * Finds the anchors within {@code threshold} of (x, y, z), stores the connections to them and
+   * passes them to {@code callback}. Only the {@link AnchorGrid} cells overlapping the query sphere
+   * are read from Firebase, so the cost does not grow with the number of anchors in the building.
    */
   public void getNearbyAnchors(String newAnchorId, double x, double y, double z, double threshold, NearbyAnchorsCallback callback) {
     Log.d("NearbyAnchors", "🔹 Function called for Anchor ID: " + newAnchorId);
 
-    DatabaseReference anchorsRef = FirebaseDatabase.getInstance().getReference("anchors");
+    DatabaseReference cellsRef = FirebaseDatabase.getInstance().getReference(ROOT_ANCHOR_CELLS);
+    List<String> cellNames = anchorGrid.cellNamesWithin(x, y, z, threshold);
+    int[] pendingCells = {cellNames.size()};
 
-    anchorsRef.addListenerForSingleValueEvent(new ValueEventListener() {
-      @Override
-      public void onDataChange(@NonNull DataSnapshot snapshot) {
-        Log.d("NearbyAnchors", "📥 Data retrieved from Firebase");
+    Runnable onAllCellsFetched = () -> {
+      List<String> nearbyAnchors = anchorGrid.findWithin(newAnchorId, x, y, z, threshold);
+
+      Log.d("NearbyAnchors", "📝 Nearby Anchors List: " + nearbyAnchors.toString());
 
-        List<String> nearbyAnchors = new ArrayList<>();
+      Log.e("LETS1", "NewAnchorId " + newAnchorId);
+      // ✅ Store nearby anchors in Firebase
+      updateAnchorConnections(newAnchorId, nearbyAnchors);
 
-        if (snapshot.exists()) {
+      // 🔹 Return list via callback
+      callback.onNearbyAnchorsFound(nearbyAnchors);
+    };
+
+    // The cells are independent reads; issue them all at once and continue when the last returns.
+    for (String cellName : cellNames) {
+      cellsRef.child(cellName).addListenerForSingleValueEvent(new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+          List<AnchorData> cell = new ArrayList<>();
           for (DataSnapshot anchor : snapshot.getChildren()) {
-            String anchorId = anchor.getKey();
-            if (anchorId.equals(newAnchorId)) continue; // Skip itself
+            AnchorData anchorData = parseAnchorPosition(anchor);
+            if (anchorData != null) {
+              cell.add(anchorData);
+            }
+          }
+          // The fetched cell is the truth: anchors deleted since the last fetch leave the grid.
+          anchorGrid.replaceCell(cellName, cell);
+          if (--pendingCells[0] == 0) {
+            onAllCellsFetched.run();
+          }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+          Log.e("FirebaseError", "❌ Firebase Query Cancelled: " + error.getMessage());
+          // Connect to whatever the other cells returned rather than never answering.
+          if (--pendingCells[0] == 0) {
+            onAllCellsFetched.run();
+          }
+        }
+      });
+    }
+  }
 
-            try {
-              double ax = anchor.child("x").getValue(Double.class);
-              double ay = anchor.child("y").getValue(Double.class);
-              double az = anchor.child("z").getValue(Double.class);
+  /** Reads the x/y/z children of an anchor node; returns null if any of them is missing. */
+  @Nullable
+  private static AnchorData parseAnchorPosition(DataSnapshot anchor) {
+    Double ax = anchor.child("x").getValue(Double.class);
+    Double ay = anchor.child("y").getValue(Double.class);
+    Double az = anchor.child("z").getValue(Double.class);
+    if (ax == null || ay == null || az == null) {
+      Log.e("NearbyAnchors", "❌ Error parsing anchor data: " + anchor.getKey());
+      return null;
+    }
+    return new AnchorData(anchor.getKey(), null, 0, ax, ay, az);
+  }
 
-              Log.d("NearbyAnchors", "📌 Checking anchor: " + anchorId + " at (" + ax + ", " + ay + ", " + az + ")");
+  /** Adds the anchor to its cell, both locally and in Firebase. */
+  private void storeAnchorInCell(String anchorId, double x, double y, double z) {
+    anchorGrid.add(new AnchorData(anchorId, null, 0, x, y, z));
 
-              if (calculateDistance(x, y, z, ax, ay, az) < threshold) {
-                nearbyAnchors.add(anchorId);
-                Log.d("NearbyAnchors", "✅ Nearby Anchor Found: " + anchorId);
-              }
-            } catch (Exception e) {
-              Log.e("NearbyAnchors", "❌ Error parsing anchor data: " + e.getMessage());
+    Map<String, Object> position = new HashMap<>();
+    position.put("x", x);
+    position.put("y", y);
+    position.put("z", z);
+    FirebaseDatabase.getInstance().getReference(ROOT_ANCHOR_CELLS)
+            .child(anchorGrid.cellNameOf(x, y, z)).child(anchorId).setValue(position);
+  }
+
+  /**
+   * Deletes an anchor together with its cell index entry and every connection to and from it, in
+   * one update, and bumps the graph version once the database has applied it.
+   */
+  void deleteAnchor(String anchorId) {
+    Preconditions.checkNotNull(app, "Firebase App was null");
+    anchorGrid.remove(anchorId);
+
+    DatabaseReference rootRef = FirebaseDatabase.getInstance().getReference();
+    rootRef.child(ROOT_ANCHORS).child(anchorId).addListenerForSingleValueEvent(new ValueEventListener() {
+      @Override
+      public void onDataChange(@NonNull DataSnapshot anchor) {
+        rootRef.child(ROOT_ANCHOR_CONNECTIONS).child(anchorId).addListenerForSingleValueEvent(new ValueEventListener() {
+          @Override
+          public void onDataChange(@NonNull DataSnapshot connections) {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(ROOT_ANCHORS + "/" + anchorId, null);
+            AnchorData anchorData = parseAnchorPosition(anchor);
+            if (anchorData != null) {
+              updates.put(ROOT_ANCHOR_CELLS + "/"
+                      + anchorGrid.cellNameOf(anchorData.x, anchorData.y, anchorData.z)
+                      + "/" + anchorId, null);
             }
+            updates.put(ROOT_ANCHOR_CONNECTIONS + "/" + anchorId, null);
+            for (DataSnapshot neighbor : connections.getChildren()) {
+              updates.put(ROOT_ANCHOR_CONNECTIONS + "/" + neighbor.getKey() + "/" + anchorId, null);
+            }
+            rootRef.updateChildren(updates)
+                    .addOnSuccessListener(aVoid -> GraphStore.markGraphChanged())
+                    .addOnFailureListener(e -> Log.e(TAG, "Failed to delete anchor " + anchorId, e));
           }
-        } else {
-          Log.d("NearbyAnchors", "⚠️ No anchors found in Firebase.");
-        }
 
-        Log.d("NearbyAnchors", "📝 Nearby Anchors List: " + nearbyAnchors.toString());
+          @Override
+          public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Failed to read the connections of anchor " + anchorId, error.toException());
+          }
+        });
+      }
 
+      @Override
+      public void onCancelled(@NonNull DatabaseError error) {
+        Log.e(TAG, "Failed to read anchor " + anchorId, error.toException());
+      }
+    });
+  }
 
+  /**
+   * Anchors hosted before the cell index existed are only under {@code anchors}. The first time a
+   * client sees an out of date index it re-buckets every anchor once, in a single update.
+   */
+  private void ensureAnchorCells(DatabaseReference rootRef) {
+    rootRef.child(ROOT_ANCHOR_CELLS_VERSION).addListenerForSingleValueEvent(new ValueEventListener() {
+      @Override
+      public void onDataChange(@NonNull DataSnapshot versionSnapshot) {
+        Long version = versionSnapshot.getValue(Long.class);
+        if (version != null && version >= ANCHOR_CELLS_VERSION) {
+          return;
+        }
 
-        Log.e("LETS1", "NewAnchorId " + newAnchorId);
-        // ✅ Store nearby anchors in Firebase
-        updateAnchorConnections(newAnchorId, nearbyAnchors);
+        rootRef.child(ROOT_ANCHORS).addListenerForSingleValueEvent(new ValueEventListener() {
+          @Override
+          public void onDataChange(@NonNull DataSnapshot snapshot) {
+            Map<String, Object> updates = new HashMap<>();
+            for (DataSnapshot anchor : snapshot.getChildren()) {
+              AnchorData anchorData = parseAnchorPosition(anchor);
+              if (anchorData == null) continue;
+              anchorGrid.add(anchorData);
+
+              Map<String, Object> position = new HashMap<>();
+              position.put("x", anchorData.x);
+              position.put("y", anchorData.y);
+              position.put("z", anchorData.z);
+              updates.put(ROOT_ANCHOR_CELLS + "/"
+                      + anchorGrid.cellNameOf(anchorData.x, anchorData.y, anchorData.z)
+                      + "/" + anchorData.anchorId, position);
+            }
+            updates.put(ROOT_ANCHOR_CELLS_VERSION, ANCHOR_CELLS_VERSION);
+            rootRef.updateChildren(updates)
+                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Anchor cell index rebuilt"))
+                    .addOnFailureListener(e -> Log.e(TAG, "Failed to rebuild anchor cell index", e));
+          }
 
-        // 🔹 Return list via callback
-        callback.onNearbyAnchorsFound(nearbyAnchors);
+          @Override
+          public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Failed to read anchors for the cell index", error.toException());
+          }
+        });
       }
 
       @Override
       public void onCancelled(@NonNull DatabaseError error) {
-        Log.e("FirebaseError", "❌ Firebase Query Cancelled: " + error.getMessage());
+        Log.e(TAG, "Failed to read the anchor cell index version", error.toException());
       }
     });
   }
@@ -170,18 +315,43 @@ class FirebaseManager {
 
 
   public double calculateDistance(double x1, double y1, double z1, double x2, double y2, double z2) {
-    return Math.sqrt(Math.pow(x2 - x1, 2) + Math.pow(y2 - y1, 2) + Math.pow(z2 - z1, 2));
+    return Distances.euclidean(x1, y1, z1, x2, y2, z2);
   }
 
 
+  /**
+   * Connects {@code newAnchorId} to every anchor in {@code connectedAnchors}. The edges are queued
+   * on the edge batcher and written together with any other pending edges in one update.
+   */
   public void updateAnchorConnections(String newAnchorId, List<String> connectedAnchors) {
-    DatabaseReference anchorRef = FirebaseDatabase.getInstance().getReference("anchorConnections");
+    for (String anchorId : connectedAnchors) {
+      edgeWriter.connect(newAnchorId, anchorId);
+    }
+  }
 
+  /** Queues the bidirectional connection between two anchors. */
+  void connectAnchors(String anchorId, String otherAnchorId) {
+    edgeWriter.connect(anchorId, otherAnchorId);
+  }
 
-    for (String anchorId : connectedAnchors) {
-      // ✅ Store connections properly under each anchor
-      anchorRef.child(newAnchorId).child(anchorId).setValue(true);
-      anchorRef.child(anchorId).child(newAnchorId).setValue(true);
+  /**
+   * Writes the queued connection edges now instead of waiting for the batch timer. Called when the
+   * activity pauses or is destroyed, since a pending timer may never run after that.
+   */
+  void flushAnchorConnections() {
+    edgeWriter.flush();
+  }
+
+  /**
+   * Writes a batch of connection edges as one multi-path update, so both directions of every edge
+   * land atomically, and bumps the graph version once per batch after the database has stored it.
+   */
+  private static final class FirebaseEdgeBackend implements EdgeWriteBatcher.Backend {
+    @Override
+    public void write(Map<String, Object> updates) {
+      FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+          .addOnSuccessListener(aVoid -> GraphStore.markGraphChanged())
+          .addOnFailureListener(e -> Log.e(TAG, "Failed to write " + updates.size() / 2 + " anchor connections", e));
     }
   }
 
@@ -225,7 +395,7 @@ class FirebaseManager {
     Preconditions.checkNotNull(app, "Firebase App was null");
 
     FirebaseDatabase database = FirebaseDatabase.getInstance();
-    DatabaseReference ref = database.getReference("anchors").child(anchorId);
+    DatabaseReference ref = database.getReference(ROOT_ANCHORS).child(anchorId);
 
 
     // Store multiple anchor IDs in a list under the same room
@@ -233,6 +403,8 @@ class FirebaseManager {
     ref.setValue(anchor1)
         .addOnSuccessListener(aVoid -> Log.d("Anchor info", "Anchor data stored successfully!"))
         .addOnFailureListener(e -> Log.e("Anchor info", "Failed to store Anchor data", e));
+    storeAnchorInCell(anchorId, x, y, z);
+    GraphStore.markGraphChanged();
   }
 
   public void storeAnchorPosition(Long roomCode ,String cloudAnchorId, float x, float y, float z) {
@@ -265,6 +437,7 @@ class FirebaseManager {
     databaseRef.child(imageId).setValue(imageData)
             .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Image data saved successfully!"))
             .addOnFailureListener(e -> Log.e(TAG, "❌ Failed to save image data", e));
+    GraphStore.markGraphChanged();
   }
 
 
@@ -0,0 +1,104 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Debug;
+import android.util.Log;
+
+/**
+ * Debug-build check that the render loop stays allocation free. Wrap each frame in
+ * {@link #beginFrame()} / {@link #endFrame()}; once the warm-up frames have passed, any frame that
+ * allocates more than the budget on the GL thread is reported.
+ *
+ * <p>The budget is there for the objects ARCore's Java API creates itself (the {@code Frame}, one
+ * {@code Pose} per {@code getPose()} call, trackable collections); everything the app and the
+ * renderers use per frame is preallocated. In release builds both calls return immediately.
+ *
+ * <p>Counting uses the per-thread allocation counters of {@link Debug}, so it only sees the
+ * thread that calls {@link #beginFrame()}. Strict mode, which fails the frame instead of logging,
+ * is limited to debug builds.
+ */
+final class FrameAllocationMonitor {
+    private static final String TAG = "FrameAllocations";
+    // Lets lazily created buffers, pools and caches fill up before frames are checked.
+    private static final int WARM_UP_FRAMES = 120;
+    // Report at most once per this many frames so the log itself does not allocate every frame.
+    private static final int REPORT_INTERVAL_FRAMES = 300;
+
+    private final boolean enabled;
+    private final int budget;
+    private final boolean strict;
+    private long frames;
+    private long lastReportFrame = -REPORT_INTERVAL_FRAMES;
+
+    /**
+     * @param budget allocations a frame may make before it is reported
+     * @param strict throw an {@link AssertionError} instead of logging when a frame is over budget.
+     *     Only honoured in debug builds, so a release build never crashes on it.
+     */
+    FrameAllocationMonitor(Context context, int budget, boolean strict) {
+        this.enabled = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        this.budget = budget;
+        this.strict = strict && BuildConfig.DEBUG;
+        if (enabled) {
+            AllocCounters.start();
+        }
+    }
+
+    void beginFrame() {
+        if (!enabled) return;
+        AllocCounters.reset();
+    }
+
+    void endFrame() {
+        if (!enabled) return;
+        int count = AllocCounters.threadCount();
+        int bytes = AllocCounters.threadBytes();
+        if (++frames <= WARM_UP_FRAMES || count <= budget) return;
+        if (strict) {
+            throw new AssertionError("Frame " + frames + " allocated " + count + " objects ("
+                    + bytes + " bytes), budget is " + budget);
+        }
+        if (frames - lastReportFrame >= REPORT_INTERVAL_FRAMES) {
+            lastReportFrame = frames;
+            Log.w(TAG, "Frame " + frames + " allocated " + count + " objects (" + bytes
+                    + " bytes), budget is " + budget);
+        }
+    }
+
+    void release() {
+        if (enabled) {
+            AllocCounters.stop();
+        }
+    }
+
+    /**
+     * The allocation counters of {@link Debug}. They have been deprecated since API 23 but ART still
+     * implements them, and there is no replacement that counts per thread:
+     * {@code Debug.getRuntimeStat} only reports process-wide totals, which would include the
+     * allocations of the Firebase and graph worker threads.
+     */
+    @SuppressWarnings("deprecation")
+    private static final class AllocCounters {
+        static void start() {
+            Debug.startAllocCounting();
+        }
+
+        static void stop() {
+            Debug.stopAllocCounting();
+        }
+
+        static void reset() {
+            Debug.resetThreadAllocCount();
+            Debug.resetThreadAllocSize();
+        }
+
+        static int threadCount() {
+            return Debug.getThreadAllocCount();
+        }
+
+        static int threadBytes() {
+            return Debug.getThreadAllocSize();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import com.google.ar.core.Camera;
+import com.google.ar.core.Frame;
+import com.google.ar.core.LightEstimate;
+import com.google.ar.core.Pose;
+import com.google.ar.core.Session;
+import com.google.ar.core.exceptions.CameraNotAvailableException;
+
+/**
+ * Everything the draw stages need about the current ARCore frame, captured once right after
+ * {@link Session#update()}. Stages read from here instead of calling {@code update()} again, which
+ * would make ARCore process another camera frame and drop the one being drawn.
+ *
+ * <p>One instance is owned by a renderer and refilled every frame; only use it on the GL thread
+ * and only until the next {@link #update}.
+ */
+final class FrameContext {
+    static final float Z_NEAR = 0.1f;
+    static final float Z_FAR = 100.0f;
+
+    final float[] viewMatrix = new float[16];
+    final float[] projectionMatrix = new float[16];
+    /** Color correction of the light estimate, RGBA. */
+    final float[] colorCorrection = new float[4];
+
+    Frame frame;
+    Camera camera;
+    Pose cameraPose;
+    LightEstimate lightEstimate;
+
+    /** Advances the session by one frame and captures it. */
+    void update(Session session) throws CameraNotAvailableException {
+        frame = session.update();
+        camera = frame.getCamera();
+        cameraPose = camera.getPose();
+        camera.getViewMatrix(viewMatrix, 0);
+        camera.getProjectionMatrix(projectionMatrix, 0, Z_NEAR, Z_FAR);
+        lightEstimate = frame.getLightEstimate();
+        lightEstimate.getColorCorrection(colorCorrection, 0);
+    }
+}
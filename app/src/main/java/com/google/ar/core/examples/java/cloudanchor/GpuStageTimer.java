@@ -0,0 +1,108 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.util.Log;
+
+import com.google.ar.core.examples.java.navigation.FrameProfiler;
+
+import java.util.Arrays;
+
+/**
+ * GPU durations of render stages through {@code GL_EXT_disjoint_timer_query}. Each stage drawn
+ * between {@link #begin} and {@link #end} gets a {@code GL_TIME_ELAPSED_EXT} query; results are
+ * read {@value #FRAMES_IN_FLIGHT} frames later, when the GPU has finished them, and added to the
+ * {@link FrameProfiler}'s GPU histograms. Results that are still not available then are dropped
+ * rather than waited for, and a disjoint event (e.g. a GPU frequency change) drops the results of
+ * every frame in flight.
+ *
+ * <p>Needs a GLES 3 context with the extension; otherwise every call returns immediately. All
+ * methods must be called on the GL thread.
+ */
+final class GpuStageTimer {
+    private static final String TAG = "GpuStageTimer";
+    private static final String EXTENSION = "GL_EXT_disjoint_timer_query";
+    private static final int GL_TIME_ELAPSED_EXT = 0x88BF;
+    private static final int GL_GPU_DISJOINT_EXT = 0x8FBB;
+    private static final int FRAMES_IN_FLIGHT = 3;
+
+    private final int stageCount;
+    // Query ids and whether each was issued, slot-major: [frame slot][stage]
+    private final int[] queries;
+    private final boolean[] issued;
+    private final int[] scratch = new int[1];
+    private boolean enabled;
+    private boolean active;
+    private int slot;
+
+    GpuStageTimer(int stageCount) {
+        this.stageCount = stageCount;
+        this.queries = new int[FRAMES_IN_FLIGHT * stageCount];
+        this.issued = new boolean[FRAMES_IN_FLIGHT * stageCount];
+    }
+
+    /** Creates the queries if {@code wanted} and the context supports timer queries. */
+    void createOnGlThread(boolean wanted) {
+        Arrays.fill(issued, false);
+        active = false;
+        String version = GLES20.glGetString(GLES20.GL_VERSION);
+        String extensions = GLES20.glGetString(GLES20.GL_EXTENSIONS);
+        enabled = wanted
+                && version != null && version.startsWith("OpenGL ES 3")
+                && extensions != null && extensions.contains(EXTENSION);
+        if (!enabled) return;
+        GLES30.glGenQueries(queries.length, queries, 0);
+        // Reading the flag clears it, so stale disjoint events do not drop the first results
+        GLES20.glGetIntegerv(GL_GPU_DISJOINT_EXT, scratch, 0);
+        Log.i(TAG, "GPU timer queries enabled");
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Moves to the next frame: collects the results of the frame that last used this slot into
+     * {@code profiler}. Call once per frame before the first {@link #begin}.
+     */
+    void beginFrame(FrameProfiler profiler) {
+        if (!enabled) return;
+        slot = (slot + 1) % FRAMES_IN_FLIGHT;
+
+        GLES20.glGetIntegerv(GL_GPU_DISJOINT_EXT, scratch, 0);
+        if (scratch[0] != 0) {
+            Arrays.fill(issued, false);
+            return;
+        }
+        int base = slot * stageCount;
+        for (int stage = 0; stage < stageCount; stage++) {
+            if (!issued[base + stage]) continue;
+            issued[base + stage] = false;
+            int query = queries[base + stage];
+            GLES30.glGetQueryObjectuiv(query, GLES30.GL_QUERY_RESULT_AVAILABLE, scratch, 0);
+            if (scratch[0] == 0) continue;
+            GLES30.glGetQueryObjectuiv(query, GLES30.GL_QUERY_RESULT, scratch, 0);
+            // 32 bits of nanoseconds: stages up to ~4 s, unsigned
+            profiler.recordGpu(stage, scratch[0] & 0xFFFFFFFFL);
+        }
+    }
+
+    void begin(int stage) {
+        if (!enabled || active) return;
+        int index = slot * stageCount + stage;
+        GLES30.glBeginQuery(GL_TIME_ELAPSED_EXT, queries[index]);
+        issued[index] = true;
+        active = true;
+    }
+
+    void end() {
+        if (!active) return;
+        GLES30.glEndQuery(GL_TIME_ELAPSED_EXT);
+        active = false;
+    }
+
+    /** Ends a query left open by a stage that threw; only one can be active at a time. */
+    void endFrame() {
+        end();
+    }
+}
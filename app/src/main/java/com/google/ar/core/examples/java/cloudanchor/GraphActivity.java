@@ -5,10 +5,14 @@ import android.content.Intent;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.Typeface;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.GestureDetector;
 import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
@@ -18,17 +22,22 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
-import com.google.firebase.database.*;
+import com.google.ar.core.examples.java.navigation.GraphModel;
+import com.google.ar.core.examples.java.navigation.LandmarkNode;
+import com.google.ar.core.examples.java.navigation.NavLog;
+import com.google.ar.core.examples.java.navigation.PointGrid;
 
 import java.util.*;
 
 public class GraphActivity extends AppCompatActivity {
-    private DatabaseReference graphRef;
-    private Map<String, LandmarkNode> navigationGraph = new HashMap<>();
+    /** Tag of the graph view's drawing logs, sampled by {@link AndroidLogSink}. */
+    static final String DRAW_LOG_TAG = "GraphView";
+
     private GraphView graphView;
     private CloudAnchorActivity forpos;
     private String curr;
     private String destination;
+    private GraphStore.ModelCallback modelCallback;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -106,96 +115,94 @@ public class GraphActivity extends AppCompatActivity {
 
 
 
-    private void fetchNavigationGraph() {
-        graphRef = FirebaseDatabase.getInstance().getReference("navigationGraph");
+    @Override
+    protected void onDestroy() {
+        // The store holds pending callbacks, and with them this activity, until a model arrives
+        if (modelCallback != null) {
+            GraphStore.get().cancel(modelCallback);
+        }
+        super.onDestroy();
+    }
 
-        // Corrected: Using event listener instead of .get()
-        graphRef.addListenerForSingleValueEvent(new ValueEventListener() {
+    private void fetchNavigationGraph() {
+        // The landmark nodes were built from the memory-mapped graph file on GraphStore's
+        // background thread; the model is immutable, so the view can keep it as is.
+        modelCallback = new GraphStore.ModelCallback() {
             @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                if (!dataSnapshot.exists()) {
+            public void onModel(GraphModel model) {
+                Map<String, LandmarkNode> landmarks = model.landmarkNodes();
+                if (landmarks.isEmpty()) {
                     Log.e("GraphVisualization", "Navigation graph is empty!");
                     return;
                 }
 
-                Log.d("GraphVisualization", "Firebase graph exists!");
-
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    String landmarkId = snapshot.getKey();
-                    List<String> connectedLandmarks = new ArrayList<>();
-                    List<String> path = new ArrayList<>();
-
-                    if (snapshot.child("connectedLandmarks").exists()) {
-                        for (DataSnapshot child : snapshot.child("connectedLandmarks").getChildren()) {
-                            String value = child.getValue(String.class);
-                            if (value != null) {
-                                connectedLandmarks.add(value);
-                            }
-                        }
-                    }
-
-                    if (snapshot.child("path").exists()) {
-                        for (DataSnapshot child : snapshot.child("path").getChildren()) {
-                            String value = child.getValue(String.class);
-                            if (value != null) {
-                                path.add(value);
-                            }
-                        }
-                    }
-
-                    Log.d("GraphVisualization", "Loaded node: " + landmarkId +
-                            " | Connected: " + connectedLandmarks +
-                            " | Path: " + path);
-
-                    navigationGraph.put(landmarkId, new LandmarkNode(landmarkId, connectedLandmarks, path));
-                }
-
-                Log.d("GraphVisualization", "Total nodes loaded: " + navigationGraph.size());
+                Log.d("GraphVisualization", "Total nodes loaded: " + landmarks.size()
+                        + " (graph version " + model.version() + ")");
 
-                runOnUiThread(() -> {
-                    graphView.setGraph(navigationGraph);
-                    graphView.invalidate();
-                });
+                graphView.setGraph(landmarks);
             }
 
             @Override
-            public void onCancelled(DatabaseError databaseError) {
-                Log.e("GraphVisualization", "Failed to fetch navigation graph", databaseError.toException());
-                runOnUiThread(() ->
-                        Toast.makeText(GraphActivity.this, "Failed to load graph. Check internet.", Toast.LENGTH_LONG).show()
-                );
+            public void onError() {
+                Log.e("GraphVisualization", "Navigation graph could not be loaded");
+                Toast.makeText(GraphActivity.this, "Failed to load graph. Check internet.", Toast.LENGTH_LONG).show();
             }
-        });
-    }
-
-    public static class LandmarkNode {
-        public String landmarkId;
-        public List<String> connectedLandmarks;
-        public List<String> path;
-
-        public LandmarkNode(String landmarkId, List<String> connections, List<String> paths) {
-            this.landmarkId = landmarkId;
-            this.connectedLandmarks = connections;
-            this.path = paths;
-        }
+        };
+        GraphStore.get().loadModel(modelCallback);
     }
 
-    // Custom View for Drawing the Graph
+    /**
+     * Draws the landmark graph with pan (drag), zoom (pinch) and double tap to fit it again.
+     *
+     * <p>Nodes are laid out on a square grid in world coordinates once per graph and kept in
+     * primitive arrays. Edges and stored paths never change with the viewport, so they are
+     * recorded once into {@link #edgeLayer}, a {@link Picture} in world coordinates, and replayed
+     * under the view transform. Nodes and labels are drawn per frame, but only the ones a
+     * {@link PointGrid} query returns for the visible rectangle; labels are skipped once they
+     * are too small to read.
+     */
     private class GraphView extends View {
-        private Paint nodePaint, textPaint, linePaint;
-        private Map<String, Float[]> nodePositions = new HashMap<>();
-
-        public GraphView(Context context) {
+        // World units between neighbouring nodes of the layout grid
+        private static final float NODE_SPACING = 300f;
+        private static final float NODE_RADIUS = 40f;
+        private static final float LABEL_OFFSET = 50f;
+        private static final float ARROW_SIZE = 80f;
+        // Below this zoom a label would be less than 8px high
+        private static final float MIN_LABEL_SCALE = 8f / 40f;
+        private static final float MAX_SCALE = 4f;
+        // Zooming out stops at this fraction of the scale that fits the whole graph
+        private static final float MIN_FIT_FRACTION = 0.5f;
+
+        private final Paint nodePaint;
+        private final Paint textPaint;
+        private final Paint linePaint;
+        private final ScaleGestureDetector scaleDetector;
+        private final GestureDetector panDetector;
+
+        // Node i of the current graph: landmark id and layout position
+        private String[] nodeIds = new String[0];
+        private float[] nodeX = new float[0];
+        private float[] nodeY = new float[0];
+        private float worldWidth;
+        private float worldHeight;
+        private PointGrid nodeGrid = new PointGrid(nodeX, nodeY, 0, NODE_SPACING);
+        private int[] visibleNodes = new int[0];
+        private Picture edgeLayer;
+
+        // screen = world * scale + offset
+        private float scale = 1f;
+        private float minScale = 1f;
+        private float offsetX;
+        private float offsetY;
+        private boolean fitPending = true;
+
+        GraphView(Context context) {
             super(context);
-            initPaints();
-        }
-
-        private void initPaints() {
-            nodePaint = new Paint();
+            nodePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
             nodePaint.setColor(Color.BLUE);
             nodePaint.setStyle(Paint.Style.FILL);
 
-            textPaint = new Paint();
+            textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
             textPaint.setColor(Color.WHITE);
             textPaint.setTextSize(40f);
             textPaint.setTextAlign(Paint.Align.CENTER);
@@ -203,111 +210,207 @@ public class GraphActivity extends AppCompatActivity {
             linePaint = new Paint();
             linePaint.setColor(Color.RED);
             linePaint.setStrokeWidth(5f);
+
+            scaleDetector = new ScaleGestureDetector(context,
+                    new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                        @Override
+                        public boolean onScale(ScaleGestureDetector detector) {
+                            zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                            return true;
+                        }
+                    });
+            panDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+                @Override
+                public boolean onDown(MotionEvent e) {
+                    return true;
+                }
+
+                @Override
+                public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                    // A pinch moves its own focus point
+                    if (scaleDetector.isInProgress()) return false;
+                    offsetX -= distanceX;
+                    offsetY -= distanceY;
+                    invalidate();
+                    return true;
+                }
+
+                @Override
+                public boolean onDoubleTap(MotionEvent e) {
+                    fitPending = true;
+                    invalidate();
+                    return true;
+                }
+            });
         }
 
+        /** Lays out {@code graph} and records its edges; only called when the graph changes. */
         public void setGraph(Map<String, LandmarkNode> graph) {
-            navigationGraph = graph;
-            generateNodePositions();
+            layOut(graph);
+            edgeLayer = recordEdges(graph);
+            fitPending = true;
             invalidate();
         }
 
-        @Override
-        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-            super.onSizeChanged(w, h, oldw, oldh);
-            generateNodePositions();
-        }
-
-        private void generateNodePositions() {
-            int width = getWidth();
-            int height = getHeight();
-            if (width == 0 || height == 0) return;
-
-            int totalNodes = navigationGraph.size();
-            int cols = (int) Math.ceil(Math.sqrt(totalNodes));
-            int rows = (int) Math.ceil((double) totalNodes / cols);
-            int nodeSpacingX = width / (cols + 1);
-            int nodeSpacingY = height / (rows + 1);
-
-            List<String> landmarks = new ArrayList<>(navigationGraph.keySet());
-            int index = 0;
-
-            for (int row = 0; row < rows; row++) {
-                for (int col = 0; col < cols; col++) {
-                    if (index >= landmarks.size()) break;
-
-                    float x = (col + 1) * nodeSpacingX;
-                    float y = (row + 1) * nodeSpacingY;
-
-                    nodePositions.put(landmarks.get(index), new Float[]{x, y});
-                    index++;
-                }
+        /** Places the nodes on a square grid, row by row in the graph's iteration order. */
+        private void layOut(Map<String, LandmarkNode> graph) {
+            int count = graph.size();
+            int columns = Math.max(1, (int) Math.ceil(Math.sqrt(count)));
+            int rows = Math.max(1, (count + columns - 1) / columns);
+            nodeIds = new String[count];
+            nodeX = new float[count];
+            nodeY = new float[count];
+            int i = 0;
+            for (String landmarkId : graph.keySet()) {
+                nodeIds[i] = landmarkId;
+                nodeX[i] = (i % columns + 1) * NODE_SPACING;
+                nodeY[i] = (i / columns + 1) * NODE_SPACING;
+                i++;
             }
+            worldWidth = (columns + 1) * NODE_SPACING;
+            worldHeight = (rows + 1) * NODE_SPACING;
+            nodeGrid = new PointGrid(nodeX, nodeY, count, 2 * NODE_SPACING);
+            visibleNodes = new int[count];
         }
 
+        /**
+         * Records every connection and stored path segment, with its arrowhead, as one
+         * {@code drawLines} call in world coordinates.
+         */
+        private Picture recordEdges(Map<String, LandmarkNode> graph) {
+            long start = System.nanoTime();
+            Map<String, Integer> indexOf = new HashMap<>(nodeIds.length * 2);
+            for (int i = 0; i < nodeIds.length; i++) {
+                indexOf.put(nodeIds[i], i);
+            }
 
-        @Override
-        protected void onDraw(Canvas canvas) {
-            super.onDraw(canvas);
-            if (navigationGraph.isEmpty()) return;
-
-            for (Map.Entry<String, LandmarkNode> entry : navigationGraph.entrySet()) {
-                String landmarkId = entry.getKey();
+            // Three segments (shaft and two head strokes) of four floats per edge
+            float[] lines = new float[64];
+            int used = 0;
+            for (Map.Entry<String, LandmarkNode> entry : graph.entrySet()) {
+                Integer from = indexOf.get(entry.getKey());
                 LandmarkNode node = entry.getValue();
-                Float[] startPos = nodePositions.get(landmarkId);
-
-                if (startPos == null) continue;
-
-                for (String connectedLandmark : node.connectedLandmarks) {
-                    Float[] endPos = nodePositions.get(connectedLandmark);
-                    if (endPos != null) {
-                        drawArrow(canvas, startPos[0], startPos[1], endPos[0], endPos[1]);
+                if (from != null && node.connectedLandmarks != null) {
+                    for (String connected : node.connectedLandmarks) {
+                        Integer to = indexOf.get(connected);
+                        if (to == null) continue;
+                        lines = ensureCapacity(lines, used + 12);
+                        used = addArrow(lines, used, nodeX[from], nodeY[from], nodeX[to], nodeY[to]);
                     }
                 }
-            }
-
-            for (Map.Entry<String, LandmarkNode> entry : navigationGraph.entrySet()) {
-                String landmarkId = entry.getKey();
-                LandmarkNode node = entry.getValue();
                 List<String> path = node.path;
-
+                if (path == null) continue;
                 for (int i = 0; i < path.size() - 1; i++) {
-                    Float[] anchorPos1 = nodePositions.get(path.get(i));
-                    Float[] anchorPos2 = nodePositions.get(path.get(i + 1));
-
-                    if (anchorPos1 != null && anchorPos2 != null) {
-                        drawArrow(canvas, anchorPos1[0], anchorPos1[1], anchorPos2[0], anchorPos2[1]);
-                    }
+                    Integer a = indexOf.get(path.get(i));
+                    Integer b = indexOf.get(path.get(i + 1));
+                    if (a == null || b == null) continue;
+                    lines = ensureCapacity(lines, used + 12);
+                    used = addArrow(lines, used, nodeX[a], nodeY[a], nodeX[b], nodeY[b]);
                 }
             }
 
-            for (Map.Entry<String, Float[]> entry : nodePositions.entrySet()) {
-                Float[] pos = entry.getValue();
-                canvas.drawCircle(pos[0], pos[1], 40, nodePaint);
-                canvas.drawText(entry.getKey(), pos[0], pos[1] - 50, textPaint);
+            Picture picture = new Picture();
+            Canvas canvas = picture.beginRecording(
+                    (int) Math.ceil(worldWidth), (int) Math.ceil(worldHeight));
+            canvas.drawLines(lines, 0, used, linePaint);
+            picture.endRecording();
+            if (NavLog.shouldLog(NavLog.DEBUG, DRAW_LOG_TAG)) {
+                NavLog.emit(NavLog.DEBUG, DRAW_LOG_TAG, "Recorded " + used / 12 + " edges of "
+                        + nodeIds.length + " nodes in " + (System.nanoTime() - start) / 1_000_000 + "ms", null);
             }
+            return picture;
         }
 
-        private void drawArrow(Canvas canvas, float startX, float startY, float endX, float endY) {
-            canvas.drawLine(startX, startY, endX, endY, linePaint);
+        private float[] ensureCapacity(float[] lines, int needed) {
+            return needed <= lines.length ? lines : Arrays.copyOf(lines, Math.max(needed, lines.length * 2));
+        }
 
-            float deltaX = endX - startX;
-            float deltaY = endY - startY;
-            float angle = (float) Math.atan2(deltaY, deltaX);
-            float arrowSize = 80;
+        /** Appends the shaft and head of an arrow from start to end; returns the new length. */
+        private int addArrow(float[] lines, int at, float startX, float startY, float endX, float endY) {
+            double angle = Math.atan2(endY - startY, endX - startX);
+            float headX1 = endX - ARROW_SIZE * (float) Math.cos(angle - Math.PI / 6);
+            float headY1 = endY - ARROW_SIZE * (float) Math.sin(angle - Math.PI / 6);
+            float headX2 = endX - ARROW_SIZE * (float) Math.cos(angle + Math.PI / 6);
+            float headY2 = endY - ARROW_SIZE * (float) Math.sin(angle + Math.PI / 6);
+            lines[at++] = startX;
+            lines[at++] = startY;
+            lines[at++] = endX;
+            lines[at++] = endY;
+            lines[at++] = endX;
+            lines[at++] = endY;
+            lines[at++] = headX1;
+            lines[at++] = headY1;
+            lines[at++] = endX;
+            lines[at++] = endY;
+            lines[at++] = headX2;
+            lines[at++] = headY2;
+            return at;
+        }
 
-            float arrowX1 = endX - arrowSize * (float) Math.cos(angle - Math.PI / 6);
-            float arrowY1 = endY - arrowSize * (float) Math.sin(angle - Math.PI / 6);
+        @Override
+        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+            super.onSizeChanged(w, h, oldw, oldh);
+            fitPending = true;
+        }
 
-            float arrowX2 = endX - arrowSize * (float) Math.cos(angle + Math.PI / 6);
-            float arrowY2 = endY - arrowSize * (float) Math.sin(angle + Math.PI / 6);
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            boolean handled = scaleDetector.onTouchEvent(event);
+            handled |= panDetector.onTouchEvent(event);
+            return handled || super.onTouchEvent(event);
+        }
 
-            Log.d("GraphView", "Arrow from (" + startX + "," + startY + ") to (" + endX + "," + endY + ")");
-            Log.d("GraphView", "Arrowhead points: (" + arrowX1 + "," + arrowY1 + ") and (" + arrowX2 + "," + arrowY2 + ")");
+        /** Scales around the focus point, so the world point under the fingers stays there. */
+        private void zoomBy(float factor, float focusX, float focusY) {
+            float newScale = Math.max(minScale, Math.min(MAX_SCALE, scale * factor));
+            offsetX = focusX - (focusX - offsetX) * (newScale / scale);
+            offsetY = focusY - (focusY - offsetY) * (newScale / scale);
+            scale = newScale;
+            invalidate();
+        }
 
-            canvas.drawLine(endX, endY, arrowX1, arrowY1, linePaint);
-            canvas.drawLine(endX, endY, arrowX2, arrowY2, linePaint);
+        /** Fits the whole graph into the view and centers it. */
+        private void fit() {
+            int width = getWidth();
+            int height = getHeight();
+            if (width == 0 || height == 0 || worldWidth == 0) return;
+            float fitScale = Math.min(width / worldWidth, height / worldHeight);
+            minScale = Math.min(fitScale * MIN_FIT_FRACTION, MAX_SCALE);
+            scale = Math.min(fitScale, MAX_SCALE);
+            offsetX = (width - worldWidth * scale) / 2;
+            offsetY = (height - worldHeight * scale) / 2;
+            fitPending = false;
         }
-    }
 
+        @Override
+        protected void onDraw(Canvas canvas) {
+            super.onDraw(canvas);
+            if (nodeIds.length == 0) return;
+            if (fitPending) fit();
+
+            canvas.save();
+            canvas.translate(offsetX, offsetY);
+            canvas.scale(scale, scale);
+            if (edgeLayer != null) {
+                canvas.drawPicture(edgeLayer);
+            }
 
+            // Visible world rectangle, grown by what a node and its label reach beyond its center
+            float margin = NODE_RADIUS + LABEL_OFFSET + textPaint.getTextSize();
+            float left = -offsetX / scale - margin;
+            float top = -offsetY / scale - margin;
+            float right = (getWidth() - offsetX) / scale + margin;
+            float bottom = (getHeight() - offsetY) / scale + margin;
+            int visible = nodeGrid.query(left, top, right, bottom, visibleNodes);
+            boolean labels = scale >= MIN_LABEL_SCALE;
+            for (int k = 0; k < visible; k++) {
+                int i = visibleNodes[k];
+                canvas.drawCircle(nodeX[i], nodeY[i], NODE_RADIUS, nodePaint);
+                if (labels) {
+                    canvas.drawText(nodeIds[i], nodeX[i], nodeY[i] - LABEL_OFFSET, textPaint);
+                }
+            }
+            canvas.restore();
+        }
+    }
 }
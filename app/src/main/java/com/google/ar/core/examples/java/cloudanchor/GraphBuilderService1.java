@@ -13,6 +13,9 @@ public class GraphBuilderService1 extends Service {
     @Override
     public void onCreate() {
         super.onCreate();
+        // Start loading the graph now, so the first request finds it already loaded.
+        GraphStore.get();
+        graphBuilder = new GraphBuilder1(this);
     }
 
     @Override
@@ -23,7 +26,6 @@ public class GraphBuilderService1 extends Service {
             String destinationLocation = intent.getStringExtra("DESTINATION_LOCATION");
 
             Log.d("A** graphbuilderservice", "Received: " + currentLocation + " → " + destinationLocation);
-            graphBuilder = new GraphBuilder1(this);
             Log.e("Cunt", "Entered GraphBuilderService");
             graphBuilder.startandend(currentLocation, destinationLocation);
             graphBuilder.buildGraph();
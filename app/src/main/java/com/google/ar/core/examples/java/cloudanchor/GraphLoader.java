@@ -0,0 +1,176 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.ar.core.examples.java.navigation.AnchorData;
+import com.google.ar.core.examples.java.navigation.DetectedImage;
+import com.google.ar.core.examples.java.navigation.GraphSnapshot;
+import com.google.ar.core.examples.java.navigation.MetricsRegistry;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Downloads the graph inputs ({@code anchors}, {@code detected_images}, {@code anchorConnections})
+ * and turns them into a {@link GraphSnapshot}. The three reads do not depend on each other, so they
+ * are all issued at once and joined; a load takes about as long as the slowest read instead of
+ * the sum of all three. Each node is read exactly once.
+ *
+ * <p>Every load records the read time of each node, the parse time and the total in the
+ * {@link MetricsRegistry} ({@code graph.read.*.ms}, {@code graph.parse.ms}, {@code graph.load.ms}).
+ */
+final class GraphLoader {
+    private static final String TAG = "GraphLoader";
+
+    /** Wall time of each stage of one load, in milliseconds since the load started. */
+    static final class Timings {
+        long anchorsMs;
+        long detectedImagesMs;
+        long anchorConnectionsMs;
+        /** Time spent turning the three nodes into a snapshot, after the last read arrived. */
+        long parseMs;
+        long totalMs;
+
+        @Override
+        public String toString() {
+            return "anchors=" + anchorsMs + "ms detected_images=" + detectedImagesMs
+                    + "ms anchorConnections=" + anchorConnectionsMs + "ms parse=" + parseMs
+                    + "ms total=" + totalMs + "ms";
+        }
+    }
+
+    private final Executor parseExecutor;
+    private volatile Timings lastTimings;
+
+    /** @param parseExecutor where the snapshots are parsed; keep it off the main thread */
+    GraphLoader(Executor parseExecutor) {
+        this.parseExecutor = parseExecutor;
+    }
+
+    /** Timings of the last completed load, or null. */
+    Timings lastTimings() {
+        return lastTimings;
+    }
+
+    /**
+     * Reads the graph inputs and completes with a snapshot stamped with {@code version}, or
+     * exceptionally with the {@link com.google.firebase.database.DatabaseException} of the first
+     * read that failed.
+     */
+    CompletableFuture<GraphSnapshot> load(long version) {
+        DatabaseReference root = FirebaseDatabase.getInstance().getReference();
+        Timings timings = new Timings();
+        long start = SystemClock.uptimeMillis();
+
+        CompletableFuture<DataSnapshot> anchors = read(root.child("anchors"))
+                .whenComplete((node, e) -> timings.anchorsMs = SystemClock.uptimeMillis() - start);
+        CompletableFuture<DataSnapshot> images = read(root.child("detected_images"))
+                .whenComplete((node, e) -> timings.detectedImagesMs = SystemClock.uptimeMillis() - start);
+        CompletableFuture<DataSnapshot> connections = read(root.child("anchorConnections"))
+                .whenComplete((node, e) -> timings.anchorConnectionsMs = SystemClock.uptimeMillis() - start);
+
+        return CompletableFuture.allOf(anchors, images, connections)
+                .thenApplyAsync(ignored -> {
+                    long parseStart = SystemClock.uptimeMillis();
+                    GraphSnapshot snapshot = parse(version, anchors.join(), images.join(), connections.join());
+                    long end = SystemClock.uptimeMillis();
+                    timings.parseMs = end - parseStart;
+                    timings.totalMs = end - start;
+                    lastTimings = timings;
+                    record(timings);
+                    Log.d(TAG, "Loaded graph v" + version + ": " + timings);
+                    return snapshot;
+                }, parseExecutor)
+                .whenComplete((snapshot, error) -> {
+                    if (error != null) MetricsRegistry.get().counter("graph.load.failures").inc();
+                });
+    }
+
+    private static void record(Timings timings) {
+        MetricsRegistry metrics = MetricsRegistry.get();
+        metrics.counter("graph.loads").inc();
+        metrics.histogram("graph.read.anchors.ms").record(timings.anchorsMs);
+        metrics.histogram("graph.read.detected_images.ms").record(timings.detectedImagesMs);
+        metrics.histogram("graph.read.anchorConnections.ms").record(timings.anchorConnectionsMs);
+        metrics.histogram("graph.parse.ms").record(timings.parseMs);
+        metrics.histogram("graph.load.ms").record(timings.totalMs);
+    }
+
+    /** Single-value read of {@code ref} as a future. */
+    static CompletableFuture<DataSnapshot> read(DatabaseReference ref) {
+        CompletableFuture<DataSnapshot> future = new CompletableFuture<>();
+        ref.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                future.complete(dataSnapshot);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                future.completeExceptionally(error.toException());
+            }
+        });
+        return future;
+    }
+
+    private static GraphSnapshot parse(long version, DataSnapshot anchorsNode,
+                                       DataSnapshot imagesNode, DataSnapshot connectionsNode) {
+        Map<String, AnchorData> anchors = new LinkedHashMap<>();
+        for (DataSnapshot anchor : anchorsNode.getChildren()) {
+            AnchorData data = parseAnchor(anchor);
+            if (data != null) anchors.put(data.anchorId, data);
+        }
+
+        Map<String, DetectedImage> images = new LinkedHashMap<>();
+        for (DataSnapshot image : imagesNode.getChildren()) {
+            images.put(image.getKey(), parseDetectedImage(image));
+        }
+
+        Map<String, List<String>> connections = new LinkedHashMap<>();
+        for (DataSnapshot anchor : connectionsNode.getChildren()) {
+            connections.put(anchor.getKey(), parseNeighbors(anchor));
+        }
+
+        return new GraphSnapshot(version, anchors, connections, images);
+    }
+
+    /** Parses one child of {@code anchors}; null if it has no position. */
+    static AnchorData parseAnchor(DataSnapshot anchor) {
+        Double x = anchor.child("x").getValue(Double.class);
+        Double y = anchor.child("y").getValue(Double.class);
+        Double z = anchor.child("z").getValue(Double.class);
+        if (x == null || y == null || z == null) return null;
+        Long roomCode = anchor.child("roomCode").getValue(Long.class);
+        return new AnchorData(anchor.getKey(), anchor.child("cloudAnchorid").getValue(String.class),
+                roomCode != null ? roomCode.intValue() : 0, x, y, z);
+    }
+
+    /** Parses one child of {@code detected_images}. */
+    static DetectedImage parseDetectedImage(DataSnapshot image) {
+        return new DetectedImage(image.getKey(),
+                image.child("imageId").getValue(String.class),
+                image.child("cloudAnchorId").getValue(String.class),
+                image.child("matchedAnchorId").getValue(String.class));
+    }
+
+    /** Parses one child of {@code anchorConnections} into its neighbour anchor ids. */
+    static List<String> parseNeighbors(DataSnapshot anchor) {
+        List<String> neighbors = new ArrayList<>();
+        for (DataSnapshot neighbor : anchor.getChildren()) {
+            neighbors.add(neighbor.getKey());
+        }
+        return neighbors;
+    }
+}
@@ -0,0 +1,545 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.ar.core.examples.java.navigation.AStarPathfinder;
+import com.google.ar.core.examples.java.navigation.AltLandmarks;
+import com.google.ar.core.examples.java.navigation.GraphModel;
+import com.google.ar.core.examples.java.navigation.GraphSnapshot;
+import com.google.ar.core.examples.java.navigation.GraphSnapshotCodec;
+import com.google.ar.core.examples.java.navigation.IncrementalLandmarkGraph;
+import com.google.ar.core.examples.java.navigation.JsonMetricsExporter;
+import com.google.ar.core.examples.java.navigation.LandmarkNode;
+import com.google.ar.core.examples.java.navigation.MetricsExporter;
+import com.google.ar.core.examples.java.navigation.MetricsRegistry;
+import com.google.ar.core.examples.java.navigation.NavigationGraph;
+import com.google.ar.core.examples.java.navigation.NavigationGraphFile;
+import com.google.ar.core.examples.java.navigation.RouteCache;
+import com.google.ar.core.examples.java.navigation.RouteTable;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device copy of the navigation graph data, shared by routing ({@code CloudAnchorActivity}) and
+ * the landmark graph builder ({@link GraphBuilder1}).
+ *
+ * <p>The last {@link GraphSnapshot} is kept in memory and in a binary file, so a route request is a
+ * local read. Next to it the store keeps the snapshot compiled into a {@link NavigationGraphFile}
+ * (anchor graph, CSR edges and landmark paths), which is memory-mapped rather than parsed, and a
+ * {@link RouteTable} with the precomputed routes to every landmark. Both are derived from the
+ * snapshot on the background thread and stored with its version, so when an edge changes the
+ * version bump makes the next refresh rebuild them. Routes to other anchors are searched with A*,
+ * guided by {@link AltLandmarks} distances that are recomputed in memory with the route table.
+ *
+ * <p>The three database nodes are not downloaded again for every version. A {@link LiveGraph}
+ * keeps a copy of them in sync through child events and applies every change to an
+ * {@link IncrementalLandmarkGraph} as it arrives, which marks only the landmark trees the change
+ * can affect as dirty. The writes a version bump stands for reach this client before the bump
+ * does, so their events have been applied when a refresh takes its snapshot from that copy, and
+ * the refresh only re-runs the dirty landmark searches. The anchor graph, route table and ALT
+ * distances cover the whole graph and are still rebuilt for every version. If the database
+ * refuses the child listeners, every version is downloaded through {@link GraphLoader} and
+ * diffed into the landmark graph instead.
+ *
+ * <p>All of it is assembled into one immutable {@link GraphModel} on the background thread and
+ * published through a single volatile reference. {@link #model()} is a lock-free read from any
+ * thread, and whoever holds a model sees one consistent graph version until they ask again.
+ *
+ * <p>The database holds a {@code graphVersion} counter that every writer of anchors, connections
+ * or detected images bumps through {@link #markGraphChanged()}; the store listens to that single
+ * value and only rebuilds the graph when it differs from the local version.
+ *
+ * <p>Build times ({@code graph.*.ms}), the size of the current graph and the route cache's hit
+ * rate go into the {@link MetricsRegistry}, which {@link #exportMetrics()} writes to
+ * {@value #METRICS_FILE} after every refresh.
+ *
+ * <p>All callbacks are delivered on the main thread; child events, file IO and snapshot parsing
+ * are handled on a background thread.
+ */
+final class GraphStore {
+    private static final String TAG = "GraphStore";
+    private static final String SNAPSHOT_FILE = "graph_snapshot.bin";
+    private static final String GRAPH_FILE = "navigation_graph.bin";
+    private static final String ROUTE_TABLE_FILE = "route_table.bin";
+    private static final String METRICS_FILE = "graph_metrics.json";
+    // Named landmarks first, topped up with far-apart anchors
+    private static final int ALT_LANDMARK_COUNT = 16;
+    private static final int ROUTE_CACHE_SIZE = 64;
+
+    static final String ROOT_GRAPH_VERSION = "graphVersion";
+
+    interface SnapshotCallback {
+        void onSnapshot(GraphSnapshot snapshot);
+    }
+
+    interface ModelCallback {
+        void onModel(GraphModel model);
+
+        /**
+         * Called instead of {@link #onModel} when the graph could not be downloaded or compiled.
+         * The callback is dropped; load again to retry.
+         */
+        void onError();
+    }
+
+    private static GraphStore instance;
+
+    private final File snapshotFile;
+    private final File graphFile;
+    private final File routeTableFile;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final GraphLoader loader = new GraphLoader(io);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<SnapshotCallback> pending = new ArrayList<>();
+    private final List<ModelCallback> pendingModel = new ArrayList<>();
+    private final RouteCache routeCache = new RouteCache(ROUTE_CACHE_SIZE);
+    // Only touched on the IO thread; fed by live's child events, or by downloads once they failed
+    private final IncrementalLandmarkGraph landmarkGraph = new IncrementalLandmarkGraph();
+    private final LiveGraph live;
+    private final MetricsRegistry metrics = MetricsRegistry.get();
+    private final MetricsExporter metricsExporter;
+
+    // Written on the main thread only, read from any thread
+    private volatile GraphModel model;
+    // Only touched on the main thread
+    private AStarPathfinder pathfinder;
+    private Long serverVersion;
+    private boolean diskLoaded;
+    private boolean refreshing;
+
+    static synchronized GraphStore get() {
+        if (instance == null) {
+            instance = new GraphStore(MyApplicationContextProvider.getContext());
+        }
+        return instance;
+    }
+
+    private GraphStore(Context context) {
+        snapshotFile = new File(context.getFilesDir(), SNAPSHOT_FILE);
+        graphFile = new File(context.getFilesDir(), GRAPH_FILE);
+        routeTableFile = new File(context.getFilesDir(), ROUTE_TABLE_FILE);
+        metricsExporter = new JsonMetricsExporter(new File(context.getFilesDir(), METRICS_FILE));
+        metrics.gauge("route.cache.hits", routeCache::hits);
+        metrics.gauge("route.cache.misses", routeCache::misses);
+        metrics.gauge("route.cache.size", routeCache::size);
+        metrics.gauge("route.cache.hit_rate", () -> {
+            long hits = routeCache.hits();
+            long lookups = hits + routeCache.misses();
+            return lookups == 0 ? Double.NaN : (double) hits / lookups;
+        });
+        io.execute(this::loadFromDisk);
+        live = new LiveGraph(io, landmarkGraph);
+        FirebaseDatabase.getInstance().getReference(ROOT_GRAPH_VERSION)
+                .addValueEventListener(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                        Long version = dataSnapshot.getValue(Long.class);
+                        serverVersion = version != null ? version : 0L;
+                        maybeRefresh();
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(TAG, "Graph version listener cancelled", error.toException());
+                    }
+                });
+    }
+
+    /**
+     * Passes the current snapshot to {@code callback}: immediately if one is loaded, otherwise as
+     * soon as it has been read from disk or downloaded.
+     */
+    void load(SnapshotCallback callback) {
+        GraphModel current = model;
+        if (current != null) {
+            callback.onSnapshot(current.snapshot());
+        } else {
+            pending.add(callback);
+        }
+    }
+
+    /**
+     * Like {@link #load}, for a model whose graph compiled. Call on the main thread; the model may
+     * then be handed to any thread. If the current graph did not compile and no refresh is under
+     * way, {@link ModelCallback#onError} is called right away. Callers that go away before the
+     * model arrives must {@link #cancel} the callback.
+     */
+    void loadModel(ModelCallback callback) {
+        GraphModel current = model;
+        if (current != null && current.isCompiled()) {
+            callback.onModel(current);
+        } else if (current != null && !refreshing) {
+            callback.onError();
+        } else {
+            pendingModel.add(callback);
+        }
+    }
+
+    /** Drops a callback passed to {@link #loadModel} that has not been called yet. */
+    void cancel(ModelCallback callback) {
+        pendingModel.remove(callback);
+    }
+
+    /** The current model, or null if none has been loaded yet. Safe to call from any thread. */
+    GraphModel model() {
+        return model;
+    }
+
+    /**
+     * A* search over {@code model}'s graph and landmarks. The one of the published model is created
+     * when it is published and reused by every query, so its scratch buffers are allocated once per
+     * graph version. Main thread only; null if the model did not compile.
+     */
+    AStarPathfinder pathfinder(GraphModel model) {
+        if (!model.isCompiled()) return null;
+        if (pathfinder != null && pathfinder.graph() == model.navigationGraph()) return pathfinder;
+        // A model older than the published one; rare enough not to be cached.
+        return new AStarPathfinder(model.navigationGraph(), model.altLandmarks());
+    }
+
+    /**
+     * Recent routes, keyed by the graph version they were computed on. Shared by every route
+     * search of the app.
+     */
+    RouteCache routeCache() {
+        return routeCache;
+    }
+
+    /** Writes the metrics registry to the metrics file, on the background thread. */
+    void exportMetrics() {
+        io.execute(() -> {
+            try {
+                metricsExporter.export(metrics);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to export metrics", e);
+            }
+        });
+    }
+
+    /**
+     * Bumps the server graph version so every store, this one included, refreshes its snapshot.
+     * Call after issuing the writes; the database applies one client's writes in order, so the new
+     * version is never visible before the data it stands for.
+     */
+    static void markGraphChanged() {
+        FirebaseDatabase.getInstance().getReference(ROOT_GRAPH_VERSION).runTransaction(
+                new Transaction.Handler() {
+                    @NonNull
+                    @Override
+                    public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                        Long version = currentData.getValue(Long.class);
+                        currentData.setValue(version != null ? version + 1 : 1L);
+                        return Transaction.success(currentData);
+                    }
+
+                    @Override
+                    public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                        if (!committed) {
+                            Log.e(TAG, "Failed to bump graph version", error != null ? error.toException() : null);
+                        }
+                    }
+                });
+    }
+
+    private void loadFromDisk() {
+        GraphModel result = null;
+        try {
+            GraphSnapshot loaded = null;
+            if (snapshotFile.exists()) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(snapshotFile))) {
+                    loaded = GraphSnapshotCodec.read(in);
+                } catch (IOException e) {
+                    Log.w(TAG, "Discarding unreadable graph snapshot", e);
+                    snapshotFile.delete();
+                }
+            }
+            if (loaded != null) {
+                NavigationGraphFile compiled = mapGraph();
+                if (compiled == null || compiled.version() != loaded.version()) {
+                    // The landmark graph only follows the database, so the paths are built in full.
+                    compiled = compileGraph(loaded, null);
+                }
+                result = buildModel(loaded, compiled);
+            }
+        } catch (RuntimeException e) {
+            // Whatever the stored files hold, they must not keep the store from downloading again.
+            Log.e(TAG, "Discarding stored graph", e);
+            snapshotFile.delete();
+            graphFile.delete();
+            routeTableFile.delete();
+            result = null;
+        } finally {
+            GraphModel fromDisk = result;
+            mainHandler.post(() -> {
+                diskLoaded = true;
+                if (fromDisk != null && model == null) {
+                    publish(fromDisk);
+                }
+                maybeRefresh();
+            });
+        }
+    }
+
+    private void maybeRefresh() {
+        if (!diskLoaded || serverVersion == null || refreshing) return;
+        GraphModel current = model;
+        if (current != null && current.version() == serverVersion) return;
+        refresh(serverVersion);
+    }
+
+    private void refresh(long version) {
+        refreshing = true;
+        fetch(version).whenComplete((fresh, error) -> {
+            GraphModel built = null;
+            if (error != null) {
+                Log.e(TAG, "Failed to refresh graph v" + version, error);
+            } else {
+                // On the IO thread, where the landmark graph is in the state of fresh.
+                try {
+                    writeToDisk(fresh);
+                    built = buildModel(fresh, compileGraph(fresh, buildLandmarks(fresh)));
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Failed to build graph v" + version, e);
+                }
+            }
+            GraphModel result = built;
+            mainHandler.post(() -> {
+                refreshing = false;
+                if (result == null) {
+                    // Not retried until the server version changes again
+                    failPendingModels();
+                    return;
+                }
+                publish(result);
+                exportMetrics();
+                if (!result.isCompiled()) {
+                    failPendingModels();
+                }
+                maybeRefresh();
+            });
+        });
+    }
+
+    /**
+     * Snapshot of the graph stamped with {@code version}, completed on the IO thread. Taken from
+     * the live copy once its initial load is done; downloaded if the child listeners were refused,
+     * in which case the landmark graph is brought up to date with it.
+     */
+    private CompletableFuture<GraphSnapshot> fetch(long version) {
+        return live.ready()
+                .handle((ignored, error) -> error == null)
+                .thenComposeAsync(synced -> {
+                    GraphSnapshot fresh = synced ? live.snapshot(version) : null;
+                    if (fresh != null) return CompletableFuture.completedFuture(fresh);
+                    return loader.load(version).thenApplyAsync(downloaded -> {
+                        landmarkGraph.update(downloaded);
+                        return downloaded;
+                    }, io);
+                }, io);
+    }
+
+    /** Tells every waiting model callback that this refresh brought no usable graph. */
+    private void failPendingModels() {
+        List<ModelCallback> modelCallbacks = new ArrayList<>(pendingModel);
+        pendingModel.clear();
+        for (ModelCallback callback : modelCallbacks) {
+            callback.onError();
+        }
+    }
+
+    /** Derives everything readers need from {@code fresh}, on the background thread. */
+    private GraphModel buildModel(GraphSnapshot fresh, NavigationGraphFile compiled) {
+        return new GraphModel(fresh, compiled, loadRoutes(compiled), computeLandmarks(compiled));
+    }
+
+    private void publish(GraphModel fresh) {
+        model = fresh;
+        pathfinder = fresh.isCompiled()
+                ? new AStarPathfinder(fresh.navigationGraph(), fresh.altLandmarks())
+                : null;
+        recordGraphSize(fresh);
+        List<SnapshotCallback> callbacks = new ArrayList<>(pending);
+        pending.clear();
+        for (SnapshotCallback callback : callbacks) {
+            callback.onSnapshot(fresh.snapshot());
+        }
+        if (!fresh.isCompiled()) return;
+        List<ModelCallback> modelCallbacks = new ArrayList<>(pendingModel);
+        pendingModel.clear();
+        for (ModelCallback callback : modelCallbacks) {
+            callback.onModel(fresh);
+        }
+    }
+
+    private void recordGraphSize(GraphModel fresh) {
+        GraphSnapshot snapshot = fresh.snapshot();
+        metrics.gauge("graph.version").set(snapshot.version());
+        metrics.gauge("graph.anchors").set(snapshot.anchors().size());
+        metrics.gauge("graph.detected_images").set(snapshot.detectedImages().size());
+        if (fresh.isCompiled()) {
+            NavigationGraph routingGraph = fresh.navigationGraph();
+            metrics.gauge("graph.nodes").set(routingGraph.nodeCount());
+            metrics.gauge("graph.edges").set(routingGraph.edgeCount());
+            metrics.gauge("graph.landmarks").set(fresh.file().landmarkCount());
+        }
+    }
+
+    private void writeToDisk(GraphSnapshot fresh) {
+        // Write next to the live file and rename, so a crash never leaves a torn snapshot behind.
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            GraphSnapshotCodec.write(fresh, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write graph snapshot", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(snapshotFile)) {
+            Log.w(TAG, "Failed to replace graph snapshot");
+            tmp.delete();
+        }
+    }
+
+    /** Re-runs the dirty landmark searches of the landmark graph, which is in the state of fresh. */
+    private Map<String, LandmarkNode> buildLandmarks(GraphSnapshot fresh) {
+        long start = System.nanoTime();
+        Map<String, LandmarkNode> landmarks = landmarkGraph.build();
+        metrics.histogram("graph.landmark_build.ms").recordMillisSince(start);
+        metrics.histogram("graph.landmark_build.recomputed_trees").record(landmarkGraph.lastRecomputedTrees());
+        Log.d(TAG, "Landmark graph v" + fresh.version() + ": recomputed "
+                + landmarkGraph.lastRecomputedTrees() + " of " + landmarks.size() + " landmark trees");
+        return landmarks;
+    }
+
+    /**
+     * Compiles {@code fresh} with the given landmark paths, or paths built from scratch if null,
+     * writes it to the graph file and maps it; null if that fails.
+     */
+    private NavigationGraphFile compileGraph(GraphSnapshot fresh, Map<String, LandmarkNode> landmarks) {
+        long start = System.nanoTime();
+        ByteBuffer encoded = landmarks != null
+                ? NavigationGraphFile.encode(fresh, landmarks)
+                : NavigationGraphFile.encode(fresh);
+        metrics.histogram("graph.compile.ms").recordMillisSince(start);
+        File tmp = new File(graphFile.getPath() + ".tmp");
+        try (FileChannel channel = new FileOutputStream(tmp).getChannel()) {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write navigation graph", e);
+            tmp.delete();
+            return null;
+        }
+        if (!tmp.renameTo(graphFile)) {
+            Log.w(TAG, "Failed to replace navigation graph");
+            tmp.delete();
+            return null;
+        }
+        return mapGraph();
+    }
+
+    /**
+     * Reads the stored route table of {@code compiled}, or computes and stores it if the stored one
+     * belongs to another graph version. Null if there is no graph.
+     */
+    private RouteTable loadRoutes(NavigationGraphFile compiled) {
+        if (compiled == null) return null;
+        NavigationGraph routingGraph = compiled.navigationGraph();
+        if (routeTableFile.exists()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(routeTableFile))) {
+                RouteTable stored = RouteTable.read(in, routingGraph, compiled.version());
+                if (stored != null) return stored;
+            } catch (IOException e) {
+                Log.w(TAG, "Discarding unreadable route table", e);
+            }
+        }
+
+        long start = SystemClock.uptimeMillis();
+        RouteTable routes = RouteTable.compute(routingGraph, compiled.version(), landmarkRoutingIds(compiled));
+        long elapsed = SystemClock.uptimeMillis() - start;
+        metrics.histogram("graph.route_table.ms").record(elapsed);
+        Log.d(TAG, "Computed routes to " + routes.destinationCount() + " landmarks in " + elapsed + "ms");
+
+        File tmp = new File(routeTableFile.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            routes.write(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write route table", e);
+            tmp.delete();
+            return routes;
+        }
+        if (!tmp.renameTo(routeTableFile)) {
+            Log.w(TAG, "Failed to replace route table");
+            tmp.delete();
+        }
+        return routes;
+    }
+
+    /**
+     * Computes the ALT landmark distances of {@code compiled}, starting from the named landmarks.
+     * They take a few single-source searches, so they are not stored. Null if there is no graph.
+     */
+    private AltLandmarks computeLandmarks(NavigationGraphFile compiled) {
+        if (compiled == null) return null;
+        long start = SystemClock.uptimeMillis();
+        AltLandmarks landmarks = AltLandmarks.compute(compiled.navigationGraph(),
+                landmarkRoutingIds(compiled), ALT_LANDMARK_COUNT);
+        long elapsed = SystemClock.uptimeMillis() - start;
+        metrics.histogram("graph.alt_landmarks.ms").record(elapsed);
+        Log.d(TAG, "Computed " + landmarks.landmarkCount() + " A* landmarks in " + elapsed + "ms");
+        return landmarks;
+    }
+
+    /** Routing-graph ids of the named landmarks' anchors; anchors that were never hosted have none. */
+    private static Set<String> landmarkRoutingIds(NavigationGraphFile compiled) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (int l = 0; l < compiled.landmarkCount(); l++) {
+            int node = compiled.indexOf(compiled.landmarkAnchorId(l));
+            String routingId = node >= 0 ? compiled.routingIdOf(node) : null;
+            if (routingId != null) ids.add(routingId);
+        }
+        return ids;
+    }
+
+    /** Maps the graph file read-only; the mapping stays valid after the channel is closed. */
+    private NavigationGraphFile mapGraph() {
+        if (!graphFile.exists()) return null;
+        try (FileChannel channel = new FileInputStream(graphFile).getChannel()) {
+            return NavigationGraphFile.wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Discarding unreadable navigation graph", e);
+            graphFile.delete();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.ar.core.examples.java.navigation.AnchorData;
+import com.google.ar.core.examples.java.navigation.DetectedImage;
+import com.google.ar.core.examples.java.navigation.GraphSnapshot;
+import com.google.ar.core.examples.java.navigation.IncrementalLandmarkGraph;
+import com.google.ar.core.examples.java.navigation.MetricsRegistry;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Copy of {@code anchors}, {@code anchorConnections} and {@code detected_images} kept in sync
+ * through child events. Every event patches the copy and goes to the matching per-change method of
+ * an {@link IncrementalLandmarkGraph}, which marks only the landmark trees that change can affect
+ * as dirty. A new graph version is then assembled from memory by {@link #snapshot} instead of
+ * downloading the three nodes again.
+ *
+ * <p>Events arrive on the main thread and are applied on {@code worker} in the order they came.
+ * The initial children of a location are delivered before a single-value read of it completes, so
+ * once {@link #ready()} completes the copy holds the whole graph. If a listener is cancelled, e.g.
+ * because the database refused the read, all three are removed and {@link #snapshot} returns null
+ * from then on.
+ */
+final class LiveGraph {
+    private static final String TAG = "LiveGraph";
+
+    private final Executor worker;
+    private final IncrementalLandmarkGraph landmarkGraph;
+    private final DatabaseReference anchorsRef;
+    private final DatabaseReference connectionsRef;
+    private final DatabaseReference imagesRef;
+    private final ChildEventListener anchorsListener;
+    private final ChildEventListener connectionsListener;
+    private final ChildEventListener imagesListener;
+    private final CompletableFuture<Void> ready;
+    private final MetricsRegistry metrics = MetricsRegistry.get();
+
+    // Only touched on the worker thread
+    private final Map<String, AnchorData> anchors = new LinkedHashMap<>();
+    private final Map<String, List<String>> connections = new LinkedHashMap<>();
+    private final Map<String, DetectedImage> detectedImages = new LinkedHashMap<>();
+    private boolean stopped;
+
+    /**
+     * Starts listening. {@code landmarkGraph} must only be touched on {@code worker}, which must run
+     * tasks one at a time in submission order.
+     */
+    LiveGraph(Executor worker, IncrementalLandmarkGraph landmarkGraph) {
+        this.worker = worker;
+        this.landmarkGraph = landmarkGraph;
+        DatabaseReference root = FirebaseDatabase.getInstance().getReference();
+        anchorsRef = root.child("anchors");
+        connectionsRef = root.child("anchorConnections");
+        imagesRef = root.child("detected_images");
+
+        anchorsListener = anchorsRef.addChildEventListener(new Listener() {
+            @Override
+            void onPut(DataSnapshot child) {
+                AnchorData anchor = GraphLoader.parseAnchor(child);
+                if (anchor == null) {
+                    // Without a position it is not part of the graph, as in a full load
+                    onRemove(child.getKey());
+                    return;
+                }
+                apply(() -> {
+                    anchors.put(anchor.anchorId, anchor);
+                    landmarkGraph.putAnchor(anchor);
+                });
+            }
+
+            @Override
+            void onRemove(String key) {
+                apply(() -> {
+                    anchors.remove(key);
+                    landmarkGraph.removeAnchor(key);
+                });
+            }
+        });
+        connectionsListener = connectionsRef.addChildEventListener(new Listener() {
+            @Override
+            void onPut(DataSnapshot child) {
+                String anchorId = child.getKey();
+                List<String> neighbors = GraphLoader.parseNeighbors(child);
+                apply(() -> {
+                    connections.put(anchorId, neighbors);
+                    landmarkGraph.setConnections(anchorId, neighbors);
+                });
+            }
+
+            @Override
+            void onRemove(String key) {
+                apply(() -> {
+                    connections.remove(key);
+                    landmarkGraph.removeConnections(key);
+                });
+            }
+        });
+        imagesListener = imagesRef.addChildEventListener(new Listener() {
+            @Override
+            void onPut(DataSnapshot child) {
+                DetectedImage image = GraphLoader.parseDetectedImage(child);
+                apply(() -> {
+                    detectedImages.put(image.key, image);
+                    landmarkGraph.putDetectedImage(image);
+                });
+            }
+
+            @Override
+            void onRemove(String key) {
+                apply(() -> {
+                    detectedImages.remove(key);
+                    landmarkGraph.removeDetectedImage(key);
+                });
+            }
+        });
+
+        ready = CompletableFuture.allOf(
+                GraphLoader.read(anchorsRef), GraphLoader.read(connectionsRef), GraphLoader.read(imagesRef));
+        ready.whenComplete((ignored, error) -> {
+            if (error != null) Log.e(TAG, "Failed to load the initial graph", error);
+        });
+    }
+
+    /** Completes once the initial children of all three nodes have been handed to the worker. */
+    CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    /**
+     * The current copy stamped with {@code version}, or null if the listeners were cancelled. Call
+     * on the worker after {@link #ready()} completed; the landmark graph is then in the same state.
+     */
+    GraphSnapshot snapshot(long version) {
+        if (stopped) return null;
+        long start = System.nanoTime();
+        GraphSnapshot snapshot = new GraphSnapshot(version, anchors, connections, detectedImages);
+        metrics.histogram("graph.live_snapshot.ms").recordMillisSince(start);
+        return snapshot;
+    }
+
+    private void apply(Runnable change) {
+        metrics.counter("graph.live_events").inc();
+        worker.execute(() -> {
+            if (!stopped) change.run();
+        });
+    }
+
+    /** Removes all three listeners, so the copy is never half up to date. Main thread only. */
+    private void stop() {
+        anchorsRef.removeEventListener(anchorsListener);
+        connectionsRef.removeEventListener(connectionsListener);
+        imagesRef.removeEventListener(imagesListener);
+        worker.execute(() -> stopped = true);
+    }
+
+    /** Child events folded into put (added or changed) and remove. Moves are irrelevant here. */
+    private abstract class Listener implements ChildEventListener {
+        abstract void onPut(DataSnapshot child);
+
+        abstract void onRemove(String key);
+
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            onPut(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            onPut(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            onRemove(snapshot.getKey());
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Graph child listener cancelled", error.toException());
+            stop();
+        }
+    }
+}
@@ -6,6 +6,7 @@ public class MyApplicationContextProvider extends android.app.Application {
     public void onCreate() {
         super.onCreate();
         instance = this;
+        AndroidLogSink.install(this);
     }
 
     public static android.content.Context getContext() {
@@ -0,0 +1,258 @@
+package com.google.ar.core.examples.java.cloudanchor;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.opengl.Matrix;
+import android.util.Log;
+
+import com.google.ar.core.examples.java.common.rendering.ShaderUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Draws every breadcrumb of a route in a single draw call. Callers {@link #add} one model matrix
+ * per breadcrumb during the frame and then call {@link #draw} once.
+ *
+ * <p>On a GLES 3 context the model matrices go into one instance VBO and the marker is drawn with
+ * {@code glDrawArraysInstanced}. On GLES 2 the markers are transformed into world space on the CPU
+ * and merged into one vertex buffer, so the view-projection matrix is the only per-draw uniform.
+ * Attribute and uniform locations are looked up once, when the program is created.
+ *
+ * <p>All methods must be called on the GL thread.
+ */
+final class PathRenderer {
+    private static final String TAG = "PathRenderer";
+
+    private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
+    private static final int COORDS_PER_VERTEX = 3;
+    private static final int FLOATS_PER_MATRIX = 16;
+
+    // Breadcrumb marker: one triangle in its model space
+    private static final float[] MARKER_COORDS = {
+            0.0f, 0.1f, 0.0f,  // Top vertex
+            -0.1f, -0.1f, 0.0f,  // Bottom left
+            0.1f, -0.1f, 0.0f   // Bottom right
+    };
+    private static final int MARKER_VERTICES = MARKER_COORDS.length / COORDS_PER_VERTEX;
+    private static final float[] COLOR = {0.0f, 0.0f, 0.0f, 1.0f};
+
+    private static final String INSTANCED_VERTEX_SHADER =
+            "#version 300 es\n"
+                    + "uniform mat4 uViewProjection;\n"
+                    + "in vec4 aPosition;\n"
+                    + "in mat4 aModel;\n"
+                    + "void main() {\n"
+                    + "  gl_Position = uViewProjection * aModel * aPosition;\n"
+                    + "}\n";
+    private static final String INSTANCED_FRAGMENT_SHADER =
+            "#version 300 es\n"
+                    + "precision mediump float;\n"
+                    + "uniform vec4 uColor;\n"
+                    + "out vec4 fragColor;\n"
+                    + "void main() {\n"
+                    + "  fragColor = uColor;\n"
+                    + "}\n";
+    private static final String MERGED_VERTEX_SHADER =
+            "uniform mat4 uViewProjection;\n"
+                    + "attribute vec4 aPosition;\n"
+                    + "void main() {\n"
+                    + "  gl_Position = uViewProjection * aPosition;\n"
+                    + "}\n";
+    private static final String MERGED_FRAGMENT_SHADER =
+            "precision mediump float;\n"
+                    + "uniform vec4 uColor;\n"
+                    + "void main() {\n"
+                    + "  gl_FragColor = uColor;\n"
+                    + "}\n";
+
+    private boolean instanced;
+    private int program;
+    private int positionAttribute;
+    private int modelAttribute;
+    private int viewProjectionUniform;
+    private int colorUniform;
+    // GLES 3: static marker geometry and per-instance matrices. GLES 2: merged world-space vertices.
+    private int markerVbo;
+    private int streamVbo;
+
+    // Model matrices added this frame, packed back to back
+    private float[] models = new float[FLOATS_PER_MATRIX * 32];
+    private int count;
+    private float[] mergedVertices = new float[0];
+    private FloatBuffer uploadBuffer = allocateFloats(FLOATS_PER_MATRIX * 32);
+    private final float[] viewProjection = new float[16];
+
+    /** Creates the program and buffers, preferring instancing when the context is GLES 3. */
+    void createOnGlThread() {
+        String version = GLES20.glGetString(GLES20.GL_VERSION);
+        instanced = version != null && version.startsWith("OpenGL ES 3") && createProgram(true);
+        if (!instanced && !createProgram(false)) {
+            Log.e(TAG, "Could not create the path program");
+            return;
+        }
+
+        int[] buffers = new int[2];
+        GLES20.glGenBuffers(2, buffers, 0);
+        markerVbo = buffers[0];
+        streamVbo = buffers[1];
+        if (instanced) {
+            FloatBuffer marker = allocateFloats(MARKER_COORDS.length);
+            marker.put(MARKER_COORDS).position(0);
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, markerVbo);
+            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, MARKER_COORDS.length * BYTES_PER_FLOAT,
+                    marker, GLES20.GL_STATIC_DRAW);
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        }
+        ShaderUtil.checkGLError(TAG, "Path renderer creation");
+        Log.d(TAG, instanced ? "Drawing breadcrumbs instanced" : "Drawing breadcrumbs as merged geometry");
+    }
+
+    /** Drops the breadcrumbs of the previous frame. */
+    void clear() {
+        count = 0;
+    }
+
+    /** Queues one breadcrumb with the given column-major model matrix. */
+    void add(float[] modelMatrix) {
+        if ((count + 1) * FLOATS_PER_MATRIX > models.length) {
+            models = Arrays.copyOf(models, models.length * 2);
+        }
+        System.arraycopy(modelMatrix, 0, models, count * FLOATS_PER_MATRIX, FLOATS_PER_MATRIX);
+        count++;
+    }
+
+    /** Draws everything added since the last {@link #clear} in one call. */
+    void draw(float[] viewMatrix, float[] projectionMatrix) {
+        if (count == 0 || program == 0) return;
+        Matrix.multiplyMM(viewProjection, 0, projectionMatrix, 0, viewMatrix, 0);
+
+        GLES20.glUseProgram(program);
+        GLES20.glUniformMatrix4fv(viewProjectionUniform, 1, false, viewProjection, 0);
+        GLES20.glUniform4fv(colorUniform, 1, COLOR, 0);
+        if (instanced) {
+            drawInstanced();
+        } else {
+            drawMerged();
+        }
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        ShaderUtil.checkGLError(TAG, "Drawing path");
+    }
+
+    private void drawInstanced() {
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, markerVbo);
+        GLES20.glEnableVertexAttribArray(positionAttribute);
+        GLES20.glVertexAttribPointer(positionAttribute, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0, 0);
+
+        int floats = count * FLOATS_PER_MATRIX;
+        upload(models, floats);
+        // A mat4 attribute takes four consecutive locations, one per column
+        int stride = FLOATS_PER_MATRIX * BYTES_PER_FLOAT;
+        for (int column = 0; column < 4; column++) {
+            int location = modelAttribute + column;
+            GLES20.glEnableVertexAttribArray(location);
+            GLES20.glVertexAttribPointer(location, 4, GLES20.GL_FLOAT, false, stride,
+                    column * 4 * BYTES_PER_FLOAT);
+            GLES30.glVertexAttribDivisor(location, 1);
+        }
+
+        GLES30.glDrawArraysInstanced(GLES20.GL_TRIANGLES, 0, MARKER_VERTICES, count);
+
+        for (int column = 0; column < 4; column++) {
+            GLES30.glVertexAttribDivisor(modelAttribute + column, 0);
+            GLES20.glDisableVertexAttribArray(modelAttribute + column);
+        }
+        GLES20.glDisableVertexAttribArray(positionAttribute);
+    }
+
+    private void drawMerged() {
+        int floats = count * MARKER_COORDS.length;
+        if (mergedVertices.length < floats) {
+            mergedVertices = new float[Math.max(floats, mergedVertices.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            transformMarker(models, i * FLOATS_PER_MATRIX, mergedVertices, i * MARKER_COORDS.length);
+        }
+        upload(mergedVertices, floats);
+        GLES20.glEnableVertexAttribArray(positionAttribute);
+        GLES20.glVertexAttribPointer(positionAttribute, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0, 0);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, count * MARKER_VERTICES);
+        GLES20.glDisableVertexAttribArray(positionAttribute);
+    }
+
+    /** Writes the marker vertices transformed by the matrix at {@code m[offset]} to {@code out}. */
+    private static void transformMarker(float[] m, int offset, float[] out, int outOffset) {
+        for (int v = 0; v < MARKER_COORDS.length; v += COORDS_PER_VERTEX) {
+            float x = MARKER_COORDS[v];
+            float y = MARKER_COORDS[v + 1];
+            float z = MARKER_COORDS[v + 2];
+            for (int row = 0; row < 3; row++) {
+                out[outOffset + v + row] = m[offset + row] * x + m[offset + 4 + row] * y
+                        + m[offset + 8 + row] * z + m[offset + 12 + row];
+            }
+        }
+    }
+
+    /** Streams the first {@code floats} values of {@code data} into the stream VBO, left bound. */
+    private void upload(float[] data, int floats) {
+        if (uploadBuffer.capacity() < floats) {
+            uploadBuffer = allocateFloats(Math.max(floats, uploadBuffer.capacity() * 2));
+        }
+        uploadBuffer.clear();
+        uploadBuffer.put(data, 0, floats).position(0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, streamVbo);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, floats * BYTES_PER_FLOAT, uploadBuffer,
+                GLES20.GL_STREAM_DRAW);
+    }
+
+    private boolean createProgram(boolean instancedProgram) {
+        int vertexShader = compile(GLES20.GL_VERTEX_SHADER,
+                instancedProgram ? INSTANCED_VERTEX_SHADER : MERGED_VERTEX_SHADER);
+        int fragmentShader = compile(GLES20.GL_FRAGMENT_SHADER,
+                instancedProgram ? INSTANCED_FRAGMENT_SHADER : MERGED_FRAGMENT_SHADER);
+        if (vertexShader == 0 || fragmentShader == 0) return false;
+
+        int linked = GLES20.glCreateProgram();
+        GLES20.glAttachShader(linked, vertexShader);
+        GLES20.glAttachShader(linked, fragmentShader);
+        GLES20.glLinkProgram(linked);
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(linked, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            Log.w(TAG, "Path program failed to link: " + GLES20.glGetProgramInfoLog(linked));
+            GLES20.glDeleteProgram(linked);
+            return false;
+        }
+
+        program = linked;
+        positionAttribute = GLES20.glGetAttribLocation(program, "aPosition");
+        modelAttribute = instancedProgram ? GLES20.glGetAttribLocation(program, "aModel") : -1;
+        viewProjectionUniform = GLES20.glGetUniformLocation(program, "uViewProjection");
+        colorUniform = GLES20.glGetUniformLocation(program, "uColor");
+        return true;
+    }
+
+    private static int compile(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            Log.w(TAG, "Path shader failed to compile: " + GLES20.glGetShaderInfoLog(shader));
+            GLES20.glDeleteShader(shader);
+            return 0;
+        }
+        return shader;
+    }
+
+    private static FloatBuffer allocateFloats(int floats) {
+        return ByteBuffer.allocateDirect(floats * BYTES_PER_FLOAT)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+}
@@ -112,6 +112,7 @@ public class ObjectRenderer {
   private final float[] modelMatrix = new float[16];
   private final float[] modelViewMatrix = new float[16];
   private final float[] modelViewProjectionMatrix = new float[16];
+  private final float[] scaleMatrix = new float[16];
 
   // Set some default material properties to use for lighting.
   private float ambient = 0.3f;
@@ -306,7 +307,6 @@ public class ObjectRenderer {
    * @see android.opengl.Matrix
    */
   public void updateModelMatrix(float[] modelMatrix, float scaleFactor) {
-    float[] scaleMatrix = new float[16];
     Matrix.setIdentityM(scaleMatrix, 0);
     scaleMatrix[0] = scaleFactor;
     scaleMatrix[5] = scaleFactor;
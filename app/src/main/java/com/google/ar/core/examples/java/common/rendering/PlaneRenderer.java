@@ -31,12 +31,9 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /** Renders the detected AR planes. */
@@ -102,6 +99,13 @@ public class PlaneRenderer {
   private final float[] modelViewProjectionMatrix = new float[16];
   private final float[] planeAngleUvMatrix =
       new float[4]; // 2x2 rotation matrix applied to uv coords.
+  private final float[] cameraMatrix = new float[16];
+  private final float[] cameraView = new float[16];
+  private final float[] planeMatrix = new float[16];
+  private final float[] planeNormal = new float[3];
+
+  // Reused between frames; grown when more planes are tracked, never shrunk.
+  private SortablePlane[] sortedPlanes = new SortablePlane[0];
 
   private final Map<Plane, Integer> planeIndexMap = new HashMap<>();
 
@@ -273,13 +277,8 @@ public class PlaneRenderer {
   }
 
   static class SortablePlane {
-    final float distance;
-    final Plane plane;
-
-    SortablePlane(float distance, Plane plane) {
-      this.distance = distance;
-      this.plane = plane;
-    }
+    float distance;
+    Plane plane;
   }
 
   /**
@@ -293,8 +292,15 @@ public class PlaneRenderer {
   public void drawPlanes(Collection<Plane> allPlanes, Pose cameraPose, float[] cameraPerspective) {
     // Planes must be sorted by distance from camera so that we draw closer planes first, and
     // they occlude the farther planes.
-    List<SortablePlane> sortedPlanes = new ArrayList<>();
-
+    // The entries are pooled and sorted in place (farthest first) so a frame allocates nothing.
+    if (sortedPlanes.length < allPlanes.size()) {
+      int oldLength = sortedPlanes.length;
+      sortedPlanes = Arrays.copyOf(sortedPlanes, Math.max(allPlanes.size(), oldLength * 2));
+      for (int i = oldLength; i < sortedPlanes.length; i++) {
+        sortedPlanes[i] = new SortablePlane();
+      }
+    }
+    int planeCount = 0;
     for (Plane plane : allPlanes) {
       if (plane.getTrackingState() != TrackingState.TRACKING || plane.getSubsumedBy() != null) {
         continue;
@@ -304,19 +310,18 @@ public class PlaneRenderer {
       if (distance < 0) { // Plane is back-facing.
         continue;
       }
-      sortedPlanes.add(new SortablePlane(distance, plane));
+      SortablePlane entry = sortedPlanes[planeCount];
+      int i = planeCount++;
+      for (; i > 0 && sortedPlanes[i - 1].distance < distance; i--) {
+        sortedPlanes[i] = sortedPlanes[i - 1];
+      }
+      entry.distance = distance;
+      entry.plane = plane;
+      sortedPlanes[i] = entry;
     }
-    Collections.sort(
-        sortedPlanes,
-        new Comparator<SortablePlane>() {
-          @Override
-          public int compare(SortablePlane a, SortablePlane b) {
-            return Float.compare(b.distance, a.distance);
-          }
-        });
-
-    float[] cameraView = new float[16];
-    cameraPose.inverse().toMatrix(cameraView, 0);
+
+    cameraPose.toMatrix(cameraMatrix, 0);
+    Matrix.invertM(cameraView, 0, cameraMatrix, 0);
 
     // Disable depth write.
     GLES20.glDepthMask(false);
@@ -341,14 +346,14 @@ public class PlaneRenderer {
 
     ShaderUtil.checkGLError(TAG, "Setting up to draw planes");
 
-    for (SortablePlane sortedPlane : sortedPlanes) {
-      Plane plane = sortedPlane.plane;
-      float[] planeMatrix = new float[16];
-      plane.getCenterPose().toMatrix(planeMatrix, 0);
+    for (int p = 0; p < planeCount; p++) {
+      Plane plane = sortedPlanes[p].plane;
+      sortedPlanes[p].plane = null; // Do not keep released planes reachable between frames.
+      Pose planePose = plane.getCenterPose();
+      planePose.toMatrix(planeMatrix, 0);
 
-      float[] normal = new float[3];
       // Get transformed Y axis of plane's coordinate system.
-      plane.getCenterPose().getTransformedAxis(1, 1.0f, normal, 0);
+      planePose.getTransformedAxis(1, 1.0f, planeNormal, 0);
 
       updatePlaneParameters(
           planeMatrix, plane.getExtentX(), plane.getExtentZ(), plane.getPolygon());
@@ -371,7 +376,7 @@ public class PlaneRenderer {
       planeAngleUvMatrix[3] = +(float) Math.cos(angleRadians) * vScale;
       GLES20.glUniformMatrix2fv(planeUvMatrixUniform, 1, false, planeAngleUvMatrix, 0);
 
-      draw(cameraView, cameraPerspective, normal);
+      draw(cameraView, cameraPerspective, planeNormal);
     }
 
     // Clean up the state we set
@@ -386,15 +391,21 @@ public class PlaneRenderer {
   // Calculate the normal distance to plane from cameraPose, the given planePose should have y axis
   // parallel to plane's normal, for example plane's center pose or hit test pose.
   public static float calculateDistanceToPlane(Pose planePose, Pose cameraPose) {
-    float[] normal = new float[3];
     float cameraX = cameraPose.tx();
     float cameraY = cameraPose.ty();
     float cameraZ = cameraPose.tz();
-    // Get transformed Y axis of plane's coordinate system.
-    planePose.getTransformedAxis(1, 1.0f, normal, 0);
+    // Transformed Y axis of plane's coordinate system, i.e. (0, 1, 0) rotated by the pose's
+    // quaternion. Computed inline rather than through getTransformedAxis() to avoid allocating.
+    float qx = planePose.qx();
+    float qy = planePose.qy();
+    float qz = planePose.qz();
+    float qw = planePose.qw();
+    float normalX = 2 * (qx * qy - qw * qz);
+    float normalY = 1 - 2 * (qx * qx + qz * qz);
+    float normalZ = 2 * (qy * qz + qw * qx);
     // Compute dot product of plane's normal with vector from camera to plane center.
-    return (cameraX - planePose.tx()) * normal[0]
-        + (cameraY - planePose.ty()) * normal[1]
-        + (cameraZ - planePose.tz()) * normal[2];
+    return (cameraX - planePose.tx()) * normalX
+        + (cameraY - planePose.ty()) * normalY
+        + (cameraZ - planePose.tz()) * normalZ;
   }
 }
@@ -50,6 +50,9 @@ public class PointCloudRenderer {
   // was not changed.  Do this using the timestamp since we can't compare PointCloud objects.
   private long lastTimestamp = 0;
 
+  // Allocated once to avoid a per-frame allocation in draw().
+  private final float[] modelViewProjection = new float[16];
+
   public PointCloudRenderer() {}
 
   /**
@@ -131,7 +134,6 @@ public class PointCloudRenderer {
    *     com.google.ar.core.Camera#getProjectionMatrix(float[], int, float, float)}.
    */
   public void draw(float[] cameraView, float[] cameraPerspective) {
-    float[] modelViewProjection = new float[16];
     Matrix.multiplyMM(modelViewProjection, 0, cameraPerspective, 0, cameraView, 0);
 
     ShaderUtil.checkGLError(TAG, "Before draw");
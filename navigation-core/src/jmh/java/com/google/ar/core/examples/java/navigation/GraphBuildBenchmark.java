@@ -0,0 +1,102 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Graph building: the landmark-to-landmark pass that {@code GraphBuilder1} runs on every rebuild,
+ * and the nearby-anchor lookup run each time an anchor is hosted, as a full scan and through
+ * {@link AnchorGrid}. Also cold opening a compiled {@link NavigationGraphFile}, for the graph
+ * screen (landmark graph) and for routing (CSR routing graph).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBuildBenchmark {
+    private static final double NEARBY_THRESHOLD_M = 1.5;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int nodes;
+
+    @Param({"CORRIDOR_GRID", "MULTI_FLOOR", "RANDOM_GEOMETRIC"})
+    public SyntheticGraphs.Shape shape;
+
+    @Param({"8"})
+    public int landmarks;
+
+    private SyntheticGraphs.Graph graph;
+    private LandmarkGraphBuilder landmarkGraphBuilder;
+    private AnchorGrid anchorGrid;
+    private AnchorData probe;
+    private ByteBuffer graphFile;
+
+    @Setup
+    public void setUp() {
+        graph = SyntheticGraphs.generate(shape, nodes, landmarks, 42L);
+        landmarkGraphBuilder = new LandmarkGraphBuilder(graph.connections);
+        anchorGrid = new AnchorGrid(2.0);
+        for (AnchorData anchor : graph.anchors) {
+            anchorGrid.add(anchor);
+        }
+        probe = graph.anchors.get(nodes / 2);
+
+        Map<String, AnchorData> anchors = new LinkedHashMap<>();
+        for (AnchorData anchor : graph.anchors) {
+            anchors.put(anchor.anchorId, anchor);
+        }
+        Map<String, DetectedImage> images = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : graph.landmarkToAnchor.entrySet()) {
+            images.put(entry.getKey(), new DetectedImage(entry.getKey(), entry.getKey(), null, entry.getValue()));
+        }
+        ByteBuffer encoded = NavigationGraphFile.encode(
+                new GraphSnapshot(1, anchors, graph.connections, images));
+        // Off-heap like a mapped file.
+        graphFile = ByteBuffer.allocateDirect(encoded.remaining());
+        graphFile.put(encoded);
+        graphFile.flip();
+    }
+
+    @Benchmark
+    public Map<String, LandmarkNode> processLandmarkConnections() {
+        return landmarkGraphBuilder.build(graph.landmarkToAnchor);
+    }
+
+    @Benchmark
+    public List<String> nearbyAnchorScan() {
+        return NearbyAnchors.findWithin(graph.anchors, probe.anchorId,
+                probe.x, probe.y, probe.z, NEARBY_THRESHOLD_M);
+    }
+
+    @Benchmark
+    public List<String> nearbyAnchorGrid() {
+        return anchorGrid.findWithin(probe.anchorId, probe.x, probe.y, probe.z, NEARBY_THRESHOLD_M);
+    }
+
+    @Benchmark
+    public Map<String, LandmarkNode> graphFileLandmarks() throws IOException {
+        return NavigationGraphFile.wrap(graphFile).landmarkNodes();
+    }
+
+    @Benchmark
+    public NavigationGraph graphFileRoutingGraph() throws IOException {
+        return NavigationGraphFile.wrap(graphFile).navigationGraph();
+    }
+}
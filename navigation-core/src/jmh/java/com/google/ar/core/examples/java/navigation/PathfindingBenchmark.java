@@ -0,0 +1,147 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point-to-point route queries: the String adapter of {@link AStarPathfinder} (which compiles the
+ * graph on every call, like the activity does today), A* on a pre-compiled graph, and the BFS used
+ * by the landmark graph builder. Each invocation runs the next query of a fixed random sequence.
+ * The landmark variants route to one of {@code LANDMARK_COUNT} fixed destinations, once with A*
+ * and once by walking a precomputed {@link RouteTable}. The hot-route variants replay
+ * {@code HOT_ROUTE_COUNT} pairs over and over, like users asking for the same few routes, with and
+ * without a {@link RouteCache} in front of the search.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathfindingBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    private static final int LANDMARK_COUNT = 8;
+    private static final int HOT_ROUTE_COUNT = 16;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int nodes;
+
+    @Param({"CORRIDOR_GRID", "MULTI_FLOOR", "RANDOM_GEOMETRIC"})
+    public SyntheticGraphs.Shape shape;
+
+    private SyntheticGraphs.Graph graph;
+    private AStarPathfinder pathfinder;
+    private LandmarkGraphBuilder landmarkGraphBuilder;
+    private RouteTable routeTable;
+    private RouteCache aStarCache;
+    private RouteCache bfsCache;
+    private final int[] starts = new int[QUERY_COUNT];
+    private final int[] goals = new int[QUERY_COUNT];
+    private final int[] landmarkGoals = new int[QUERY_COUNT];
+    // Anchor ids of starts and goals, built in setup so the String queries do not measure them
+    private final String[] startIds = new String[QUERY_COUNT];
+    private final String[] goalIds = new String[QUERY_COUNT];
+    private int[] pathBuffer;
+    private int query;
+
+    @Setup
+    public void setUp() {
+        graph = SyntheticGraphs.generate(shape, nodes, 0, 42L);
+        NavigationGraph compiled = NavigationGraph.compile(graph.positions, graph.connections);
+        pathfinder = new AStarPathfinder(compiled);
+        landmarkGraphBuilder = new LandmarkGraphBuilder(graph.connections);
+        pathBuffer = new int[compiled.nodeCount()];
+
+        Random random = new Random(7L);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            starts[i] = random.nextInt(nodes);
+            goals[i] = random.nextInt(nodes);
+            startIds[i] = graph.anchorId(starts[i]);
+            goalIds[i] = graph.anchorId(goals[i]);
+        }
+
+        int[] landmarks = new int[LANDMARK_COUNT];
+        List<String> landmarkIds = new ArrayList<>();
+        for (int i = 0; i < LANDMARK_COUNT; i++) {
+            landmarks[i] = random.nextInt(nodes);
+            landmarkIds.add(graph.anchorId(landmarks[i]));
+        }
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            landmarkGoals[i] = landmarks[random.nextInt(LANDMARK_COUNT)];
+        }
+        routeTable = RouteTable.compute(compiled, 0, landmarkIds);
+        aStarCache = new RouteCache(HOT_ROUTE_COUNT);
+        bfsCache = new RouteCache(HOT_ROUTE_COUNT);
+    }
+
+    private int nextQuery() {
+        query = (query + 1) & (QUERY_COUNT - 1);
+        return query;
+    }
+
+    private int nextHotQuery() {
+        query = (query + 1) & (HOT_ROUTE_COUNT - 1);
+        return query;
+    }
+
+    @Benchmark
+    public List<String> aStarStringApi() {
+        int q = nextQuery();
+        return AStarPathfinder.findShortestPath(startIds[q], goalIds[q], graph.positions, graph.connections);
+    }
+
+    @Benchmark
+    public int aStarCompiled() {
+        int q = nextQuery();
+        return pathfinder.findPath(starts[q], goals[q], pathBuffer);
+    }
+
+    @Benchmark
+    public List<String> landmarkBuilderBfs() {
+        int q = nextQuery();
+        return landmarkGraphBuilder.findShortestPath(startIds[q], goalIds[q]);
+    }
+
+    @Benchmark
+    public List<String> aStarHotRoutes() {
+        int q = nextHotQuery();
+        return pathfinder.findShortestPath(startIds[q], goalIds[q]);
+    }
+
+    @Benchmark
+    public List<String> aStarHotRoutesCached() {
+        int q = nextHotQuery();
+        return aStarCache.computeIfAbsent(startIds[q], goalIds[q], 0, pathfinder::findShortestPath);
+    }
+
+    @Benchmark
+    public List<String> landmarkBuilderBfsHotRoutesCached() {
+        int q = nextHotQuery();
+        return landmarkGraphBuilder.findShortestPath(startIds[q], goalIds[q], bfsCache, 0);
+    }
+
+    @Benchmark
+    public int aStarToLandmark() {
+        int q = nextQuery();
+        return pathfinder.findPath(starts[q], landmarkGoals[q], pathBuffer);
+    }
+
+    @Benchmark
+    public int routeTableToLandmark() {
+        int q = nextQuery();
+        return routeTable.findPath(starts[q], landmarkGoals[q], pathBuffer);
+    }
+}
@@ -0,0 +1,122 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Query latency of the {@link Pathfinder} engines on the same random queries: A* with the
+ * straight-line heuristic, A* with {@link AltLandmarks} bounds, the bidirectional variants of both,
+ * and contraction hierarchies (landmarks and hierarchy are preprocessed in setup, not measured).
+ * The {@code settledNodes} counter is the total number of nodes settled over the measured queries;
+ * divide it by the operation count for the per-query figure.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingEngineBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    private static final int ALT_LANDMARKS = 16;
+
+    @Param({"1000", "10000", "50000"})
+    public int nodes;
+
+    @Param({"CORRIDOR_GRID", "MULTI_FLOOR", "RANDOM_GEOMETRIC"})
+    public SyntheticGraphs.Shape shape;
+
+    private AStarPathfinder aStar;
+    private AStarPathfinder aStarAlt;
+    private ContractionHierarchy contractionHierarchy;
+    private final int[] starts = new int[QUERY_COUNT];
+    private final int[] goals = new int[QUERY_COUNT];
+    private int[] pathBuffer;
+    private int query;
+
+    /** Settled nodes of the measured queries, reported next to the timings. */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long settledNodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            settledNodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        SyntheticGraphs.Graph graph = SyntheticGraphs.generate(shape, nodes, 8, 42L);
+        NavigationGraph compiled = NavigationGraph.compile(graph.positions, graph.connections);
+        aStar = new AStarPathfinder(compiled);
+        aStarAlt = new AStarPathfinder(compiled,
+                AltLandmarks.compute(compiled, graph.landmarkToAnchor.values(), ALT_LANDMARKS));
+        contractionHierarchy = ContractionHierarchy.build(compiled);
+        pathBuffer = new int[compiled.nodeCount()];
+
+        Random random = new Random(7L);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            starts[i] = random.nextInt(nodes);
+            goals[i] = random.nextInt(nodes);
+        }
+    }
+
+    private int nextQuery() {
+        query = (query + 1) & (QUERY_COUNT - 1);
+        return query;
+    }
+
+    @Benchmark
+    public int aStar(Counters counters) {
+        return run(aStar, counters);
+    }
+
+    @Benchmark
+    public int aStarAlt(Counters counters) {
+        return run(aStarAlt, counters);
+    }
+
+    @Benchmark
+    public int aStarBidirectional(Counters counters) {
+        return runBidirectional(aStar, counters);
+    }
+
+    @Benchmark
+    public int aStarAltBidirectional(Counters counters) {
+        return runBidirectional(aStarAlt, counters);
+    }
+
+    @Benchmark
+    public int contractionHierarchy(Counters counters) {
+        return run(contractionHierarchy, counters);
+    }
+
+    private int run(Pathfinder pathfinder, Counters counters) {
+        int q = nextQuery();
+        int length = pathfinder.findPath(starts[q], goals[q], pathBuffer);
+        counters.settledNodes += pathfinder.expandedNodes();
+        return length;
+    }
+
+    private int runBidirectional(AStarPathfinder pathfinder, Counters counters) {
+        int q = nextQuery();
+        int length = pathfinder.findPathBidirectional(starts[q], goals[q], pathBuffer);
+        counters.settledNodes += pathfinder.expandedNodes();
+        return length;
+    }
+}
@@ -0,0 +1,168 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates indoor-like anchor graphs for the benchmarks, in the same String keyed shape the
+ * Firebase loaders produce. Generation is seeded, so every run measures the same graph.
+ */
+public final class SyntheticGraphs {
+    private static final float ANCHOR_SPACING_M = 1.0f;
+    private static final float FLOOR_HEIGHT_M = 3.0f;
+    private static final int NODES_PER_FLOOR = 2_500;
+    private static final int STAIRWELLS_PER_FLOOR = 4;
+    private static final double RANDOM_GRAPH_MEAN_DEGREE = 6.0;
+
+    public enum Shape {
+        /** A single floor of corridors laid out as a 4-connected grid. */
+        CORRIDOR_GRID,
+        /** Corridor grids stacked as floors and linked only through a few stairwells. */
+        MULTI_FLOOR,
+        /** Anchors scattered uniformly over a floor plate, linked when closer than a radius. */
+        RANDOM_GEOMETRIC,
+    }
+
+    /** A generated graph together with the landmark → anchor mapping for it. */
+    static final class Graph {
+        final Map<String, float[]> positions = new LinkedHashMap<>();
+        final Map<String, List<String>> connections = new HashMap<>();
+        final Map<String, String> landmarkToAnchor = new LinkedHashMap<>();
+        final List<AnchorData> anchors = new ArrayList<>();
+
+        int size() {
+            return positions.size();
+        }
+
+        String anchorId(int i) {
+            return "anchor_" + i;
+        }
+
+        private void addAnchor(int i, float x, float y, float z) {
+            String id = anchorId(i);
+            positions.put(id, new float[] {x, y, z});
+            connections.put(id, new ArrayList<>());
+            anchors.add(new AnchorData(id, "cloud_" + i, 1, x, y, z));
+        }
+
+        private void connect(int a, int b) {
+            connections.get(anchorId(a)).add(anchorId(b));
+            connections.get(anchorId(b)).add(anchorId(a));
+        }
+
+        private void pickLandmarks(int count) {
+            int n = size();
+            for (int k = 0; k < count && k < n; k++) {
+                landmarkToAnchor.put("landmark_" + k, anchorId((int) ((long) k * n / count)));
+            }
+        }
+    }
+
+    private SyntheticGraphs() {}
+
+    static Graph generate(Shape shape, int nodes, int landmarks, long seed) {
+        Graph graph;
+        switch (shape) {
+            case CORRIDOR_GRID:
+                graph = corridorGrid(nodes);
+                break;
+            case MULTI_FLOOR:
+                graph = multiFloor(nodes, new Random(seed));
+                break;
+            case RANDOM_GEOMETRIC:
+                graph = randomGeometric(nodes, new Random(seed));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        graph.pickLandmarks(landmarks);
+        return graph;
+    }
+
+    private static Graph corridorGrid(int nodes) {
+        Graph graph = new Graph();
+        addFloor(graph, 0, nodes, 0f);
+        return graph;
+    }
+
+    private static Graph multiFloor(int nodes, Random random) {
+        Graph graph = new Graph();
+        int perFloor = Math.min(nodes, NODES_PER_FLOOR);
+        int previousFloorStart = -1;
+        int previousFloorSize = 0;
+        for (int start = 0, floor = 0; start < nodes; start += perFloor, floor++) {
+            int floorSize = Math.min(perFloor, nodes - start);
+            addFloor(graph, start, floorSize, floor * FLOOR_HEIGHT_M);
+            if (previousFloorStart >= 0) {
+                // Stairwells sit at the same grid cell on both floors.
+                int shared = Math.min(floorSize, previousFloorSize);
+                for (int s = 0; s < STAIRWELLS_PER_FLOOR; s++) {
+                    int cell = random.nextInt(shared);
+                    graph.connect(previousFloorStart + cell, start + cell);
+                }
+            }
+            previousFloorStart = start;
+            previousFloorSize = floorSize;
+        }
+        return graph;
+    }
+
+    /** Lays out {@code count} anchors starting at id {@code first} as a near-square grid. */
+    private static void addFloor(Graph graph, int first, int count, float y) {
+        int cols = (int) Math.ceil(Math.sqrt(count));
+        for (int i = 0; i < count; i++) {
+            graph.addAnchor(first + i, (i % cols) * ANCHOR_SPACING_M, y, (i / cols) * ANCHOR_SPACING_M);
+        }
+        for (int i = 0; i < count; i++) {
+            if (i % cols + 1 < cols && i + 1 < count) graph.connect(first + i, first + i + 1);
+            if (i + cols < count) graph.connect(first + i, first + i + cols);
+        }
+    }
+
+    private static Graph randomGeometric(int nodes, Random random) {
+        Graph graph = new Graph();
+        // Keep the density of a corridor grid: one anchor per square metre of floor plate.
+        float side = (float) Math.sqrt(nodes) * ANCHOR_SPACING_M;
+        float radius = (float) Math.sqrt(RANDOM_GRAPH_MEAN_DEGREE / (Math.PI * nodes)) * side;
+        float[] xs = new float[nodes];
+        float[] zs = new float[nodes];
+        for (int i = 0; i < nodes; i++) {
+            xs[i] = random.nextFloat() * side;
+            zs[i] = random.nextFloat() * side;
+            graph.addAnchor(i, xs[i], 0f, zs[i]);
+        }
+
+        // Bucket anchors into radius-sized cells so only neighbouring cells have to be compared.
+        int cells = Math.max(1, (int) (side / radius));
+        List<List<Integer>> buckets = new ArrayList<>(cells * cells);
+        for (int c = 0; c < cells * cells; c++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < nodes; i++) {
+            buckets.get(cell(xs[i], side, cells) * cells + cell(zs[i], side, cells)).add(i);
+        }
+        for (int i = 0; i < nodes; i++) {
+            int cx = cell(xs[i], side, cells);
+            int cz = cell(zs[i], side, cells);
+            for (int nx = Math.max(0, cx - 1); nx <= Math.min(cells - 1, cx + 1); nx++) {
+                for (int nz = Math.max(0, cz - 1); nz <= Math.min(cells - 1, cz + 1); nz++) {
+                    for (int j : buckets.get(nx * cells + nz)) {
+                        if (j <= i) continue;
+                        float dx = xs[i] - xs[j];
+                        float dz = zs[i] - zs[j];
+                        if (dx * dx + dz * dz < radius * radius) graph.connect(i, j);
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static int cell(float coordinate, float side, int cells) {
+        return Math.min(cells - 1, (int) (coordinate / side * cells));
+    }
+}
@@ -0,0 +1,281 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.*;
+
+
+/**
+ * A* over a compiled {@link NavigationGraph}. An instance owns scratch buffers sized to its graph
+ * and reuses them between queries, so {@link #findPath(int, int, int[])} does not allocate. The
+ * static String API is kept as an adapter for callers that still hold the Firebase maps.
+ *
+ * <p>The heuristic is straight-line distance, tightened by {@link AltLandmarks} bounds when the
+ * pathfinder is created with landmarks. Both are admissible and consistent, so paths stay optimal.
+ *
+ * <p>{@link #findPathBidirectional} runs the same search from both ends at once and meets in the
+ * middle, which explores roughly half the frontier of a one-sided search on large graphs.
+ */
+public class AStarPathfinder implements Pathfinder {
+    private final NavigationGraph graph;
+    private final AltLandmarks landmarks;
+    private final IndexedMinHeap openSet;
+    private final float[] gScores;
+    private final int[] parents;
+    // A node's gScore/parent are only valid when its stamp equals the current query stamp, which
+    // saves clearing the arrays before every search.
+    private final int[] visitStamps;
+    private final int[] closedStamps;
+    private int stamp;
+    private int expandedNodes;
+
+    // Backward half of the bidirectional search, allocated by its first query. parentsBackward
+    // holds the next node towards the goal.
+    private ReverseEdges reverse;
+    private IndexedMinHeap openSetBackward;
+    private float[] gScoresBackward;
+    private int[] parentsBackward;
+    private int[] visitStampsBackward;
+    private int[] closedStampsBackward;
+    // Forward potential per node, cached for the current query
+    private float[] potentials;
+    private int[] potentialStamps;
+    // Node ids of the String API's queries, allocated by the first one
+    private int[] pathBuffer;
+
+    public AStarPathfinder(NavigationGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Creates a pathfinder that uses the landmark lower bounds of {@code landmarks}, which must
+     * have been computed on {@code graph}. A null {@code landmarks} falls back to straight-line
+     * distance alone.
+     */
+    public AStarPathfinder(NavigationGraph graph, AltLandmarks landmarks) {
+        if (landmarks != null && landmarks.graph() != graph) {
+            throw new IllegalArgumentException("Landmarks were computed on another graph");
+        }
+        int n = graph.nodeCount();
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.openSet = new IndexedMinHeap(n);
+        this.gScores = new float[n];
+        this.parents = new int[n];
+        this.visitStamps = new int[n];
+        this.closedStamps = new int[n];
+    }
+
+    public static List<String> findShortestPath(String start, String goal,
+                                                Map<String, float[]> landmarkPositions,
+                                                Map<String, List<String>> connections)
+    {
+        NavigationGraph graph = NavigationGraph.compile(landmarkPositions, connections);
+        return new AStarPathfinder(graph).findShortestPath(start, goal);
+    }
+
+    /** Reuses one path buffer across calls, so a query only allocates the returned list. */
+    @Override
+    public List<String> findShortestPath(String start, String goal) {
+        if (pathBuffer == null) {
+            pathBuffer = new int[graph.nodeCount()];
+        }
+        return findShortestPath(start, goal, pathBuffer);
+    }
+
+    @Override
+    public int findPath(int start, int goal, int[] out) {
+        nextStamp();
+        expandedNodes = 0;
+        openSet.clear();
+
+        visit(start, 0f, -1);
+        openSet.insertOrDecrease(start, heuristic(start, goal));
+
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+
+            // If we reached the goal, reconstruct the path
+            if (current == goal) {
+                return reconstructPath(goal, out);
+            }
+            closedStamps[current] = stamp;
+            expandedNodes++;
+
+            // Explore neighbors
+            float currentG = gScores[current];
+            for (int e = graph.firstEdge(current), end = graph.lastEdge(current); e < end; e++) {
+                int neighbor = graph.edgeTarget(e);
+                if (closedStamps[neighbor] == stamp) continue;
+
+                float tentativeG = currentG + graph.edgeWeight(e);
+                if (visitStamps[neighbor] != stamp || tentativeG < gScores[neighbor]) {
+                    visit(neighbor, tentativeG, current);
+                    openSet.insertOrDecrease(neighbor, tentativeG + heuristic(neighbor, goal));
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bidirectional variant of {@link #findPath}: a forward search from {@code start} and a
+     * backward search from {@code goal}, expanding whichever frontier is smaller. Both use the
+     * average potential {@code p(v) = (h(v, goal) - h(start, v)) / 2} (negated for the backward
+     * search), which keeps the two searches consistent with each other, so the search can stop as
+     * soon as the two smallest keys add up to the best path found so far.
+     */
+    public int findPathBidirectional(int start, int goal, int[] out) {
+        if (start == goal) {
+            expandedNodes = 0;
+            out[0] = start;
+            return 1;
+        }
+        if (reverse == null) {
+            allocateBackward();
+        }
+        nextStamp();
+        expandedNodes = 0;
+        openSet.clear();
+        openSetBackward.clear();
+
+        visit(start, 0f, -1);
+        openSet.insertOrDecrease(start, potential(start, start, goal));
+        visitBackward(goal, 0f, -1);
+        openSetBackward.insertOrDecrease(goal, -potential(goal, start, goal));
+
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (!openSet.isEmpty() && !openSetBackward.isEmpty()) {
+            // The forward key is g + p and the backward key g' - p, so a path through any node
+            // left in both queues is at least as long as the sum of the two smallest keys.
+            if (openSet.peekPriority() + openSetBackward.peekPriority() >= best) break;
+
+            if (openSet.size() <= openSetBackward.size()) {
+                int current = openSet.poll();
+                closedStamps[current] = stamp;
+                expandedNodes++;
+                float currentG = gScores[current];
+                for (int e = graph.firstEdge(current), end = graph.lastEdge(current); e < end; e++) {
+                    int neighbor = graph.edgeTarget(e);
+                    if (closedStamps[neighbor] == stamp) continue;
+
+                    float tentativeG = currentG + graph.edgeWeight(e);
+                    if (visitStamps[neighbor] != stamp || tentativeG < gScores[neighbor]) {
+                        visit(neighbor, tentativeG, current);
+                        openSet.insertOrDecrease(neighbor, tentativeG + potential(neighbor, start, goal));
+                        if (visitStampsBackward[neighbor] == stamp
+                                && tentativeG + gScoresBackward[neighbor] < best) {
+                            best = tentativeG + gScoresBackward[neighbor];
+                            meeting = neighbor;
+                        }
+                    }
+                }
+            } else {
+                int current = openSetBackward.poll();
+                closedStampsBackward[current] = stamp;
+                expandedNodes++;
+                float currentG = gScoresBackward[current];
+                for (int e = reverse.offsets[current], end = reverse.offsets[current + 1]; e < end; e++) {
+                    int neighbor = reverse.sources[e];
+                    if (closedStampsBackward[neighbor] == stamp) continue;
+
+                    float tentativeG = currentG + reverse.weights[e];
+                    if (visitStampsBackward[neighbor] != stamp || tentativeG < gScoresBackward[neighbor]) {
+                        visitBackward(neighbor, tentativeG, current);
+                        openSetBackward.insertOrDecrease(neighbor, tentativeG - potential(neighbor, start, goal));
+                        if (visitStamps[neighbor] == stamp && tentativeG + gScores[neighbor] < best) {
+                            best = tentativeG + gScores[neighbor];
+                            meeting = neighbor;
+                        }
+                    }
+                }
+            }
+        }
+        if (meeting < 0) {
+            return -1;
+        }
+
+        int length = reconstructPath(meeting, out);
+        for (int node = parentsBackward[meeting]; node != -1; node = parentsBackward[node]) {
+            out[length++] = node;
+        }
+        return length;
+    }
+
+    /**
+     * Number of nodes taken off the open set by the last {@link #findPath} or
+     * {@link #findPathBidirectional} call, both directions together.
+     */
+    @Override
+    public int expandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public NavigationGraph graph() {
+        return graph;
+    }
+
+    private void visit(int node, float gScore, int parent) {
+        visitStamps[node] = stamp;
+        gScores[node] = gScore;
+        parents[node] = parent;
+    }
+
+    private void visitBackward(int node, float gScore, int next) {
+        visitStampsBackward[node] = stamp;
+        gScoresBackward[node] = gScore;
+        parentsBackward[node] = next;
+    }
+
+    private void allocateBackward() {
+        int n = graph.nodeCount();
+        reverse = ReverseEdges.of(graph);
+        openSetBackward = new IndexedMinHeap(n);
+        gScoresBackward = new float[n];
+        parentsBackward = new int[n];
+        visitStampsBackward = new int[n];
+        closedStampsBackward = new int[n];
+        potentials = new float[n];
+        potentialStamps = new int[n];
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamps, 0);
+            Arrays.fill(closedStamps, 0);
+            if (reverse != null) {
+                Arrays.fill(visitStampsBackward, 0);
+                Arrays.fill(closedStampsBackward, 0);
+                Arrays.fill(potentialStamps, 0);
+            }
+            stamp = 1;
+        }
+    }
+
+    private int reconstructPath(int goal, int[] out) {
+        int length = 0;
+        for (int node = goal; node != -1; node = parents[node]) {
+            length++;
+        }
+        int i = length;
+        for (int node = goal; node != -1; node = parents[node]) {
+            out[--i] = node;
+        }
+        return length;
+    }
+
+    /** Lower bound on the distance from {@code from} to {@code to}. */
+    private float heuristic(int from, int to) {
+        float euclidean = graph.distance(from, to);
+        return landmarks == null ? euclidean : Math.max(euclidean, landmarks.lowerBound(from, to));
+    }
+
+    /** Forward average potential of {@code node}; the backward search uses its negation. */
+    private float potential(int node, int start, int goal) {
+        if (potentialStamps[node] != stamp) {
+            potentialStamps[node] = stamp;
+            potentials[node] = 0.5f * (heuristic(node, goal) - heuristic(start, node));
+        }
+        return potentials[node];
+    }
+}
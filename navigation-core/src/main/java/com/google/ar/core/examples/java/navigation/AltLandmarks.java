@@ -0,0 +1,179 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Preprocessing for the ALT heuristic (A*, landmarks, triangle inequality). For each of k landmark
+ * nodes L it stores the shortest distances d(L, v) and d(v, L) of every node v. By the triangle
+ * inequality the distance from v to a goal t is at least {@code d(L, t) - d(L, v)} and at least
+ * {@code d(v, L) - d(t, L)}; the largest of these bounds over all landmarks is an admissible and
+ * consistent heuristic, and usually a much tighter one than straight-line distance once routes
+ * bend around walls or change floors.
+ *
+ * <p>Distances are stored node-major ({@code k} floats per node), so evaluating the heuristic at a
+ * node reads one contiguous run. An instance is immutable and can be shared between pathfinders.
+ */
+public final class AltLandmarks {
+    private final NavigationGraph graph;
+    private final int[] landmarks;
+    // fromLandmark[v * k + i] = d(landmarks[i], v), toLandmark[v * k + i] = d(v, landmarks[i])
+    private final float[] fromLandmark;
+    private final float[] toLandmark;
+
+    private AltLandmarks(NavigationGraph graph, int[] landmarks, float[] fromLandmark, float[] toLandmark) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Picks {@code count} landmarks and computes their distance arrays. The nodes named by
+     * {@code preferredIds} are taken first (ids that are not part of the graph are skipped); the
+     * remaining landmarks are chosen by farthest-node selection, each new landmark being the node
+     * farthest from the ones already picked, which spreads them towards the edges of the graph
+     * where their bounds are tightest.
+     */
+    public static AltLandmarks compute(NavigationGraph graph, Collection<String> preferredIds, int count) {
+        int n = graph.nodeCount();
+        int k = Math.min(count, n);
+        int[] picked = preferredIds.stream()
+                .mapToInt(graph::indexOf)
+                .filter(node -> node >= 0)
+                .distinct()
+                .limit(k)
+                .toArray();
+        int[] landmarks = Arrays.copyOf(picked, k);
+        ReverseEdges reverse = ReverseEdges.of(graph);
+        float[][] from = new float[k][];
+        float[][] to = new float[k][];
+
+        // Preferred landmarks are independent of each other
+        IntStream.range(0, picked.length).parallel().forEach(i -> {
+            from[i] = forwardDistances(graph, landmarks[i]);
+            to[i] = backwardDistances(reverse, n, landmarks[i]);
+        });
+
+        if (picked.length < k) {
+            // Distance from each node to its nearest picked landmark, in either direction
+            float[] nearest = new float[n];
+            Arrays.fill(nearest, Float.POSITIVE_INFINITY);
+            for (int i = 0; i < picked.length; i++) {
+                lowerNearest(nearest, from[i], to[i]);
+            }
+            for (int i = picked.length; i < k; i++) {
+                landmarks[i] = i == 0 ? farthestFrom(graph, 0) : farthest(nearest);
+                from[i] = forwardDistances(graph, landmarks[i]);
+                to[i] = backwardDistances(reverse, n, landmarks[i]);
+                lowerNearest(nearest, from[i], to[i]);
+            }
+        }
+
+        float[] fromLandmark = new float[n * k];
+        float[] toLandmark = new float[n * k];
+        for (int i = 0; i < k; i++) {
+            for (int v = 0; v < n; v++) {
+                fromLandmark[v * k + i] = from[i][v];
+                toLandmark[v * k + i] = to[i][v];
+            }
+        }
+        return new AltLandmarks(graph, landmarks, fromLandmark, toLandmark);
+    }
+
+    public NavigationGraph graph() {
+        return graph;
+    }
+
+    public int landmarkCount() {
+        return landmarks.length;
+    }
+
+    public int landmark(int i) {
+        return landmarks[i];
+    }
+
+    /**
+     * Lower bound on the distance from {@code node} to {@code goal}. Landmarks that cannot reach
+     * or be reached from one of the two nodes give no bound and are skipped.
+     */
+    public float lowerBound(int node, int goal) {
+        int k = landmarks.length;
+        int nodeBase = node * k;
+        int goalBase = goal * k;
+        float bound = 0f;
+        for (int i = 0; i < k; i++) {
+            float forward = fromLandmark[goalBase + i] - fromLandmark[nodeBase + i];
+            float backward = toLandmark[nodeBase + i] - toLandmark[goalBase + i];
+            // inf - inf is NaN and fails both comparisons
+            if (forward > bound && forward < Float.POSITIVE_INFINITY) bound = forward;
+            if (backward > bound && backward < Float.POSITIVE_INFINITY) bound = backward;
+        }
+        return bound;
+    }
+
+    private static float[] forwardDistances(NavigationGraph graph, int source) {
+        int n = graph.nodeCount();
+        float[] dist = new float[n];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        IndexedMinHeap open = new IndexedMinHeap(n);
+        dist[source] = 0f;
+        open.insertOrDecrease(source, 0f);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            for (int e = graph.firstEdge(current), end = graph.lastEdge(current); e < end; e++) {
+                int next = graph.edgeTarget(e);
+                float candidate = dist[current] + graph.edgeWeight(e);
+                if (candidate < dist[next]) {
+                    dist[next] = candidate;
+                    open.insertOrDecrease(next, candidate);
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static float[] backwardDistances(ReverseEdges reverse, int n, int target) {
+        float[] dist = new float[n];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        IndexedMinHeap open = new IndexedMinHeap(n);
+        dist[target] = 0f;
+        open.insertOrDecrease(target, 0f);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            for (int e = reverse.offsets[current]; e < reverse.offsets[current + 1]; e++) {
+                int previous = reverse.sources[e];
+                float candidate = dist[current] + reverse.weights[e];
+                if (candidate < dist[previous]) {
+                    dist[previous] = candidate;
+                    open.insertOrDecrease(previous, candidate);
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static void lowerNearest(float[] nearest, float[] from, float[] to) {
+        for (int v = 0; v < nearest.length; v++) {
+            nearest[v] = Math.min(nearest[v], Math.min(from[v], to[v]));
+        }
+    }
+
+    /** Node with the largest finite entry; unreached nodes make poor landmarks for the rest. */
+    private static int farthest(float[] nearest) {
+        int best = 0;
+        float bestDistance = -1f;
+        for (int v = 0; v < nearest.length; v++) {
+            if (nearest[v] > bestDistance && nearest[v] < Float.POSITIVE_INFINITY) {
+                best = v;
+                bestDistance = nearest[v];
+            }
+        }
+        return best;
+    }
+
+    private static int farthestFrom(NavigationGraph graph, int node) {
+        return farthest(forwardDistances(graph, node));
+    }
+}
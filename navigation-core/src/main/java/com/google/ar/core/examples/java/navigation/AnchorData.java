@@ -0,0 +1,30 @@
+package com.google.ar.core.examples.java.navigation;
+
+/** Position and identity of a hosted anchor as stored under the {@code anchors} node. */
+public class AnchorData {
+    public String anchorId;
+    public String cloudAnchorId;
+    public int roomCode;
+    public double x, y, z;
+
+    public AnchorData(String anchorId, String cloudAnchorId, int roomCode, double x, double y, double z) {
+        this.anchorId = anchorId;
+        this.cloudAnchorId = cloudAnchorId;
+        this.roomCode = roomCode;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    @Override
+    public String toString() {
+        return "AnchorData{" +
+                "anchorId='" + anchorId + '\'' +
+                ", cloudAnchorId='" + cloudAnchorId + '\'' +
+                ", roomCode=" + roomCode +
+                ", x=" + x +
+                ", y=" + y +
+                ", z=" + z +
+                '}';
+    }
+}
@@ -0,0 +1,155 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform voxel hash grid over anchor positions. Anchors are bucketed by the cube of side
+ * {@code cellSize} they fall in, so a radius query only looks at the cells overlapping the query
+ * sphere instead of every anchor. The grid is updated incrementally with {@link #add} and
+ * {@link #remove}, or a whole cell at a time with {@link #replaceCell}.
+ *
+ * <p>Cells also have a stable name ({@link #cellName}) so the same bucketing can be mirrored in the
+ * database and only the candidate cells fetched.
+ */
+public class AnchorGrid {
+    private static final int COORD_BITS = 21;
+    private static final int COORD_MASK = (1 << COORD_BITS) - 1;
+
+    private final double cellSize;
+    private final Map<Long, List<AnchorData>> cells = new HashMap<>();
+    private final Map<String, AnchorData> anchorsById = new HashMap<>();
+
+    public AnchorGrid(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    public int size() {
+        return anchorsById.size();
+    }
+
+    public boolean contains(String anchorId) {
+        return anchorsById.containsKey(anchorId);
+    }
+
+    /** Adds an anchor, replacing any previous anchor with the same id. */
+    public void add(AnchorData anchor) {
+        remove(anchor.anchorId);
+        anchorsById.put(anchor.anchorId, anchor);
+        cells.computeIfAbsent(keyOf(anchor.x, anchor.y, anchor.z), k -> new ArrayList<>()).add(anchor);
+    }
+
+    /** Removes the anchor with the given id; returns false if it was not in the grid. */
+    public boolean remove(String anchorId) {
+        AnchorData anchor = anchorsById.remove(anchorId);
+        if (anchor == null) {
+            return false;
+        }
+        long key = keyOf(anchor.x, anchor.y, anchor.z);
+        List<AnchorData> cell = cells.get(key);
+        cell.remove(anchor);
+        if (cell.isEmpty()) {
+            cells.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the contents of the cell named {@code cellName} with {@code anchors}, as read back
+     * from the database: anchors the grid had in that cell but that are no longer listed are
+     * removed. An anchor whose position lies in another cell is added to that cell instead.
+     *
+     * @throws IllegalArgumentException if {@code cellName} is not a name made by this grid
+     */
+    public void replaceCell(String cellName, Collection<AnchorData> anchors) {
+        List<AnchorData> cell = cells.get(keyOfName(cellName));
+        if (cell != null) {
+            for (AnchorData stale : new ArrayList<>(cell)) {
+                remove(stale.anchorId);
+            }
+        }
+        for (AnchorData anchor : anchors) {
+            add(anchor);
+        }
+    }
+
+    /**
+     * Returns the ids of every anchor strictly closer than {@code radius} to (x, y, z), skipping
+     * the anchor whose id is {@code excludeId}. Same contract as {@link NearbyAnchors#findWithin}.
+     */
+    public List<String> findWithin(String excludeId, double x, double y, double z, double radius) {
+        List<String> nearbyAnchors = new ArrayList<>();
+        int minX = cellCoord(x - radius), maxX = cellCoord(x + radius);
+        int minY = cellCoord(y - radius), maxY = cellCoord(y + radius);
+        int minZ = cellCoord(z - radius), maxZ = cellCoord(z + radius);
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    List<AnchorData> cell = cells.get(key(cx, cy, cz));
+                    if (cell == null) continue;
+                    for (AnchorData anchor : cell) {
+                        if (anchor.anchorId.equals(excludeId)) continue;
+                        if (Distances.euclidean(x, y, z, anchor.x, anchor.y, anchor.z) < radius) {
+                            nearbyAnchors.add(anchor.anchorId);
+                        }
+                    }
+                }
+            }
+        }
+        return nearbyAnchors;
+    }
+
+    /** Names of the cells a radius query around (x, y, z) has to look at. */
+    public List<String> cellNamesWithin(double x, double y, double z, double radius) {
+        List<String> names = new ArrayList<>();
+        for (int cx = cellCoord(x - radius); cx <= cellCoord(x + radius); cx++) {
+            for (int cy = cellCoord(y - radius); cy <= cellCoord(y + radius); cy++) {
+                for (int cz = cellCoord(z - radius); cz <= cellCoord(z + radius); cz++) {
+                    names.add(cellName(cx, cy, cz));
+                }
+            }
+        }
+        return names;
+    }
+
+    /** Name of the cell containing (x, y, z), usable as a database key. */
+    public String cellNameOf(double x, double y, double z) {
+        return cellName(cellCoord(x), cellCoord(y), cellCoord(z));
+    }
+
+    private static String cellName(int cx, int cy, int cz) {
+        return cx + "_" + cy + "_" + cz;
+    }
+
+    private static long keyOfName(String cellName) {
+        String[] coords = cellName.split("_", -1);
+        if (coords.length != 3) {
+            throw new IllegalArgumentException("Not a cell name: " + cellName);
+        }
+        try {
+            return key(Integer.parseInt(coords[0]), Integer.parseInt(coords[1]), Integer.parseInt(coords[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a cell name: " + cellName, e);
+        }
+    }
+
+    private int cellCoord(double value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private long keyOf(double x, double y, double z) {
+        return key(cellCoord(x), cellCoord(y), cellCoord(z));
+    }
+
+    private static long key(int cx, int cy, int cz) {
+        return ((long) (cx & COORD_MASK) << (2 * COORD_BITS))
+                | ((long) (cy & COORD_MASK) << COORD_BITS)
+                | (cz & COORD_MASK);
+    }
+}
@@ -0,0 +1,483 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchies over a {@link NavigationGraph}: a one-off preprocessing step ranks the
+ * nodes and adds shortcut edges, after which a query only searches upwards from both ends and
+ * settles a few hundred nodes even on graphs with tens of thousands of anchors. Unlike A* it does
+ * not rely on a geometric heuristic, so stairs and lifts that force long detours between floors do
+ * not slow it down.
+ *
+ * <p>Preprocessing contracts nodes in order of edge difference (shortcuts added minus edges
+ * removed) plus the number of already contracted neighbours, with lazy priority updates. A shortcut
+ * u → w through v is only added when a bounded witness search finds no path from u to w avoiding
+ * v that is as short; a search cut off by its bound adds the shortcut, which is never wrong.
+ *
+ * <p>Queries run a bidirectional Dijkstra on the upward edges and unpack the shortcuts of the
+ * resulting path, so paths are in terms of the original graph and as long as the ones
+ * {@link AStarPathfinder} finds; where several shortest paths exist another one may be returned.
+ */
+public final class ContractionHierarchy implements Pathfinder {
+    // Nodes a witness search may settle before it gives up and the shortcut is added anyway
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+    private static final int NO_EDGE = -1;
+
+    private final NavigationGraph graph;
+    // Every edge: the original ones first, then the shortcuts. A shortcut covers edge child1
+    // followed by edge child2; original edges have child1 == NO_EDGE.
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final float[] edgeWeight;
+    private final int[] edgeChild1;
+    private final int[] edgeChild2;
+    private final int shortcutCount;
+    // Upward search graphs in CSR layout, holding edge ids: forward from edgeFrom to a higher
+    // ranked edgeTo, backward from edgeTo to a higher ranked edgeFrom.
+    private final int[] upOffsets;
+    private final int[] upEdges;
+    private final int[] downOffsets;
+    private final int[] downEdges;
+
+    // Query scratch, reused between queries; stamps avoid clearing the arrays.
+    private final IndexedMinHeap forwardQueue;
+    private final IndexedMinHeap backwardQueue;
+    private final float[] forwardDist;
+    private final float[] backwardDist;
+    private final int[] forwardParentEdge;
+    private final int[] backwardParentEdge;
+    private final int[] forwardStamps;
+    private final int[] backwardStamps;
+    private final int[] unpackStack;
+    private final int[] pathEdges;
+    private int stamp;
+    private int expandedNodes;
+
+    private ContractionHierarchy(NavigationGraph graph, int[] rank, Builder edges) {
+        int n = graph.nodeCount();
+        this.graph = graph;
+        this.edgeFrom = Arrays.copyOf(edges.from, edges.count);
+        this.edgeTo = Arrays.copyOf(edges.to, edges.count);
+        this.edgeWeight = Arrays.copyOf(edges.weight, edges.count);
+        this.edgeChild1 = Arrays.copyOf(edges.child1, edges.count);
+        this.edgeChild2 = Arrays.copyOf(edges.child2, edges.count);
+        this.shortcutCount = edges.shortcuts;
+
+        // Only the live edges (the shortest one per ordered pair) go into the search graphs.
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int e = 0; e < edges.count; e++) {
+            if (!edges.live[e]) continue;
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+                upOffsets[edgeFrom[e] + 1]++;
+            } else {
+                downOffsets[edgeTo[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            upOffsets[i + 1] += upOffsets[i];
+            downOffsets[i + 1] += downOffsets[i];
+        }
+        upEdges = new int[upOffsets[n]];
+        downEdges = new int[downOffsets[n]];
+        int[] upCursor = Arrays.copyOf(upOffsets, n);
+        int[] downCursor = Arrays.copyOf(downOffsets, n);
+        for (int e = 0; e < edges.count; e++) {
+            if (!edges.live[e]) continue;
+            if (rank[edgeTo[e]] > rank[edgeFrom[e]]) {
+                upEdges[upCursor[edgeFrom[e]]++] = e;
+            } else {
+                downEdges[downCursor[edgeTo[e]]++] = e;
+            }
+        }
+
+        forwardQueue = new IndexedMinHeap(n);
+        backwardQueue = new IndexedMinHeap(n);
+        forwardDist = new float[n];
+        backwardDist = new float[n];
+        forwardParentEdge = new int[n];
+        backwardParentEdge = new int[n];
+        forwardStamps = new int[n];
+        backwardStamps = new int[n];
+        unpackStack = new int[n + 1];
+        pathEdges = new int[n];
+    }
+
+    /** Runs the preprocessing for {@code graph}. */
+    public static ContractionHierarchy build(NavigationGraph graph) {
+        Builder builder = new Builder(graph);
+        return new ContractionHierarchy(graph, builder.contract(), builder);
+    }
+
+    @Override
+    public NavigationGraph graph() {
+        return graph;
+    }
+
+    /** Number of shortcut edges the preprocessing added. */
+    public int shortcutCount() {
+        return shortcutCount;
+    }
+
+    @Override
+    public int expandedNodes() {
+        return expandedNodes;
+    }
+
+    @Override
+    public int findPath(int start, int goal, int[] out) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(forwardStamps, 0);
+            Arrays.fill(backwardStamps, 0);
+            stamp = 1;
+        }
+        expandedNodes = 0;
+        forwardQueue.clear();
+        backwardQueue.clear();
+        reach(forwardStamps, forwardDist, forwardParentEdge, start, 0f, NO_EDGE);
+        forwardQueue.insertOrDecrease(start, 0f);
+        reach(backwardStamps, backwardDist, backwardParentEdge, goal, 0f, NO_EDGE);
+        backwardQueue.insertOrDecrease(goal, 0f);
+
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        // Each direction stops once its closest open node is no better than the best meeting.
+        while (true) {
+            boolean forwardOpen = !forwardQueue.isEmpty() && forwardQueue.peekPriority() < best;
+            boolean backwardOpen = !backwardQueue.isEmpty() && backwardQueue.peekPriority() < best;
+            if (!forwardOpen && !backwardOpen) break;
+            boolean forward = forwardOpen
+                    && (!backwardOpen || forwardQueue.peekPriority() <= backwardQueue.peekPriority());
+
+            if (forward) {
+                int node = forwardQueue.poll();
+                expandedNodes++;
+                float d = forwardDist[node];
+                if (backwardStamps[node] == stamp && d + backwardDist[node] < best) {
+                    best = d + backwardDist[node];
+                    meeting = node;
+                }
+                if (stalledForward(node, d)) continue;
+                for (int i = upOffsets[node]; i < upOffsets[node + 1]; i++) {
+                    int e = upEdges[i];
+                    int next = edgeTo[e];
+                    float candidate = d + edgeWeight[e];
+                    if (forwardStamps[next] != stamp || candidate < forwardDist[next]) {
+                        reach(forwardStamps, forwardDist, forwardParentEdge, next, candidate, e);
+                        forwardQueue.insertOrDecrease(next, candidate);
+                    }
+                }
+            } else {
+                int node = backwardQueue.poll();
+                expandedNodes++;
+                float d = backwardDist[node];
+                if (forwardStamps[node] == stamp && d + forwardDist[node] < best) {
+                    best = d + forwardDist[node];
+                    meeting = node;
+                }
+                if (stalledBackward(node, d)) continue;
+                for (int i = downOffsets[node]; i < downOffsets[node + 1]; i++) {
+                    int e = downEdges[i];
+                    int next = edgeFrom[e];
+                    float candidate = d + edgeWeight[e];
+                    if (backwardStamps[next] != stamp || candidate < backwardDist[next]) {
+                        reach(backwardStamps, backwardDist, backwardParentEdge, next, candidate, e);
+                        backwardQueue.insertOrDecrease(next, candidate);
+                    }
+                }
+            }
+        }
+        if (meeting < 0) {
+            return -1;
+        }
+        return unpack(start, meeting, out);
+    }
+
+    /**
+     * Stall-on-demand: {@code node} was reached with a distance that a higher ranked node already
+     * beats through a downward edge, so it is not on a shortest path and need not be expanded.
+     */
+    private boolean stalledForward(int node, float d) {
+        for (int i = downOffsets[node]; i < downOffsets[node + 1]; i++) {
+            int e = downEdges[i];
+            int higher = edgeFrom[e];
+            if (forwardStamps[higher] == stamp && forwardDist[higher] + edgeWeight[e] < d) return true;
+        }
+        return false;
+    }
+
+    private boolean stalledBackward(int node, float d) {
+        for (int i = upOffsets[node]; i < upOffsets[node + 1]; i++) {
+            int e = upEdges[i];
+            int higher = edgeTo[e];
+            if (backwardStamps[higher] == stamp && backwardDist[higher] + edgeWeight[e] < d) return true;
+        }
+        return false;
+    }
+
+    private void reach(int[] stamps, float[] dist, int[] parentEdge, int node, float d, int edge) {
+        stamps[node] = stamp;
+        dist[node] = d;
+        parentEdge[node] = edge;
+    }
+
+    /** Expands the search graph path start → meeting → goal into original nodes. */
+    private int unpack(int start, int meeting, int[] out) {
+        // Forward half, collected back to front, then the backward half in order.
+        int count = 0;
+        for (int e = forwardParentEdge[meeting]; e != NO_EDGE; e = forwardParentEdge[edgeFrom[e]]) {
+            pathEdges[count++] = e;
+        }
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int tmp = pathEdges[i];
+            pathEdges[i] = pathEdges[j];
+            pathEdges[j] = tmp;
+        }
+        for (int e = backwardParentEdge[meeting]; e != NO_EDGE; e = backwardParentEdge[edgeTo[e]]) {
+            pathEdges[count++] = e;
+        }
+
+        int length = 0;
+        out[length++] = start;
+        for (int i = 0; i < count; i++) {
+            int top = 0;
+            unpackStack[top++] = pathEdges[i];
+            while (top > 0) {
+                int e = unpackStack[--top];
+                if (edgeChild1[e] == NO_EDGE) {
+                    out[length++] = edgeTo[e];
+                } else {
+                    unpackStack[top++] = edgeChild2[e];
+                    unpackStack[top++] = edgeChild1[e];
+                }
+            }
+        }
+        return length;
+    }
+
+    /** Edge store and node contraction; only used while building. */
+    private static final class Builder {
+        final int n;
+        int count;
+        int shortcuts;
+        int[] from;
+        int[] to;
+        float[] weight;
+        int[] child1;
+        int[] child2;
+        // False for edges replaced by a shorter edge between the same two nodes
+        boolean[] live;
+        // Edge ids leaving / entering each node, including edges to contracted nodes
+        final int[][] out;
+        final int[] outSize;
+        final int[][] in;
+        final int[] inSize;
+
+        final boolean[] contracted;
+        final int[] contractedNeighbors;
+        // Length of the longest chain of contracted nodes below each node
+        final int[] level;
+        // Witness search scratch
+        final IndexedMinHeap witnessQueue;
+        final float[] witnessDist;
+        final int[] witnessStamps;
+        int witnessStamp;
+
+        Builder(NavigationGraph graph) {
+            n = graph.nodeCount();
+            int capacity = Math.max(16, graph.edgeCount() * 2);
+            from = new int[capacity];
+            to = new int[capacity];
+            weight = new float[capacity];
+            child1 = new int[capacity];
+            child2 = new int[capacity];
+            live = new boolean[capacity];
+            out = new int[n][];
+            outSize = new int[n];
+            in = new int[n][];
+            inSize = new int[n];
+            for (int node = 0; node < n; node++) {
+                int degree = graph.lastEdge(node) - graph.firstEdge(node);
+                out[node] = new int[Math.max(4, degree)];
+                in[node] = new int[4];
+            }
+            contracted = new boolean[n];
+            contractedNeighbors = new int[n];
+            level = new int[n];
+            witnessQueue = new IndexedMinHeap(n);
+            witnessDist = new float[n];
+            witnessStamps = new int[n];
+
+            for (int node = 0; node < n; node++) {
+                for (int e = graph.firstEdge(node); e < graph.lastEdge(node); e++) {
+                    add(node, graph.edgeTarget(e), graph.edgeWeight(e), NO_EDGE, NO_EDGE);
+                }
+            }
+        }
+
+        /** Contracts every node and returns the rank (contraction order) of each. */
+        int[] contract() {
+            int[] rank = new int[n];
+            IndexedMinHeap order = new IndexedMinHeap(n);
+            for (int node = 0; node < n; node++) {
+                order.insertOrDecrease(node, priority(node));
+            }
+            int next = 0;
+            while (!order.isEmpty()) {
+                float queued = order.peekPriority();
+                int node = order.poll();
+                // Lazy update: priorities go stale as neighbours are contracted.
+                float current = priority(node);
+                if (!order.isEmpty() && current > queued && current > order.peekPriority()) {
+                    order.insertOrDecrease(node, current);
+                    continue;
+                }
+                contractNode(node, true);
+                contracted[node] = true;
+                rank[node] = next++;
+                for (int i = 0; i < outSize[node]; i++) {
+                    touch(node, to[out[node][i]]);
+                }
+                for (int i = 0; i < inSize[node]; i++) {
+                    touch(node, from[in[node][i]]);
+                }
+            }
+            return rank;
+        }
+
+        /**
+         * Drops retired edges and edges to contracted nodes from the adjacency of {@code node};
+         * they stay in the edge store for the search graphs and for unpacking.
+         */
+        private void prune(int node) {
+            int kept = 0;
+            for (int i = 0; i < outSize[node]; i++) {
+                int e = out[node][i];
+                if (live[e] && !contracted[to[e]]) out[node][kept++] = e;
+            }
+            outSize[node] = kept;
+            kept = 0;
+            for (int i = 0; i < inSize[node]; i++) {
+                int e = in[node][i];
+                if (live[e] && !contracted[from[e]]) in[node][kept++] = e;
+            }
+            inSize[node] = kept;
+        }
+
+        private float priority(int node) {
+            int removed = 0;
+            for (int i = 0; i < outSize[node]; i++) {
+                if (live[out[node][i]] && !contracted[to[out[node][i]]]) removed++;
+            }
+            for (int i = 0; i < inSize[node]; i++) {
+                if (live[in[node][i]] && !contracted[from[in[node][i]]]) removed++;
+            }
+            int added = contractNode(node, false);
+            return 2f * (added - removed) + contractedNeighbors[node] + level[node];
+        }
+
+        private void touch(int contractedNode, int neighbor) {
+            prune(neighbor);
+            contractedNeighbors[neighbor]++;
+            level[neighbor] = Math.max(level[neighbor], level[contractedNode] + 1);
+        }
+
+        /**
+         * Finds the shortcuts contracting {@code node} needs and adds them if {@code apply};
+         * returns how many there are.
+         */
+        private int contractNode(int node, boolean apply) {
+            int shortcuts = 0;
+            for (int i = 0; i < inSize[node]; i++) {
+                int inEdge = in[node][i];
+                int source = from[inEdge];
+                if (!live[inEdge] || contracted[source]) continue;
+
+                float limit = -1f;
+                for (int j = 0; j < outSize[node]; j++) {
+                    int outEdge = out[node][j];
+                    int target = to[outEdge];
+                    if (!live[outEdge] || contracted[target] || target == source) continue;
+                    limit = Math.max(limit, weight[inEdge] + weight[outEdge]);
+                }
+                if (limit < 0f) continue;
+                witnessSearch(source, node, limit);
+
+                for (int j = 0; j < outSize[node]; j++) {
+                    int outEdge = out[node][j];
+                    int target = to[outEdge];
+                    if (!live[outEdge] || contracted[target] || target == source) continue;
+                    float via = weight[inEdge] + weight[outEdge];
+                    boolean witnessed = witnessStamps[target] == witnessStamp && witnessDist[target] <= via;
+                    if (witnessed) continue;
+                    shortcuts++;
+                    if (apply && add(source, target, via, inEdge, outEdge)) {
+                        this.shortcuts++;
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /** Bounded Dijkstra from {@code source} over uncontracted nodes, skipping {@code via}. */
+        private void witnessSearch(int source, int via, float limit) {
+            witnessStamp++;
+            witnessQueue.clear();
+            witnessStamps[source] = witnessStamp;
+            witnessDist[source] = 0f;
+            witnessQueue.insertOrDecrease(source, 0f);
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && settled++ < WITNESS_SETTLE_LIMIT) {
+                int node = witnessQueue.poll();
+                float d = witnessDist[node];
+                if (d > limit) break;
+                for (int i = 0; i < outSize[node]; i++) {
+                    int e = out[node][i];
+                    int next = to[e];
+                    if (!live[e] || next == via || contracted[next]) continue;
+                    float candidate = d + weight[e];
+                    if (witnessStamps[next] != witnessStamp || candidate < witnessDist[next]) {
+                        witnessStamps[next] = witnessStamp;
+                        witnessDist[next] = candidate;
+                        witnessQueue.insertOrDecrease(next, candidate);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds edge a → b unless an edge between them is already at least as short, in which case
+         * it returns false; a longer one is retired.
+         */
+        private boolean add(int a, int b, float w, int c1, int c2) {
+            if (a == b) return false;
+            for (int i = 0; i < outSize[a]; i++) {
+                int e = out[a][i];
+                if (to[e] != b || !live[e]) continue;
+                if (weight[e] <= w) return false;
+                live[e] = false;
+            }
+            if (count == from.length) {
+                int capacity = count * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                child1 = Arrays.copyOf(child1, capacity);
+                child2 = Arrays.copyOf(child2, capacity);
+                live = Arrays.copyOf(live, capacity);
+            }
+            int e = count++;
+            from[e] = a;
+            to[e] = b;
+            weight[e] = w;
+            child1[e] = c1;
+            child2[e] = c2;
+            live[e] = true;
+            if (outSize[a] == out[a].length) out[a] = Arrays.copyOf(out[a], outSize[a] * 2);
+            out[a][outSize[a]++] = e;
+            if (inSize[b] == in[b].length) in[b] = Arrays.copyOf(in[b], inSize[b] * 2);
+            in[b][inSize[b]++] = e;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.google.ar.core.examples.java.navigation;
+
+/** An augmented image registered as a landmark, as stored under {@code detected_images}. */
+public class DetectedImage {
+    /** Key of the node under {@code detected_images}. */
+    public final String key;
+    public final String imageId;
+    public final String cloudAnchorId;
+    /** Id of the anchor hosted with {@link #cloudAnchorId}, or null if not matched yet. */
+    public final String matchedAnchorId;
+
+    public DetectedImage(String key, String imageId, String cloudAnchorId, String matchedAnchorId) {
+        this.key = key;
+        this.imageId = imageId;
+        this.cloudAnchorId = cloudAnchorId;
+        this.matchedAnchorId = matchedAnchorId;
+    }
+}
@@ -0,0 +1,13 @@
+package com.google.ar.core.examples.java.navigation;
+
+/** Distance helpers shared by the graph builders and the Firebase layer. */
+public final class Distances {
+    private Distances() {}
+
+    public static double euclidean(double x1, double y1, double z1, double x2, double y2, double z2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double dz = z2 - z1;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
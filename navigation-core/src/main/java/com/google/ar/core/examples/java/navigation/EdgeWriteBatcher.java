@@ -0,0 +1,105 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Coalesces anchor connection writes into multi-path updates. Every edge is written in both
+ * directions ({@code <root>/a/b} and {@code <root>/b/a}), and both directions of every pending edge
+ * go out in the same update, so the backend applies them atomically and a bidirectional edge is
+ * never left half-written.
+ *
+ * <p>A batch is flushed when it holds {@code maxEdges} edges or {@code maxDelayMillis} after its
+ * first edge was queued, whichever comes first. Thread-safe.
+ */
+public class EdgeWriteBatcher {
+    /** Applies one multi-path update, e.g. {@code DatabaseReference.updateChildren}. */
+    public interface Backend {
+        void write(Map<String, Object> updates);
+    }
+
+    /** Runs a task after a delay, e.g. {@code Handler.postDelayed}. */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    private final Backend backend;
+    private final Scheduler scheduler;
+    private final String root;
+    private final int maxEdges;
+    private final long maxDelayMillis;
+
+    private Map<String, Object> pending = new LinkedHashMap<>();
+    // Bumped on every flush so a timer armed for an earlier batch does not flush a later one early.
+    private long batch;
+    private int flushes;
+
+    /**
+     * @param root path the connections live under, e.g. {@code "anchorConnections"}
+     */
+    public EdgeWriteBatcher(Backend backend, Scheduler scheduler, String root, int maxEdges,
+                            long maxDelayMillis) {
+        if (maxEdges < 1) {
+            throw new IllegalArgumentException("maxEdges must be at least 1: " + maxEdges);
+        }
+        this.backend = backend;
+        this.scheduler = scheduler;
+        this.root = root;
+        this.maxEdges = maxEdges;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /** Queues the bidirectional edge a ↔ b. */
+    public void connect(String a, String b) {
+        Map<String, Object> toWrite = null;
+        synchronized (this) {
+            boolean wasEmpty = pending.isEmpty();
+            pending.put(root + "/" + a + "/" + b, true);
+            pending.put(root + "/" + b + "/" + a, true);
+            if (pending.size() >= 2 * maxEdges) {
+                toWrite = takeBatch();
+            } else if (wasEmpty) {
+                long armedFor = batch;
+                scheduler.schedule(() -> flushIfStill(armedFor), maxDelayMillis);
+            }
+        }
+        if (toWrite != null) backend.write(toWrite);
+    }
+
+    /** Writes everything queued so far now. */
+    public void flush() {
+        Map<String, Object> toWrite;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            toWrite = takeBatch();
+        }
+        backend.write(toWrite);
+    }
+
+    /** Number of edges waiting for the next flush. */
+    public synchronized int pendingEdges() {
+        return pending.size() / 2;
+    }
+
+    /** Number of updates sent to the backend so far. */
+    public synchronized int flushes() {
+        return flushes;
+    }
+
+    private void flushIfStill(long armedFor) {
+        Map<String, Object> toWrite;
+        synchronized (this) {
+            if (batch != armedFor || pending.isEmpty()) return;
+            toWrite = takeBatch();
+        }
+        backend.write(toWrite);
+    }
+
+    private Map<String, Object> takeBatch() {
+        Map<String, Object> taken = pending;
+        pending = new LinkedHashMap<>();
+        batch++;
+        flushes++;
+        return taken;
+    }
+}
@@ -0,0 +1,156 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.IOException;
+
+/**
+ * Per-stage timing of a render loop. Stages are timed as laps: {@link #beginFrame} starts the
+ * clock, each {@link #lap} records the time since the previous lap into that stage's histogram,
+ * and {@link #endFrame} records the whole frame. Work between stages that should not count
+ * towards any of them is skipped with {@link #mark}.
+ *
+ * <p>GPU durations measured elsewhere (timer queries finish a few frames later) are added with
+ * {@link #recordGpu} and kept in separate histograms.
+ *
+ * <p>Recording never allocates. {@link #appendSummary} and {@link #writeReport} do, so call them
+ * every few seconds rather than every frame. Not thread-safe: use it from the render thread, or
+ * while the render thread is paused.
+ */
+public final class FrameProfiler {
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    private final String[] stages;
+    private final LatencyHistogram[] cpu;
+    private final LatencyHistogram[] gpu;
+    private final LatencyHistogram frames = new LatencyHistogram();
+    private long frameStartNanos;
+    private long lapStartNanos;
+    private boolean inFrame;
+
+    public FrameProfiler(String... stages) {
+        this.stages = stages.clone();
+        this.cpu = new LatencyHistogram[stages.length];
+        this.gpu = new LatencyHistogram[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            cpu[i] = new LatencyHistogram();
+            gpu[i] = new LatencyHistogram();
+        }
+    }
+
+    public int stageCount() {
+        return stages.length;
+    }
+
+    public String stageName(int stage) {
+        return stages[stage];
+    }
+
+    public void beginFrame() {
+        frameStartNanos = System.nanoTime();
+        lapStartNanos = frameStartNanos;
+        inFrame = true;
+    }
+
+    /** Records the time since the previous lap (or the frame start) as one run of {@code stage}. */
+    public void lap(int stage) {
+        long now = System.nanoTime();
+        cpu[stage].recordNanos(now - lapStartNanos);
+        lapStartNanos = now;
+    }
+
+    /** Restarts the lap clock without recording, so the time since the last lap is not counted. */
+    public void mark() {
+        lapStartNanos = System.nanoTime();
+    }
+
+    /** Records the whole frame. Frames that ended early, e.g. while tracking is paused, count too. */
+    public void endFrame() {
+        if (!inFrame) return;
+        frames.recordNanos(System.nanoTime() - frameStartNanos);
+        inFrame = false;
+    }
+
+    public void recordGpu(int stage, long nanos) {
+        gpu[stage].recordNanos(nanos);
+    }
+
+    public LatencyHistogram cpu(int stage) {
+        return cpu[stage];
+    }
+
+    public LatencyHistogram gpu(int stage) {
+        return gpu[stage];
+    }
+
+    public LatencyHistogram frames() {
+        return frames;
+    }
+
+    public void reset() {
+        for (int i = 0; i < stages.length; i++) {
+            cpu[i].reset();
+            gpu[i].reset();
+        }
+        frames.reset();
+        inFrame = false;
+    }
+
+    /**
+     * Appends one line per stage with the CPU p50/p95/p99 in milliseconds, and the GPU ones for
+     * stages that have GPU samples. Meant for an on-screen overlay.
+     */
+    public void appendSummary(StringBuilder out) {
+        out.append("frame ");
+        appendPercentiles(out, frames);
+        for (int i = 0; i < stages.length; i++) {
+            out.append('\n').append(stages[i]).append(' ');
+            appendPercentiles(out, cpu[i]);
+            if (gpu[i].count() > 0) {
+                out.append(" gpu ");
+                appendPercentiles(out, gpu[i]);
+            }
+        }
+    }
+
+    /** Writes a table of every histogram: count, mean, p50, p95, p99 and max, in milliseconds. */
+    public void writeReport(Appendable out) throws IOException {
+        out.append("stage\tclock\tcount\tmean_ms\tp50_ms\tp95_ms\tp99_ms\tmax_ms\n");
+        writeRow(out, "frame", "cpu", frames);
+        for (int i = 0; i < stages.length; i++) {
+            writeRow(out, stages[i], "cpu", cpu[i]);
+            if (gpu[i].count() > 0) {
+                writeRow(out, stages[i], "gpu", gpu[i]);
+            }
+        }
+    }
+
+    private static void writeRow(Appendable out, String stage, String clock,
+                                 LatencyHistogram histogram) throws IOException {
+        StringBuilder row = new StringBuilder();
+        row.append(stage).append('\t').append(clock).append('\t').append(histogram.count());
+        row.append('\t');
+        appendMillis(row, (long) histogram.meanMicros());
+        for (double percentile : PERCENTILES) {
+            row.append('\t');
+            appendMillis(row, histogram.percentileMicros(percentile));
+        }
+        row.append('\t');
+        appendMillis(row, histogram.maxMicros());
+        out.append(row).append('\n');
+    }
+
+    private static void appendPercentiles(StringBuilder out, LatencyHistogram histogram) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            if (i > 0) out.append('/');
+            appendMillis(out, histogram.percentileMicros(PERCENTILES[i]));
+        }
+    }
+
+    // Milliseconds with two decimals, without going through String.format
+    private static void appendMillis(StringBuilder out, long micros) {
+        long hundredths = (micros + 5) / 10;
+        out.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) out.append('0');
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,88 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * One graph version with everything derived from it: the {@link GraphSnapshot}, its compiled
+ * {@link NavigationGraphFile} and routing graph, the precomputed {@link RouteTable}, the
+ * {@link AltLandmarks} and the landmark nodes drawn by the graph screen. Built in full on a
+ * background thread and then published as a unit, so a reader holding a model never sees the
+ * route table of one version next to the routing graph of another.
+ *
+ * <p>Immutable, and every part is safe to read from any thread without locking. The landmark
+ * nodes are shared between readers and must not be modified.
+ */
+public final class GraphModel {
+    private final GraphSnapshot snapshot;
+    private final NavigationGraphFile file;
+    private final NavigationGraph navigationGraph;
+    private final RouteTable routeTable;
+    private final AltLandmarks altLandmarks;
+    private final Map<String, LandmarkNode> landmarkNodes;
+
+    /**
+     * Builds the parts that are derived lazily elsewhere (routing graph, landmark nodes) right
+     * away, so readers never pay for them. {@code file}, {@code routeTable} and
+     * {@code altLandmarks} may be null when the graph could not be compiled.
+     */
+    public GraphModel(GraphSnapshot snapshot, NavigationGraphFile file, RouteTable routeTable,
+                      AltLandmarks altLandmarks) {
+        if (file != null && file.version() != snapshot.version()) {
+            throw new IllegalArgumentException("Graph file v" + file.version()
+                    + " does not belong to snapshot v" + snapshot.version());
+        }
+        this.snapshot = snapshot;
+        this.file = file;
+        this.navigationGraph = file != null ? file.navigationGraph() : null;
+        if (routeTable != null && routeTable.graph() != navigationGraph) {
+            throw new IllegalArgumentException("Route table was computed on another graph");
+        }
+        if (altLandmarks != null && altLandmarks.graph() != navigationGraph) {
+            throw new IllegalArgumentException("Landmarks were computed on another graph");
+        }
+        this.routeTable = routeTable;
+        this.altLandmarks = altLandmarks;
+        this.landmarkNodes = file != null
+                ? Collections.unmodifiableMap(file.landmarkNodes())
+                : Collections.emptyMap();
+    }
+
+    public long version() {
+        return snapshot.version();
+    }
+
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /** True if the snapshot was compiled, i.e. {@link #file()} and the routing graph exist. */
+    public boolean isCompiled() {
+        return file != null;
+    }
+
+    /** The compiled graph, or null if compiling failed. */
+    public NavigationGraphFile file() {
+        return file;
+    }
+
+    /** Routing graph of {@link #file()}, or null if compiling failed. */
+    public NavigationGraph navigationGraph() {
+        return navigationGraph;
+    }
+
+    /** Precomputed routes to every landmark, or null. */
+    public RouteTable routeTable() {
+        return routeTable;
+    }
+
+    /** A* landmark distances, or null. */
+    public AltLandmarks altLandmarks() {
+        return altLandmarks;
+    }
+
+    /** Landmark graph by landmark id; empty if compiling failed. */
+    public Map<String, LandmarkNode> landmarkNodes() {
+        return landmarkNodes;
+    }
+}
@@ -0,0 +1,117 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of the three database nodes routing is built from: {@code anchors},
+ * {@code anchorConnections} and {@code detected_images}, stamped with the server graph version it
+ * was read at. The views the different callers need (cloud anchor keyed positions and edges for
+ * A*, the landmark → anchor mapping for the graph builder) are derived once here, so every caller
+ * works off the same data.
+ */
+public final class GraphSnapshot {
+    private final long version;
+    private final Map<String, AnchorData> anchors;
+    private final Map<String, List<String>> anchorConnections;
+    private final Map<String, DetectedImage> detectedImages;
+
+    private final Map<String, float[]> positionsByCloudAnchorId;
+    private final Map<String, List<String>> connectionsByCloudAnchorId;
+    private final Map<String, String> landmarkToAnchorMap;
+
+    /**
+     * @param anchors anchors by anchor id
+     * @param anchorConnections neighbour anchor ids by anchor id
+     * @param detectedImages detected images by database key
+     */
+    public GraphSnapshot(long version, Map<String, AnchorData> anchors,
+                         Map<String, List<String>> anchorConnections,
+                         Map<String, DetectedImage> detectedImages) {
+        this.version = version;
+        this.anchors = Collections.unmodifiableMap(new LinkedHashMap<>(anchors));
+        Map<String, List<String>> connectionsCopy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : anchorConnections.entrySet()) {
+            connectionsCopy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+        }
+        this.anchorConnections = Collections.unmodifiableMap(connectionsCopy);
+        this.detectedImages = Collections.unmodifiableMap(new LinkedHashMap<>(detectedImages));
+
+        Map<String, String> cloudIdByAnchorId = new HashMap<>();
+        Map<String, String> anchorIdByCloudId = new HashMap<>();
+        Map<String, float[]> positions = new LinkedHashMap<>();
+        for (AnchorData anchor : this.anchors.values()) {
+            if (anchor.cloudAnchorId == null) continue;
+            cloudIdByAnchorId.put(anchor.anchorId, anchor.cloudAnchorId);
+            anchorIdByCloudId.put(anchor.cloudAnchorId, anchor.anchorId);
+            positions.put(anchor.cloudAnchorId,
+                    new float[] {(float) anchor.x, (float) anchor.y, (float) anchor.z});
+        }
+        this.positionsByCloudAnchorId = Collections.unmodifiableMap(positions);
+
+        Map<String, List<String>> cloudConnections = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : this.anchorConnections.entrySet()) {
+            String cloudAnchor = cloudIdByAnchorId.get(entry.getKey());
+            if (cloudAnchor == null) continue;
+            List<String> connectedCloudAnchors = new ArrayList<>();
+            for (String connectedLocal : entry.getValue()) {
+                String connectedCloud = cloudIdByAnchorId.get(connectedLocal);
+                if (connectedCloud != null) {
+                    connectedCloudAnchors.add(connectedCloud);
+                }
+            }
+            cloudConnections.put(cloudAnchor, Collections.unmodifiableList(connectedCloudAnchors));
+        }
+        this.connectionsByCloudAnchorId = Collections.unmodifiableMap(cloudConnections);
+
+        Map<String, String> landmarks = new LinkedHashMap<>();
+        for (DetectedImage image : this.detectedImages.values()) {
+            if (image.imageId == null) continue;
+            String anchorId = image.matchedAnchorId != null
+                    ? image.matchedAnchorId : anchorIdByCloudId.get(image.cloudAnchorId);
+            if (anchorId != null) {
+                landmarks.put(image.imageId, anchorId);
+            }
+        }
+        this.landmarkToAnchorMap = Collections.unmodifiableMap(landmarks);
+    }
+
+    /** Server graph version this snapshot was read at. */
+    public long version() {
+        return version;
+    }
+
+    public Map<String, AnchorData> anchors() {
+        return anchors;
+    }
+
+    public Map<String, List<String>> anchorConnections() {
+        return anchorConnections;
+    }
+
+    public Map<String, DetectedImage> detectedImages() {
+        return detectedImages;
+    }
+
+    /** Anchor positions keyed by cloud anchor id, the keys A* runs on. Do not modify the arrays. */
+    public Map<String, float[]> positionsByCloudAnchorId() {
+        return positionsByCloudAnchorId;
+    }
+
+    /** Anchor connections translated to cloud anchor ids. */
+    public Map<String, List<String>> connectionsByCloudAnchorId() {
+        return connectionsByCloudAnchorId;
+    }
+
+    /**
+     * Landmark (image id) → anchor id. Uses the stored {@code matchedAnchorId} and falls back to the
+     * anchor hosted with the image's cloud anchor id.
+     */
+    public Map<String, String> landmarkToAnchorMap() {
+        return landmarkToAnchorMap;
+    }
+}
@@ -0,0 +1,216 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file format for {@link GraphSnapshot}. Every string is written once into a string table
+ * and referenced by index afterwards; positions are stored as floats.
+ *
+ * <pre>
+ * int    MAGIC
+ * int    FORMAT_VERSION
+ * long   graph version
+ * int    string count, then each string (modified UTF-8)
+ * int    anchor count, then per anchor: int id, int cloud id (-1 = none), int room code, 3 × float
+ * int    connection list count, then per list: int anchor id, int degree, degree × int neighbour
+ * int    image count, then per image: int key, int image id, int cloud id, int matched anchor id
+ * </pre>
+ *
+ * <p>Reading checks every count against the bytes left before allocating for it, so a corrupt or
+ * truncated file fails with an {@link IOException} rather than a runtime exception or an
+ * out-of-memory error.
+ */
+public final class GraphSnapshotCodec {
+    private static final int MAGIC = 0x47534e50; // "GSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NO_STRING = -1;
+
+    // Fewest bytes each counted item can take: a UTF length, and the fixed-size records
+    private static final int MIN_STRING_BYTES = 2;
+    private static final int ANCHOR_BYTES = 6 * 4;
+    private static final int MIN_CONNECTION_LIST_BYTES = 2 * 4;
+    private static final int NEIGHBOR_BYTES = 4;
+    private static final int IMAGE_BYTES = 4 * 4;
+
+    private GraphSnapshotCodec() {}
+
+    public static void write(GraphSnapshot snapshot, OutputStream output) throws IOException {
+        StringTable strings = new StringTable();
+        for (AnchorData anchor : snapshot.anchors().values()) {
+            strings.add(anchor.anchorId);
+            strings.add(anchor.cloudAnchorId);
+        }
+        for (Map.Entry<String, List<String>> entry : snapshot.anchorConnections().entrySet()) {
+            strings.add(entry.getKey());
+            for (String neighbor : entry.getValue()) {
+                strings.add(neighbor);
+            }
+        }
+        for (DetectedImage image : snapshot.detectedImages().values()) {
+            strings.add(image.key);
+            strings.add(image.imageId);
+            strings.add(image.cloudAnchorId);
+            strings.add(image.matchedAnchorId);
+        }
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(snapshot.version());
+
+        out.writeInt(strings.values.size());
+        for (String value : strings.values) {
+            out.writeUTF(value);
+        }
+
+        out.writeInt(snapshot.anchors().size());
+        for (AnchorData anchor : snapshot.anchors().values()) {
+            out.writeInt(strings.indexOf(anchor.anchorId));
+            out.writeInt(strings.indexOf(anchor.cloudAnchorId));
+            out.writeInt(anchor.roomCode);
+            out.writeFloat((float) anchor.x);
+            out.writeFloat((float) anchor.y);
+            out.writeFloat((float) anchor.z);
+        }
+
+        out.writeInt(snapshot.anchorConnections().size());
+        for (Map.Entry<String, List<String>> entry : snapshot.anchorConnections().entrySet()) {
+            out.writeInt(strings.indexOf(entry.getKey()));
+            out.writeInt(entry.getValue().size());
+            for (String neighbor : entry.getValue()) {
+                out.writeInt(strings.indexOf(neighbor));
+            }
+        }
+
+        out.writeInt(snapshot.detectedImages().size());
+        for (DetectedImage image : snapshot.detectedImages().values()) {
+            out.writeInt(strings.indexOf(image.key));
+            out.writeInt(strings.indexOf(image.imageId));
+            out.writeInt(strings.indexOf(image.cloudAnchorId));
+            out.writeInt(strings.indexOf(image.matchedAnchorId));
+        }
+        out.flush();
+    }
+
+    /** Reads a snapshot written by {@link #write}; throws an IOException for any other input. */
+    public static GraphSnapshot read(InputStream input) throws IOException {
+        // Read whole, so the counts below can be checked against what is actually left
+        ByteArrayInputStream source = new ByteArrayInputStream(readFully(input));
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a graph snapshot");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported graph snapshot format " + formatVersion);
+        }
+        long version = in.readLong();
+
+        String[] strings = new String[count(in, source, MIN_STRING_BYTES)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        int anchorCount = count(in, source, ANCHOR_BYTES);
+        Map<String, AnchorData> anchors = new LinkedHashMap<>(anchorCount * 2);
+        for (int i = 0; i < anchorCount; i++) {
+            String anchorId = requiredString(strings, in.readInt());
+            String cloudAnchorId = string(strings, in.readInt());
+            int roomCode = in.readInt();
+            float x = in.readFloat();
+            float y = in.readFloat();
+            float z = in.readFloat();
+            anchors.put(anchorId, new AnchorData(anchorId, cloudAnchorId, roomCode, x, y, z));
+        }
+
+        int connectionCount = count(in, source, MIN_CONNECTION_LIST_BYTES);
+        Map<String, List<String>> connections = new LinkedHashMap<>(connectionCount * 2);
+        for (int i = 0; i < connectionCount; i++) {
+            String anchorId = requiredString(strings, in.readInt());
+            int degree = count(in, source, NEIGHBOR_BYTES);
+            List<String> neighbors = new ArrayList<>(degree);
+            for (int j = 0; j < degree; j++) {
+                neighbors.add(string(strings, in.readInt()));
+            }
+            connections.put(anchorId, neighbors);
+        }
+
+        int imageCount = count(in, source, IMAGE_BYTES);
+        Map<String, DetectedImage> images = new LinkedHashMap<>(imageCount * 2);
+        for (int i = 0; i < imageCount; i++) {
+            String key = requiredString(strings, in.readInt());
+            images.put(key, new DetectedImage(key, string(strings, in.readInt()),
+                    string(strings, in.readInt()), string(strings, in.readInt())));
+        }
+
+        if (source.available() != 0) {
+            throw new IOException(source.available() + " trailing bytes after graph snapshot");
+        }
+        return new GraphSnapshot(version, anchors, connections, images);
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        for (int read; (read = input.read(chunk)) != -1; ) {
+            bytes.write(chunk, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Reads a count of items that take at least {@code minBytes} each of what is left. */
+    private static int count(DataInputStream in, ByteArrayInputStream source, int minBytes)
+            throws IOException {
+        int count = in.readInt();
+        int left = source.available();
+        if (count < 0 || (long) count * minBytes > left) {
+            throw new IOException("Bad count " + count + " with " + left + " bytes left");
+        }
+        return count;
+    }
+
+    private static String requiredString(String[] strings, int index) throws IOException {
+        String value = string(strings, index);
+        if (value == null) {
+            throw new IOException("Missing key string");
+        }
+        return value;
+    }
+
+    private static String string(String[] strings, int index) throws IOException {
+        if (index == NO_STRING) {
+            return null;
+        }
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Bad string reference " + index);
+        }
+        return strings[index];
+    }
+
+    private static final class StringTable {
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> indices = new HashMap<>();
+
+        void add(String value) {
+            if (value != null && !indices.containsKey(value)) {
+                indices.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        int indexOf(String value) {
+            return value == null ? NO_STRING : indices.get(value);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local stand-in for the database behind an {@link EdgeWriteBatcher}, for tests and benchmarks.
+ * Applies multi-path updates to a nested map the way the database would and records each update.
+ */
+public class InMemoryEdgeBackend implements EdgeWriteBatcher.Backend {
+    private final Map<String, Object> root = new LinkedHashMap<>();
+    private final List<Map<String, Object>> writes = new ArrayList<>();
+
+    @Override
+    public synchronized void write(Map<String, Object> updates) {
+        writes.add(new LinkedHashMap<>(updates));
+        for (Map.Entry<String, Object> update : updates.entrySet()) {
+            set(update.getKey().split("/"), update.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(String[] path, Object value) {
+        Map<String, Object> node = root;
+        for (int i = 0; i < path.length - 1; i++) {
+            Object child = node.get(path[i]);
+            if (!(child instanceof Map)) {
+                child = new LinkedHashMap<String, Object>();
+                node.put(path[i], child);
+            }
+            node = (Map<String, Object>) child;
+        }
+        if (value == null) {
+            node.remove(path[path.length - 1]);
+        } else {
+            node.put(path[path.length - 1], value);
+        }
+    }
+
+    /** Value at a slash separated path, or null. */
+    @SuppressWarnings("unchecked")
+    public synchronized Object get(String path) {
+        Object node = root;
+        for (String key : path.split("/")) {
+            if (!(node instanceof Map)) return null;
+            node = ((Map<String, Object>) node).get(key);
+        }
+        return node;
+    }
+
+    /** Every update received so far, in order. */
+    public synchronized List<Map<String, Object>> writes() {
+        return new ArrayList<>(writes);
+    }
+}
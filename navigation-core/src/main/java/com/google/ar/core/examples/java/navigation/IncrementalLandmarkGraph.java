@@ -0,0 +1,353 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Landmark graph that is kept up to date from individual anchor, connection and detected image
+ * changes instead of being rebuilt with {@link LandmarkGraphBuilder} every time. Changes come
+ * either one by one or as a whole new {@link GraphSnapshot} through {@link #update}, which applies
+ * only what differs from the previous one.
+ *
+ * <p>Each landmark owns a full BFS tree (distance and parent of every anchor). A change only
+ * marks the trees it can actually affect as dirty:
+ * <ul>
+ *   <li>adding edge a → b changes a tree only if it makes b closer: {@code dist(a) + 1 < dist(b)};
+ *   <li>removing edge a → b changes a tree only if it is a tree edge: {@code parent(b) == a};
+ *   <li>a landmark whose anchor changes gets a new tree; the others are unaffected.
+ * </ul>
+ * Every other tree still holds shortest paths, so {@link #build} only re-runs the BFS for the dirty
+ * trees and re-assembles the rows of the landmarks whose paths came from them.
+ *
+ * <p>Paths follow the same rules as {@link LandmarkGraphBuilder#build}: only anchors with a
+ * connections entry can start or end a path, and the reverse path is used when only that
+ * direction exists. Where several shortest paths exist the one picked may differ from a full
+ * rebuild. Not thread-safe; confine an instance to one thread.
+ */
+public class IncrementalLandmarkGraph {
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Anchors get a dense index the first time they are seen; indices are never reused.
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private int[][] adjacency = new int[16][];
+    private boolean[] hasEntry = new boolean[16];
+
+    private final Map<String, AnchorData> anchors = new HashMap<>();
+    private final Map<String, DetectedImage> detectedImages = new LinkedHashMap<>();
+    private Map<String, String> landmarkToAnchor = new LinkedHashMap<>();
+
+    private final Map<String, Tree> trees = new HashMap<>();
+    private final Set<String> dirtyTrees = new HashSet<>();
+    // Landmarks whose anchor has no connections entry, and so no tree.
+    private final Set<String> treeless = new HashSet<>();
+    private final Map<String, LandmarkNode> rows = new HashMap<>();
+    private boolean allRowsDirty = true;
+    private int lastRecomputedTrees;
+
+    private static final class Tree {
+        final int[] dist;
+        final int[] parent;
+
+        Tree(int[] dist, int[] parent) {
+            this.dist = dist;
+            this.parent = parent;
+        }
+
+        int dist(int node) {
+            return node < dist.length ? dist[node] : UNREACHABLE;
+        }
+
+        int parent(int node) {
+            return node < parent.length ? parent[node] : -1;
+        }
+    }
+
+    /** Adds or replaces an anchor. Only its cloud anchor id matters for the landmark mapping. */
+    public void putAnchor(AnchorData anchor) {
+        anchors.put(anchor.anchorId, anchor);
+        updateLandmarks();
+    }
+
+    public void removeAnchor(String anchorId) {
+        if (anchors.remove(anchorId) != null) {
+            updateLandmarks();
+        }
+    }
+
+    public void putDetectedImage(DetectedImage image) {
+        detectedImages.put(image.key, image);
+        updateLandmarks();
+    }
+
+    public void removeDetectedImage(String key) {
+        if (detectedImages.remove(key) != null) {
+            updateLandmarks();
+        }
+    }
+
+    /** Replaces the neighbour list of {@code anchorId}, as stored under {@code anchorConnections}. */
+    public void setConnections(String anchorId, List<String> neighbors) {
+        int from = intern(anchorId);
+        if (!hasEntry[from]) {
+            hasEntry[from] = true;
+            entryChanged(anchorId);
+        }
+
+        int[] old = adjacency[from];
+        int[] updated = new int[neighbors.size()];
+        for (int i = 0; i < updated.length; i++) {
+            updated[i] = intern(neighbors.get(i));
+        }
+        for (int to : old) {
+            if (!contains(updated, to)) edgeRemoved(from, to);
+        }
+        for (int to : updated) {
+            if (!contains(old, to)) edgeAdded(from, to);
+        }
+        adjacency[from] = updated;
+    }
+
+    public void removeConnections(String anchorId) {
+        Integer from = indexById.get(anchorId);
+        if (from == null || !hasEntry[from]) return;
+        for (int to : adjacency[from]) {
+            edgeRemoved(from, to);
+        }
+        adjacency[from] = new int[0];
+        hasEntry[from] = false;
+        entryChanged(anchorId);
+    }
+
+    /**
+     * Brings the graph in line with {@code snapshot}. Connection lists are diffed against the
+     * current ones, so only the trees an actual edge change can affect become dirty.
+     */
+    public void update(GraphSnapshot snapshot) {
+        Map<String, List<String>> connections = snapshot.anchorConnections();
+        for (int from = 0; from < ids.size(); from++) {
+            if (hasEntry[from] && !connections.containsKey(ids.get(from))) {
+                removeConnections(ids.get(from));
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : connections.entrySet()) {
+            setConnections(entry.getKey(), entry.getValue());
+        }
+
+        anchors.clear();
+        anchors.putAll(snapshot.anchors());
+        detectedImages.clear();
+        detectedImages.putAll(snapshot.detectedImages());
+        updateLandmarks();
+    }
+
+    /** Current landmark → anchor mapping, derived like {@link GraphSnapshot#landmarkToAnchorMap}. */
+    public Map<String, String> landmarkToAnchorMap() {
+        return Collections.unmodifiableMap(landmarkToAnchor);
+    }
+
+    /** Number of BFS trees the last {@link #build} had to recompute. */
+    public int lastRecomputedTrees() {
+        return lastRecomputedTrees;
+    }
+
+    /**
+     * Brings the dirty trees and rows up to date and returns the landmark graph. The returned
+     * nodes are shared with later calls; do not modify them.
+     */
+    public Map<String, LandmarkNode> build() {
+        List<String> landmarks = new ArrayList<>(landmarkToAnchor.keySet());
+        List<String> recompute = new ArrayList<>();
+        for (String landmark : landmarks) {
+            if (dirtyTrees.contains(landmark)
+                    || (!trees.containsKey(landmark) && !treeless.contains(landmark))) {
+                recompute.add(landmark);
+            }
+        }
+        Tree[] computed = new Tree[recompute.size()];
+        IntStream.range(0, computed.length).parallel().forEach(i ->
+                computed[i] = bfs(source(recompute.get(i))));
+        lastRecomputedTrees = 0;
+        for (int i = 0; i < computed.length; i++) {
+            if (computed[i] == null) {
+                trees.remove(recompute.get(i));
+                treeless.add(recompute.get(i));
+            } else {
+                trees.put(recompute.get(i), computed[i]);
+                treeless.remove(recompute.get(i));
+                lastRecomputedTrees++;
+            }
+        }
+        dirtyTrees.clear();
+
+        // Row r falls back to reversed paths of tree s wherever r cannot reach s, so it has to be
+        // re-assembled when s changed.
+        Set<String> rowsToBuild = new HashSet<>(allRowsDirty ? landmarks : recompute);
+        if (!allRowsDirty) {
+            for (String row : landmarks) {
+                for (String changed : recompute) {
+                    if (!row.equals(changed) && path(row, changed) == null) rowsToBuild.add(row);
+                }
+            }
+        }
+        rows.keySet().retainAll(landmarkToAnchor.keySet());
+        for (String row : rowsToBuild) {
+            if (landmarkToAnchor.containsKey(row)) rows.put(row, buildRow(row, landmarks));
+        }
+        allRowsDirty = false;
+
+        Map<String, LandmarkNode> graph = new HashMap<>();
+        for (String landmark : landmarks) {
+            graph.put(landmark, rows.get(landmark));
+        }
+        return graph;
+    }
+
+    private LandmarkNode buildRow(String landmark, List<String> landmarks) {
+        LandmarkNode node = new LandmarkNode(landmark, new ArrayList<>(), new ArrayList<>());
+        for (String other : landmarks) {
+            if (other.equals(landmark)) continue;
+            List<String> path = path(landmark, other);
+            if (path == null) {
+                path = path(other, landmark);
+                if (path != null) Collections.reverse(path);
+            }
+            if (path == null) continue;
+            node.connectedLandmarks.add(other);
+            node.paths.put(other, path);
+            node.path = path;
+        }
+        return node;
+    }
+
+    /** Anchor path from landmark {@code from} to landmark {@code to} off from's tree, or null. */
+    private List<String> path(String from, String to) {
+        Tree tree = trees.get(from);
+        int target = source(to);
+        if (tree == null || target < 0 || tree.dist(target) == UNREACHABLE) return null;
+        List<String> path = new ArrayList<>(tree.dist(target) + 1);
+        for (int node = target; node != -1; node = tree.parent(node)) {
+            path.add(ids.get(node));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Anchor index a landmark's paths start from, or -1 if its anchor has no connections entry. */
+    private int source(String landmark) {
+        String anchorId = landmarkToAnchor.get(landmark);
+        Integer index = anchorId == null ? null : indexById.get(anchorId);
+        return index != null && hasEntry[index] ? index : -1;
+    }
+
+    private Tree bfs(int source) {
+        if (source < 0) return null;
+        int n = ids.size();
+        int[] dist = new int[n];
+        int[] parent = new int[n];
+        Arrays.fill(dist, UNREACHABLE);
+        Arrays.fill(parent, -1);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        dist[source] = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int neighbor : adjacency[current]) {
+                if (dist[neighbor] != UNREACHABLE) continue;
+                dist[neighbor] = dist[current] + 1;
+                parent[neighbor] = current;
+                queue[tail++] = neighbor;
+            }
+        }
+        return new Tree(dist, parent);
+    }
+
+    private void edgeAdded(int from, int to) {
+        for (Map.Entry<String, Tree> entry : trees.entrySet()) {
+            Tree tree = entry.getValue();
+            int d = tree.dist(from);
+            if (d != UNREACHABLE && d + 1 < tree.dist(to)) dirtyTrees.add(entry.getKey());
+        }
+    }
+
+    private void edgeRemoved(int from, int to) {
+        for (Map.Entry<String, Tree> entry : trees.entrySet()) {
+            if (entry.getValue().parent(to) == from) dirtyTrees.add(entry.getKey());
+        }
+    }
+
+    /** An anchor gained or lost its connections entry, which decides if it can end a path. */
+    private void entryChanged(String anchorId) {
+        for (Map.Entry<String, String> entry : landmarkToAnchor.entrySet()) {
+            if (entry.getValue().equals(anchorId)) {
+                dirtyTrees.add(entry.getKey());
+                allRowsDirty = true;
+            }
+        }
+    }
+
+    private void updateLandmarks() {
+        Map<String, String> anchorIdByCloudId = new HashMap<>();
+        for (AnchorData anchor : anchors.values()) {
+            if (anchor.cloudAnchorId != null) anchorIdByCloudId.put(anchor.cloudAnchorId, anchor.anchorId);
+        }
+        Map<String, String> updated = new LinkedHashMap<>();
+        for (DetectedImage image : detectedImages.values()) {
+            if (image.imageId == null) continue;
+            String anchorId = image.matchedAnchorId != null
+                    ? image.matchedAnchorId : anchorIdByCloudId.get(image.cloudAnchorId);
+            if (anchorId != null) updated.put(image.imageId, anchorId);
+        }
+        if (updated.equals(landmarkToAnchor)) return;
+
+        Set<String> changed = new LinkedHashSet<>(landmarkToAnchor.keySet());
+        changed.addAll(updated.keySet());
+        for (String landmark : changed) {
+            if (!Objects.equals(landmarkToAnchor.get(landmark), updated.get(landmark))) {
+                trees.remove(landmark);
+                treeless.remove(landmark);
+                dirtyTrees.add(landmark);
+            }
+        }
+        landmarkToAnchor = updated;
+        trees.keySet().retainAll(updated.keySet());
+        treeless.retainAll(updated.keySet());
+        dirtyTrees.retainAll(updated.keySet());
+        // Every row lists every other landmark, so a change to the landmark set touches them all;
+        // only the trees above need a new BFS.
+        allRowsDirty = true;
+    }
+
+    private int intern(String anchorId) {
+        Integer index = indexById.get(anchorId);
+        if (index != null) return index;
+        int next = ids.size();
+        if (next == adjacency.length) {
+            adjacency = Arrays.copyOf(adjacency, next * 2);
+            hasEntry = Arrays.copyOf(hasEntry, next * 2);
+        }
+        adjacency[next] = new int[0];
+        ids.add(anchorId);
+        indexById.put(anchorId, next);
+        return next;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over the int node ids {@code [0, capacity)} with float priorities and
+ * decrease-key. All storage is allocated up front, so a search that reuses the heap does not
+ * allocate at all.
+ */
+final class IndexedMinHeap {
+    private final int[] heap;       // heap slot -> node
+    private final int[] slotOf;     // node -> heap slot, -1 when absent
+    private final float[] priority; // node -> priority, valid while the node is in the heap
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        slotOf = new int[capacity];
+        priority = new float[capacity];
+        Arrays.fill(slotOf, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int node) {
+        return slotOf[node] >= 0;
+    }
+
+    /** Removes every element. Costs O(size), not O(capacity). */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            slotOf[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Inserts {@code node}, or lowers its priority if it is already queued. A higher priority for a
+     * queued node is ignored.
+     */
+    void insertOrDecrease(int node, float newPriority) {
+        int slot = slotOf[node];
+        if (slot < 0) {
+            slot = size++;
+            heap[slot] = node;
+            slotOf[node] = slot;
+            priority[node] = newPriority;
+            siftUp(slot);
+        } else if (newPriority < priority[node]) {
+            priority[node] = newPriority;
+            siftUp(slot);
+        }
+    }
+
+    float peekPriority() {
+        return priority[heap[0]];
+    }
+
+    /** Removes and returns the node with the lowest priority. */
+    int poll() {
+        int top = heap[0];
+        slotOf[top] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            slotOf[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int slot) {
+        int node = heap[slot];
+        float p = priority[node];
+        while (slot > 0) {
+            int parentSlot = (slot - 1) >>> 1;
+            int parent = heap[parentSlot];
+            if (priority[parent] <= p) break;
+            heap[slot] = parent;
+            slotOf[parent] = slot;
+            slot = parentSlot;
+        }
+        heap[slot] = node;
+        slotOf[node] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int node = heap[slot];
+        float p = priority[node];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && priority[heap[right]] < priority[heap[child]]) {
+                child = right;
+            }
+            if (p <= priority[heap[child]]) break;
+            heap[slot] = heap[child];
+            slotOf[heap[slot]] = slot;
+            slot = child;
+        }
+        heap[slot] = node;
+        slotOf[node] = slot;
+    }
+}
@@ -0,0 +1,45 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the registry as JSON ({@link MetricsRegistry#writeJson}) to a file, for offline
+ * analysis. Each export replaces the file; it is written next to it and renamed, so a reader
+ * never sees a half-written one.
+ */
+public final class JsonMetricsExporter implements MetricsExporter {
+    private final File file;
+
+    public JsonMetricsExporter(File file) {
+        this.file = file;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    @Override
+    public synchronized void export(MetricsRegistry registry) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            out.append("{\"exportedAtMillis\": ").append(Long.toString(System.currentTimeMillis()));
+            out.append(",\n\"metrics\": ");
+            registry.writeJson(out);
+            out.append("}\n");
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the landmark level navigation graph from the raw anchor connections. This is the part of
+ * {@code GraphBuilder1} that does not depend on Firebase: given the anchor adjacency and the
+ * landmark → anchor mapping it finds the anchor path between every pair of landmarks.
+ *
+ * <p>Instead of one BFS per landmark pair, {@link #build} grows one BFS tree per landmark and reads
+ * the paths to all other landmarks off that tree, which is O(L·(V+E)) overall. The trees are
+ * independent, so they are grown in parallel.
+ */
+public class LandmarkGraphBuilder {
+    private final Map<String, List<String>> anchorConnections;
+
+    public LandmarkGraphBuilder(Map<String, List<String>> anchorConnections) {
+        this.anchorConnections = anchorConnections;
+    }
+
+    /**
+     * Returns one {@link LandmarkNode} per key of {@code landmarkToAnchorMap}, connected to every
+     * landmark its anchor can reach, with the anchor path to each of them in
+     * {@link LandmarkNode#paths}.
+     */
+    public Map<String, LandmarkNode> build(Map<String, String> landmarkToAnchorMap) {
+        List<String> landmarks = new ArrayList<>(landmarkToAnchorMap.keySet());
+        AnchorAdjacency adjacency = new AnchorAdjacency(anchorConnections);
+
+        // Only anchors that have a connections entry can start or end a path, as in the pairwise
+        // search this replaces.
+        int count = landmarks.size();
+        int[] sources = new int[count];
+        for (int i = 0; i < count; i++) {
+            String anchor = landmarkToAnchorMap.get(landmarks.get(i));
+            sources[i] = anchor != null && anchorConnections.containsKey(anchor)
+                    ? adjacency.indexOf(anchor) : -1;
+        }
+
+        // table[i][j] is the anchor path from landmark i to landmark j, or null if unreachable.
+        List<String>[][] table = newTable(count);
+        IntStream.range(0, count).parallel().forEach(i -> {
+            if (sources[i] >= 0) table[i] = adjacency.pathsFrom(sources[i], sources);
+        });
+
+        Map<String, LandmarkNode> graph = new HashMap<>();
+        for (String landmarkId : landmarks) {
+            graph.put(landmarkId, new LandmarkNode(landmarkId, new ArrayList<>(), new ArrayList<>()));
+        }
+        for (int i = 0; i < count; i++) {
+            LandmarkNode node = graph.get(landmarks.get(i));
+            for (int j = 0; j < count; j++) {
+                if (i == j) continue;
+                List<String> path = table[i][j];
+                if (path == null && table[j][i] != null) {
+                    path = new ArrayList<>(table[j][i]);
+                    Collections.reverse(path);
+                }
+                if (path == null) continue;
+
+                node.connectedLandmarks.add(landmarks.get(j));
+                node.paths.put(landmarks.get(j), path);
+                node.path = path;
+            }
+        }
+        return graph;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<String>[][] newTable(int count) {
+        List<String>[][] table = new List[count][];
+        for (int i = 0; i < count; i++) {
+            table[i] = new List[count];
+        }
+        return table;
+    }
+
+    /**
+     * {@link #findShortestPath(String, String)} answered from {@code cache} when the same pair was
+     * already searched on {@code graphVersion}. These paths count hops, not distance, so the cache
+     * should not be shared with weighted searches.
+     */
+    public List<String> findShortestPath(String start, String end, RouteCache cache, long graphVersion) {
+        return cache.computeIfAbsent(start, end, graphVersion, this::findShortestPath);
+    }
+
+    /** Breadth-first search over the anchor connections; returns an empty list if unreachable. */
+    public List<String> findShortestPath(String start, String end) {
+        if (!anchorConnections.containsKey(start) || !anchorConnections.containsKey(end)) {
+            return new ArrayList<>();
+        }
+
+        Queue<List<String>> queue = new LinkedList<>();
+        Set<String> visited = new HashSet<>();
+        queue.add(Collections.singletonList(start));
+        visited.add(start);
+
+        while (!queue.isEmpty()) {
+            List<String> path = queue.poll();
+            String lastNode = path.get(path.size() - 1);
+
+            if (lastNode.equals(end)) {
+                return path; // Stop at first occurrence of the destination
+            }
+
+            for (String neighbor : anchorConnections.getOrDefault(lastNode, new ArrayList<>())) {
+                if (!visited.contains(neighbor)) {
+                    List<String> newPath = new ArrayList<>(path);
+                    newPath.add(neighbor);
+                    queue.add(newPath);
+                    visited.add(neighbor);
+                }
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Unweighted CSR copy of the anchor connections. Neighbours keep their list order, so a BFS
+     * over it discovers nodes in the same order as {@link #findShortestPath} and yields the same
+     * paths.
+     */
+    private static final class AnchorAdjacency {
+        private final String[] ids;
+        private final Map<String, Integer> indexById = new HashMap<>();
+        private final int[] offsets;
+        private final int[] targets;
+
+        AnchorAdjacency(Map<String, List<String>> connections) {
+            List<String> idList = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : connections.entrySet()) {
+                addId(idList, entry.getKey());
+                for (String neighbor : entry.getValue()) {
+                    addId(idList, neighbor);
+                }
+            }
+            ids = idList.toArray(new String[0]);
+
+            offsets = new int[ids.length + 1];
+            for (Map.Entry<String, List<String>> entry : connections.entrySet()) {
+                offsets[indexById.get(entry.getKey()) + 1] = entry.getValue().size();
+            }
+            for (int i = 0; i < ids.length; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            targets = new int[offsets[ids.length]];
+            for (Map.Entry<String, List<String>> entry : connections.entrySet()) {
+                int e = offsets[indexById.get(entry.getKey())];
+                for (String neighbor : entry.getValue()) {
+                    targets[e++] = indexById.get(neighbor);
+                }
+            }
+        }
+
+        private void addId(List<String> idList, String id) {
+            if (!indexById.containsKey(id)) {
+                indexById.put(id, idList.size());
+                idList.add(id);
+            }
+        }
+
+        int indexOf(String id) {
+            return indexById.get(id);
+        }
+
+        /**
+         * Grows a BFS tree from {@code source} until every landmark anchor is reached (or the
+         * component is exhausted) and returns the path to each of them, null where there is none.
+         * Negative entries are skipped.
+         */
+        List<String>[] pathsFrom(int source, int[] landmarkAnchors) {
+            int[] parent = new int[ids.length];
+            Arrays.fill(parent, -2); // -2 = undiscovered, -1 = root
+            int remaining = 0;
+            boolean[] isTarget = new boolean[ids.length];
+            for (int target : landmarkAnchors) {
+                if (target >= 0 && !isTarget[target]) {
+                    isTarget[target] = true;
+                    remaining++;
+                }
+            }
+
+            int[] queue = new int[ids.length];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            parent[source] = -1;
+            if (isTarget[source]) remaining--;
+            while (head < tail && remaining > 0) {
+                int current = queue[head++];
+                for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                    int neighbor = targets[e];
+                    if (parent[neighbor] != -2) continue;
+                    parent[neighbor] = current;
+                    queue[tail++] = neighbor;
+                    if (isTarget[neighbor]) remaining--;
+                }
+            }
+
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<String>[] paths = new List[landmarkAnchors.length];
+            for (int j = 0; j < landmarkAnchors.length; j++) {
+                int target = landmarkAnchors[j];
+                if (target < 0 || parent[target] == -2) continue;
+                LinkedList<String> path = new LinkedList<>();
+                for (int node = target; node != -1; node = parent[node]) {
+                    path.addFirst(ids[node]);
+                }
+                paths[j] = new ArrayList<>(path);
+            }
+            return paths;
+        }
+    }
+}
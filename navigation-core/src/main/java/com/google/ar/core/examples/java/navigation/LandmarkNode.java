@@ -0,0 +1,21 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A named landmark in the navigation graph together with the anchor paths stored for it. */
+public class LandmarkNode {
+    public String landmarkId;
+    public List<String> connectedLandmarks;
+    /** Anchor path to the last landmark in {@link #connectedLandmarks}; kept for old readers. */
+    public List<String> path;
+    /** Anchor path from this landmark to every connected landmark, keyed by landmark id. */
+    public Map<String, List<String>> paths = new HashMap<>();
+
+    public LandmarkNode(String landmarkId, List<String> connections, List<String> paths) {
+        this.landmarkId = landmarkId;
+        this.connectedLandmarks = connections;
+        this.path = paths;
+    }
+}
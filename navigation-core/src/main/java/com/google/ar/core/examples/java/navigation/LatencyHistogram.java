@@ -0,0 +1,99 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of durations in the style of HdrHistogram: every power-of-two range of
+ * microseconds is split into {@value #SUB_BUCKETS} linear buckets, so any recorded value is known
+ * to within about 3% up to roughly 19 hours, in {@value #BUCKET_COUNT} counters. Recording is
+ * a few shifts and an increment and never allocates, which makes it usable once per stage per
+ * frame.
+ *
+ * <p>Percentiles report the upper bound of the bucket the percentile falls in. Not thread-safe.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values from 2^MAX_MAGNITUDE microseconds on land in the last bucket
+    private static final int MAX_MAGNITUDE = 35;
+    static final int BUCKET_COUNT = SUB_BUCKETS * (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2);
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long total;
+    private long sumMicros;
+    private long maxMicros;
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) micros = 0;
+        counts[bucketOf(micros)]++;
+        total++;
+        sumMicros += micros;
+        if (micros > maxMicros) maxMicros = micros;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long maxMicros() {
+        return maxMicros;
+    }
+
+    public double meanMicros() {
+        return total == 0 ? 0 : (double) sumMicros / total;
+    }
+
+    /**
+     * Value at or below which {@code percentile} percent of the recorded values fall, in
+     * microseconds; 0 if nothing was recorded.
+     */
+    public long percentileMicros(double percentile) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    /** Adds the values recorded in {@code other} to this histogram. */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        total += other.total;
+        sumMicros += other.sumMicros;
+        maxMicros = Math.max(maxMicros, other.maxMicros);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        sumMicros = 0;
+        maxMicros = 0;
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude > MAX_MAGNITUDE) return BUCKET_COUNT - 1;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        // micros >>> shift is in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+        return shift * SUB_BUCKETS + (int) (micros >>> shift);
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,8 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.IOException;
+
+/** Sends the current values of a {@link MetricsRegistry} somewhere, e.g. a file or a log. */
+public interface MetricsExporter {
+    void export(MetricsRegistry registry) throws IOException;
+}
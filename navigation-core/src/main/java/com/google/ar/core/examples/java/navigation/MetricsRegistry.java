@@ -0,0 +1,185 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named counters, gauges and histograms for the graph pipeline: loading, building and routing.
+ * Metrics are created on first use and live as long as the registry; look them up once and keep
+ * the reference where a lookup per call would matter.
+ *
+ * <ul>
+ *   <li>{@link Counter}: a monotonic count, e.g. loads or cache misses;</li>
+ *   <li>{@link Gauge}: the latest value, either set or sampled from a supplier when exported,
+ *       e.g. the node count of the current graph or a hit rate;</li>
+ *   <li>{@link Histogram}: a distribution in the unit its name says, e.g. {@code .ms} or
+ *       {@code .us}, kept in a {@link LatencyHistogram}.</li>
+ * </ul>
+ *
+ * <p>{@link MetricsExporter}s read the whole registry, e.g. {@link JsonMetricsExporter} into a
+ * file. Thread-safe.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    private static final double[] PERCENTILES = {50, 95, 99};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p95", "p99"};
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /** The registry shared by the app. */
+    public static MetricsRegistry get() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, key -> new Gauge());
+    }
+
+    /** Registers a gauge whose value is read from {@code source} whenever it is exported. */
+    public void gauge(String name, DoubleSupplier source) {
+        gauge(name).source = source;
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Writes every metric as one JSON object, with the metrics of each kind sorted by name:
+     * {@code {"counters":{..},"gauges":{..},"histograms":{"name":{"count":..,"mean":..,"p50":..,
+     * "p95":..,"p99":..,"max":..}}}}.
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            out.append(separator).append("    ");
+            appendName(out, entry.getKey());
+            out.append(Long.toString(entry.getValue().get()));
+            separator = ",\n";
+        }
+        out.append("\n  },\n  \"gauges\": {");
+        separator = "\n";
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            out.append(separator).append("    ");
+            appendName(out, entry.getKey());
+            appendNumber(out, entry.getValue().get());
+            separator = ",\n";
+        }
+        out.append("\n  },\n  \"histograms\": {");
+        separator = "\n";
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            out.append(separator).append("    ");
+            appendName(out, entry.getKey());
+            entry.getValue().appendJson(out);
+            separator = ",\n";
+        }
+        out.append("\n  }\n}\n");
+    }
+
+    private static void appendName(Appendable out, String name) throws IOException {
+        out.append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append("\": ");
+    }
+
+    private static void appendNumber(Appendable out, double value) throws IOException {
+        // JSON has no NaN or infinities, e.g. for a hit rate before the first lookup
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append(Long.toString((long) value));
+        } else {
+            out.append(Double.toString(value));
+        }
+    }
+
+    /** A count that only goes up. */
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /** The latest value of something, set by its owner or sampled on export. */
+    public static final class Gauge {
+        private volatile double value;
+        private volatile DoubleSupplier source;
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        public double get() {
+            DoubleSupplier current = source;
+            return current != null ? current.getAsDouble() : value;
+        }
+    }
+
+    /** A distribution of non-negative values, e.g. durations or expanded node counts. */
+    public static final class Histogram {
+        private final LatencyHistogram values = new LatencyHistogram();
+
+        public synchronized void record(long value) {
+            values.recordMicros(value);
+        }
+
+        /** Records the time since {@code startNanos}, a {@link System#nanoTime} value, in ms. */
+        public void recordMillisSince(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1_000_000);
+        }
+
+        /** Records the time since {@code startNanos}, a {@link System#nanoTime} value, in us. */
+        public void recordMicrosSince(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1_000);
+        }
+
+        public synchronized long count() {
+            return values.count();
+        }
+
+        public synchronized long percentile(double percentile) {
+            return values.percentileMicros(percentile);
+        }
+
+        synchronized void appendJson(Appendable out) throws IOException {
+            out.append("{\"count\": ").append(Long.toString(values.count()));
+            out.append(", \"mean\": ");
+            appendNumber(out, Math.round(values.meanMicros() * 100) / 100.0);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                out.append(", \"").append(PERCENTILE_NAMES[i]).append("\": ");
+                out.append(Long.toString(values.percentileMicros(PERCENTILES[i])));
+            }
+            out.append(", \"max\": ").append(Long.toString(values.maxMicros())).append('}');
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Logging facade for code that runs per frame or per graph element. A disabled message costs one
+ * volatile read and a compare: the message is only built once the level check and the tag's
+ * sampling have passed, either through the {@link Supplier} overloads or by guarding the call
+ * with {@link #isLoggable}. Messages that are built go to the installed {@link Sink} (the app
+ * installs one writing to logcat) and into an in-memory ring buffer of the most recent records,
+ * which {@link #recent} returns for bug reports.
+ *
+ * <p>In frame loops prefer the {@link #isLoggable} guard: a lambda that captures locals is itself
+ * an allocation, even when it is never called.
+ *
+ * <p>Levels use the numeric values of {@code android.util.Log}. Thread-safe.
+ */
+public final class NavLog {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    /** Minimum level that disables every message. */
+    public static final int OFF = Integer.MAX_VALUE;
+
+    private static final int RING_CAPACITY = 256;
+    private static final String[] LEVEL_NAMES = {"?", "?", "V", "D", "I", "W", "E"};
+
+    /** Receives every record that passed the level and sampling checks. */
+    public interface Sink {
+        void write(int level, String tag, String message, Throwable error);
+    }
+
+    /** One captured message. */
+    public static final class Record {
+        public final long timeMillis;
+        public final int level;
+        public final String tag;
+        public final String message;
+
+        Record(long timeMillis, int level, String tag, String message) {
+            this.timeMillis = timeMillis;
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            String name = level < LEVEL_NAMES.length ? LEVEL_NAMES[level] : "?";
+            return timeMillis + " " + name + "/" + tag + ": " + message;
+        }
+    }
+
+    private static volatile int minLevel = INFO;
+    private static volatile Sink sink = (level, tag, message, error) -> {
+        System.err.println(tag + ": " + message);
+        if (error != null) error.printStackTrace();
+    };
+    // Tag -> keep one message in `every`; tags without an entry keep all of them
+    private static final Map<String, Sampler> samplers = new ConcurrentHashMap<>();
+    private static volatile boolean sampling;
+
+    private static final Record[] ring = new Record[RING_CAPACITY];
+    private static int ringNext;
+    private static int ringSize;
+
+    private NavLog() {}
+
+    public static void setSink(Sink newSink) {
+        sink = newSink;
+    }
+
+    /** Messages below {@code level} are dropped before they are built. */
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    /**
+     * Keeps one in {@code every} messages of {@code tag} that pass the level check, for tags that
+     * would otherwise log every frame. {@code every <= 1} keeps all of them again.
+     */
+    public static void setSampling(String tag, int every) {
+        if (every <= 1) {
+            samplers.remove(tag);
+        } else {
+            samplers.put(tag, new Sampler(every));
+        }
+        sampling = !samplers.isEmpty();
+    }
+
+    /** True if a message at {@code level} would be kept at all; the cheap guard for hot paths. */
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    /**
+     * True if a message of {@code tag} at {@code level} should be built now. Also advances the
+     * tag's sampling counter, so call it once per message.
+     */
+    public static boolean shouldLog(int level, String tag) {
+        if (level < minLevel) return false;
+        if (!sampling) return true;
+        Sampler sampler = samplers.get(tag);
+        return sampler == null || sampler.next();
+    }
+
+    public static void v(String tag, String message) {
+        if (shouldLog(VERBOSE, tag)) emit(VERBOSE, tag, message, null);
+    }
+
+    public static void v(String tag, Supplier<String> message) {
+        if (shouldLog(VERBOSE, tag)) emit(VERBOSE, tag, message.get(), null);
+    }
+
+    public static void d(String tag, String message) {
+        if (shouldLog(DEBUG, tag)) emit(DEBUG, tag, message, null);
+    }
+
+    public static void d(String tag, Supplier<String> message) {
+        if (shouldLog(DEBUG, tag)) emit(DEBUG, tag, message.get(), null);
+    }
+
+    public static void i(String tag, String message) {
+        if (shouldLog(INFO, tag)) emit(INFO, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        if (shouldLog(WARN, tag)) emit(WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable error) {
+        if (shouldLog(WARN, tag)) emit(WARN, tag, message, error);
+    }
+
+    public static void e(String tag, String message) {
+        if (shouldLog(ERROR, tag)) emit(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        if (shouldLog(ERROR, tag)) emit(ERROR, tag, message, error);
+    }
+
+    /** Writes a message that already passed {@link #shouldLog}, e.g. one built after a guard. */
+    public static void emit(int level, String tag, String message, Throwable error) {
+        synchronized (ring) {
+            ring[ringNext] = new Record(System.currentTimeMillis(), level, tag, message);
+            ringNext = (ringNext + 1) % RING_CAPACITY;
+            ringSize = Math.min(ringSize + 1, RING_CAPACITY);
+        }
+        sink.write(level, tag, message, error);
+    }
+
+    /** The most recent records, oldest first. */
+    public static List<Record> recent() {
+        synchronized (ring) {
+            List<Record> records = new ArrayList<>(ringSize);
+            int first = (ringNext - ringSize + RING_CAPACITY) % RING_CAPACITY;
+            for (int i = 0; i < ringSize; i++) {
+                records.add(ring[(first + i) % RING_CAPACITY]);
+            }
+            return records;
+        }
+    }
+
+    public static void clearRecent() {
+        synchronized (ring) {
+            Arrays.fill(ring, null);
+            ringNext = 0;
+            ringSize = 0;
+        }
+    }
+
+    private static final class Sampler {
+        final int every;
+        final AtomicLong count = new AtomicLong();
+
+        Sampler(int every) {
+            this.every = every;
+        }
+
+        boolean next() {
+            return count.getAndIncrement() % every == 0;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, read-only form of the anchor graph. Anchors are mapped to dense int ids, positions
+ * are packed into a single float array and the adjacency is stored in CSR layout, so that the
+ * search code never touches a {@link Map} or boxes a float.
+ */
+public final class NavigationGraph {
+    private final String[] ids;
+    private final Map<String, Integer> indexById;
+    private final float[] coords;    // x, y, z per node
+    private final int[] edgeOffsets; // node i owns edges [edgeOffsets[i], edgeOffsets[i + 1])
+    private final int[] edgeTargets;
+    private final float[] edgeWeights;
+
+    private NavigationGraph(String[] ids, Map<String, Integer> indexById, float[] coords,
+                            int[] edgeOffsets, int[] edgeTargets, float[] edgeWeights) {
+        this.ids = ids;
+        this.indexById = indexById;
+        this.coords = coords;
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.edgeWeights = edgeWeights;
+    }
+
+    /**
+     * Compiles the String keyed representation used by the Firebase loaders. Every key of
+     * {@code positions} with a non-null position becomes a node; edges whose endpoints have no
+     * position are dropped, exactly like the old A* skipped them. Edge weights are the Euclidean
+     * distance between the endpoints.
+     */
+    public static NavigationGraph compile(Map<String, float[]> positions,
+                                          Map<String, List<String>> connections) {
+        int n = 0;
+        for (float[] pos : positions.values()) {
+            if (pos != null) n++;
+        }
+
+        String[] ids = new String[n];
+        Map<String, Integer> indexById = new HashMap<>(n * 2);
+        float[] coords = new float[n * 3];
+        int next = 0;
+        for (Map.Entry<String, float[]> entry : positions.entrySet()) {
+            float[] pos = entry.getValue();
+            if (pos == null) continue;
+            ids[next] = entry.getKey();
+            indexById.put(entry.getKey(), next);
+            coords[next * 3] = pos[0];
+            coords[next * 3 + 1] = pos[1];
+            coords[next * 3 + 2] = pos[2];
+            next++;
+        }
+
+        // First pass counts the out-degree of every node, second pass fills the CSR arrays.
+        int[] edgeOffsets = new int[n + 1];
+        for (Map.Entry<String, List<String>> entry : connections.entrySet()) {
+            Integer from = indexById.get(entry.getKey());
+            if (from == null || entry.getValue() == null) continue;
+            for (String neighbor : entry.getValue()) {
+                if (indexById.containsKey(neighbor)) edgeOffsets[from + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            edgeOffsets[i + 1] += edgeOffsets[i];
+        }
+
+        int[] edgeTargets = new int[edgeOffsets[n]];
+        float[] edgeWeights = new float[edgeOffsets[n]];
+        int[] cursor = Arrays.copyOf(edgeOffsets, n);
+        for (Map.Entry<String, List<String>> entry : connections.entrySet()) {
+            Integer from = indexById.get(entry.getKey());
+            if (from == null || entry.getValue() == null) continue;
+            for (String neighbor : entry.getValue()) {
+                Integer to = indexById.get(neighbor);
+                if (to == null) continue;
+                int e = cursor[from]++;
+                edgeTargets[e] = to;
+                edgeWeights[e] = distance(coords, from, to);
+            }
+        }
+
+        return new NavigationGraph(ids, indexById, coords, edgeOffsets, edgeTargets, edgeWeights);
+    }
+
+    /**
+     * Wraps already compiled arrays, as read back from a {@link NavigationGraphFile}. The arrays
+     * are taken over, not copied.
+     */
+    static NavigationGraph of(String[] ids, float[] coords, int[] edgeOffsets, int[] edgeTargets,
+                              float[] edgeWeights) {
+        Map<String, Integer> indexById = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            indexById.put(ids[i], i);
+        }
+        return new NavigationGraph(ids, indexById, coords, edgeOffsets, edgeTargets, edgeWeights);
+    }
+
+    public int nodeCount() {
+        return ids.length;
+    }
+
+    public int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    /** Returns the dense id of the given anchor, or -1 if it is not part of the graph. */
+    public int indexOf(String id) {
+        Integer index = indexById.get(id);
+        return index == null ? -1 : index;
+    }
+
+    public String idOf(int node) {
+        return ids[node];
+    }
+
+    public float x(int node) {
+        return coords[node * 3];
+    }
+
+    public float y(int node) {
+        return coords[node * 3 + 1];
+    }
+
+    public float z(int node) {
+        return coords[node * 3 + 2];
+    }
+
+    public int firstEdge(int node) {
+        return edgeOffsets[node];
+    }
+
+    /** Exclusive end of the edge range of {@code node}. */
+    public int lastEdge(int node) {
+        return edgeOffsets[node + 1];
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public float edgeWeight(int edge) {
+        return edgeWeights[edge];
+    }
+
+    /** Straight-line distance between two nodes. */
+    public float distance(int a, int b) {
+        return distance(coords, a, b);
+    }
+
+    private static float distance(float[] coords, int a, int b) {
+        float dx = coords[b * 3] - coords[a * 3];
+        float dy = coords[b * 3 + 1] - coords[a * 3 + 1];
+        float dz = coords[b * 3 + 2] - coords[a * 3 + 2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
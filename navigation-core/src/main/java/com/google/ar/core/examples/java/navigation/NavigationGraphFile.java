@@ -0,0 +1,715 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled navigation graph in a flat binary layout that is read in place, typically from a
+ * memory-mapped file. Nothing is parsed when a file is opened: every accessor reads straight from
+ * the buffer, and strings are decoded only when asked for.
+ *
+ * <p>All values are little-endian and 4-byte aligned. The file starts with a header
+ *
+ * <pre>
+ * int MAGIC, int FORMAT_VERSION, long graph version, int section count
+ * </pre>
+ *
+ * followed by length-prefixed sections ({@code int tag, int byte length, payload}). Readers skip
+ * sections with tags they do not know, so new sections can be added without a format bump.
+ *
+ * <pre>
+ * STRS  int count, int[count + 1] byte offsets, UTF-8 bytes (padded)
+ * NODE  int n, int[n] anchor id, int[n] cloud anchor id (-1 = none), float[3n] x, y, z
+ * EDGE  int[n + 1] offsets, int[e] targets, float[e] weights          (CSR, e = offsets[n])
+ * IDXA  int[n] nodes sorted by anchor id
+ * IDXC  int m, int[m] hosted nodes sorted by cloud anchor id
+ * LMRK  int l, int[l] landmark id (sorted), int[l] anchor id,
+ *       int[l + 1] link offsets, int[k] target landmark, int[k + 1] path offsets, int[p] path anchor ids
+ * </pre>
+ *
+ * Strings are referenced by their index in STRS; landmark paths are anchor ids, since a path may
+ * run through anchors that have no position and therefore no node.
+ */
+public final class NavigationGraphFile {
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x4756414e; // "NAVG" in little-endian
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int HEADER_BYTES = 20;
+    private static final int NO_STRING = -1;
+
+    private static final int TAG_STRINGS = 0x53525453;    // "STRS"
+    private static final int TAG_NODES = 0x45444f4e;      // "NODE"
+    private static final int TAG_EDGES = 0x45474445;      // "EDGE"
+    private static final int TAG_ANCHOR_INDEX = 0x41584449; // "IDXA"
+    private static final int TAG_CLOUD_INDEX = 0x43584449;  // "IDXC"
+    private static final int TAG_LANDMARKS = 0x4b524d4c;  // "LMRK"
+
+    private final ByteBuffer buffer;
+    private final long version;
+
+    // Byte offsets of the arrays inside buffer.
+    private final int stringCount;
+    private final int stringOffsets;
+    private final int stringBytes;
+    private final int nodeCount;
+    private final int nodeIds;
+    private final int nodeCloudIds;
+    private final int nodeCoords;
+    private final int edgeOffsets;
+    private final int edgeTargets;
+    private final int edgeWeights;
+    private final int edgeCount;
+    private final int anchorIndex;
+    private final int cloudIndexCount;
+    private final int cloudIndex;
+    private final int landmarkCount;
+    private final int landmarkIds;
+    private final int landmarkAnchors;
+    private final int linkOffsets;
+    private final int linkTargets;
+    private final int pathOffsets;
+    private final int pathAnchors;
+
+    private NavigationGraph navigationGraph;
+
+    private NavigationGraphFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a navigation graph file");
+        }
+        int formatVersion = buffer.getInt(4);
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported navigation graph format " + formatVersion);
+        }
+        version = buffer.getLong(8);
+
+        // Section start and end by tag. Every count below is checked against the end of its
+        // section, so a corrupt file fails here with an IOException rather than in an accessor.
+        Map<Integer, int[]> sections = new HashMap<>();
+        int sectionCount = buffer.getInt(16);
+        long offset = HEADER_BYTES;
+        for (int i = 0; i < sectionCount; i++) {
+            checkRange(offset, 8);
+            int tag = buffer.getInt((int) offset);
+            int length = buffer.getInt((int) offset + 4);
+            checkRange(offset + 8, length);
+            sections.put(tag, new int[] {(int) offset + 8, (int) (offset + 8 + length)});
+            offset += 8 + length;
+        }
+
+        int[] strings = section(sections, TAG_STRINGS);
+        stringCount = count(strings, strings[0]);
+        stringOffsets = strings[0] + 4;
+        stringBytes = checkRange(strings, stringOffsets, stringCount + 1L, 4);
+        checkRange(strings, stringBytes, buffer.getInt(stringOffsets + 4 * stringCount), 1);
+
+        int[] nodes = section(sections, TAG_NODES);
+        nodeCount = count(nodes, nodes[0]);
+        nodeIds = nodes[0] + 4;
+        nodeCloudIds = checkRange(nodes, nodeIds, nodeCount, 4);
+        nodeCoords = checkRange(nodes, nodeCloudIds, nodeCount, 4);
+        checkRange(nodes, nodeCoords, 3L * nodeCount, 4);
+
+        int[] edges = section(sections, TAG_EDGES);
+        edgeOffsets = edges[0];
+        edgeTargets = checkRange(edges, edgeOffsets, nodeCount + 1L, 4);
+        edgeCount = count(edges, edgeOffsets + 4 * nodeCount);
+        edgeWeights = checkRange(edges, edgeTargets, edgeCount, 4);
+        checkRange(edges, edgeWeights, edgeCount, 4);
+
+        int[] anchors = section(sections, TAG_ANCHOR_INDEX);
+        anchorIndex = anchors[0];
+        checkRange(anchors, anchorIndex, nodeCount, 4);
+        int[] cloud = section(sections, TAG_CLOUD_INDEX);
+        cloudIndexCount = count(cloud, cloud[0]);
+        cloudIndex = cloud[0] + 4;
+        checkRange(cloud, cloudIndex, cloudIndexCount, 4);
+
+        int[] landmarks = section(sections, TAG_LANDMARKS);
+        landmarkCount = count(landmarks, landmarks[0]);
+        landmarkIds = landmarks[0] + 4;
+        landmarkAnchors = checkRange(landmarks, landmarkIds, landmarkCount, 4);
+        linkOffsets = checkRange(landmarks, landmarkAnchors, landmarkCount, 4);
+        linkTargets = checkRange(landmarks, linkOffsets, landmarkCount + 1L, 4);
+        int linkCount = count(landmarks, linkOffsets + 4 * landmarkCount);
+        pathOffsets = checkRange(landmarks, linkTargets, linkCount, 4);
+        pathAnchors = checkRange(landmarks, pathOffsets, linkCount + 1L, 4);
+        checkRange(landmarks, pathAnchors, buffer.getInt(pathOffsets + 4 * linkCount), 4);
+    }
+
+    /**
+     * Opens a graph file held in {@code buffer}, usually a read-only mapping of the file. The
+     * buffer is used as is and must not be modified while the returned object is in use.
+     *
+     * @throws IOException if the header, a section or any array it declares does not fit the
+     *     buffer. Only the layout is checked, not the values inside the arrays.
+     */
+    public static NavigationGraphFile wrap(ByteBuffer buffer) throws IOException {
+        return new NavigationGraphFile(buffer.duplicate().order(ORDER));
+    }
+
+    private int[] section(Map<Integer, int[]> sections, int tag) throws IOException {
+        int[] section = sections.get(tag);
+        if (section == null) {
+            throw new IOException("Navigation graph file is missing section " + Integer.toHexString(tag));
+        }
+        return section;
+    }
+
+    private void checkRange(long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new IOException("Truncated navigation graph file");
+        }
+    }
+
+    /**
+     * Checks that {@code count} values of {@code size} bytes at {@code offset} lie inside
+     * {@code section}, and returns the offset just past them.
+     */
+    private static int checkRange(int[] section, int offset, long count, int size) throws IOException {
+        long end = offset + count * size;
+        if (offset < section[0] || count < 0 || end > section[1]) {
+            throw new IOException("Navigation graph section overflows its length");
+        }
+        return (int) end;
+    }
+
+    /** Reads the non-negative count stored at {@code offset} inside {@code section}. */
+    private int count(int[] section, int offset) throws IOException {
+        checkRange(section, offset, 1, 4);
+        int count = buffer.getInt(offset);
+        if (count < 0) {
+            throw new IOException("Negative count in navigation graph file");
+        }
+        return count;
+    }
+
+    /** Server graph version the file was compiled from. */
+    public long version() {
+        return version;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public String idOf(int node) {
+        return string(buffer.getInt(nodeIds + 4 * node));
+    }
+
+    /** Cloud anchor id the node was hosted as, or null. */
+    public String cloudAnchorIdOf(int node) {
+        return string(buffer.getInt(nodeCloudIds + 4 * node));
+    }
+
+    public float x(int node) {
+        return buffer.getFloat(nodeCoords + 12 * node);
+    }
+
+    public float y(int node) {
+        return buffer.getFloat(nodeCoords + 12 * node + 4);
+    }
+
+    public float z(int node) {
+        return buffer.getFloat(nodeCoords + 12 * node + 8);
+    }
+
+    public int firstEdge(int node) {
+        return buffer.getInt(edgeOffsets + 4 * node);
+    }
+
+    /** Exclusive end of the edge range of {@code node}. */
+    public int lastEdge(int node) {
+        return buffer.getInt(edgeOffsets + 4 * (node + 1));
+    }
+
+    public int edgeTarget(int edge) {
+        return buffer.getInt(edgeTargets + 4 * edge);
+    }
+
+    public float edgeWeight(int edge) {
+        return buffer.getFloat(edgeWeights + 4 * edge);
+    }
+
+    /** Returns the node of the given anchor id, or -1. Binary search without decoding strings. */
+    public int indexOf(String anchorId) {
+        int found = search(anchorIndex, nodeCount, nodeIds, utf8(anchorId));
+        return found < 0 ? -1 : buffer.getInt(anchorIndex + 4 * found);
+    }
+
+    /** Returns the node hosted as the given cloud anchor id, or -1. */
+    public int indexOfCloudAnchor(String cloudAnchorId) {
+        int found = search(cloudIndex, cloudIndexCount, nodeCloudIds, utf8(cloudAnchorId));
+        return found < 0 ? -1 : buffer.getInt(cloudIndex + 4 * found);
+    }
+
+    public int landmarkCount() {
+        return landmarkCount;
+    }
+
+    public String landmarkId(int landmark) {
+        return string(buffer.getInt(landmarkIds + 4 * landmark));
+    }
+
+    /** Returns the index of the given landmark, or -1. */
+    public int indexOfLandmark(String landmarkId) {
+        byte[] key = utf8(landmarkId);
+        int low = 0;
+        int high = landmarkCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(buffer.getInt(landmarkIds + 4 * mid), key);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public String landmarkAnchorId(int landmark) {
+        return string(buffer.getInt(landmarkAnchors + 4 * landmark));
+    }
+
+    /** Links of a landmark are [firstLink, lastLink), in the order they were built. */
+    public int firstLink(int landmark) {
+        return buffer.getInt(linkOffsets + 4 * landmark);
+    }
+
+    public int lastLink(int landmark) {
+        return buffer.getInt(linkOffsets + 4 * (landmark + 1));
+    }
+
+    /** The landmark a link leads to. */
+    public int linkTarget(int link) {
+        return buffer.getInt(linkTargets + 4 * link);
+    }
+
+    public int pathLength(int link) {
+        return buffer.getInt(pathOffsets + 4 * (link + 1)) - buffer.getInt(pathOffsets + 4 * link);
+    }
+
+    /** The {@code i}-th anchor id on the precomputed path of {@code link}. */
+    public String pathAnchorId(int link, int i) {
+        return string(buffer.getInt(pathAnchors + 4 * (buffer.getInt(pathOffsets + 4 * link) + i)));
+    }
+
+    /**
+     * Id of {@code node} in {@link #navigationGraph()}: its cloud anchor id, or null if the anchor
+     * was never hosted and is therefore not part of the routing graph.
+     */
+    public String routingIdOf(int node) {
+        return cloudAnchorIdOf(node);
+    }
+
+    /** Materialises the landmark graph in the shape {@link LandmarkGraphBuilder#build} returns. */
+    public Map<String, LandmarkNode> landmarkNodes() {
+        Map<String, LandmarkNode> nodes = new LinkedHashMap<>();
+        for (int l = 0; l < landmarkCount; l++) {
+            LandmarkNode node = new LandmarkNode(landmarkId(l), new ArrayList<>(), new ArrayList<>());
+            for (int link = firstLink(l); link < lastLink(l); link++) {
+                String target = landmarkId(linkTarget(link));
+                List<String> path = new ArrayList<>(pathLength(link));
+                for (int i = 0; i < pathLength(link); i++) {
+                    path.add(pathAnchorId(link, i));
+                }
+                node.connectedLandmarks.add(target);
+                node.paths.put(target, path);
+                node.path = path;
+            }
+            nodes.put(node.landmarkId, node);
+        }
+        return nodes;
+    }
+
+    /**
+     * Routing graph for {@link AStarPathfinder}, keyed by cloud anchor id. Only hosted anchors are
+     * part of it, as with {@link GraphSnapshot#connectionsByCloudAnchorId}, because every id on a
+     * route is resolved as a cloud anchor; edges to anchors that were never hosted are dropped.
+     * Built once per file with bulk copies of the CSR arrays; the search loop itself then runs on
+     * plain arrays.
+     */
+    public synchronized NavigationGraph navigationGraph() {
+        if (navigationGraph == null) {
+            float[] coords = new float[nodeCount * 3];
+            int[] offsets = new int[nodeCount + 1];
+            int[] targets = new int[edgeCount];
+            float[] weights = new float[edgeCount];
+            floats(nodeCoords, coords);
+            ints(edgeOffsets, offsets);
+            ints(edgeTargets, targets);
+            floats(edgeWeights, weights);
+
+            // Routing node of every hosted node, -1 for the others
+            int[] routingNode = new int[nodeCount];
+            List<String> ids = new ArrayList<>(nodeCount);
+            for (int node = 0; node < nodeCount; node++) {
+                String cloudAnchorId = cloudAnchorIdOf(node);
+                routingNode[node] = cloudAnchorId != null ? ids.size() : -1;
+                if (cloudAnchorId != null) ids.add(cloudAnchorId);
+            }
+            if (ids.size() == nodeCount) {
+                navigationGraph = NavigationGraph.of(ids.toArray(new String[0]), coords, offsets, targets, weights);
+            } else {
+                navigationGraph = hostedSubgraph(ids, routingNode, coords, offsets, targets, weights);
+            }
+        }
+        return navigationGraph;
+    }
+
+    /** The graph induced by the nodes with a {@code routingNode}, renumbered to those. */
+    private NavigationGraph hostedSubgraph(List<String> ids, int[] routingNode, float[] coords,
+                                           int[] offsets, int[] targets, float[] weights) {
+        int m = ids.size();
+        float[] hostedCoords = new float[m * 3];
+        int[] hostedOffsets = new int[m + 1];
+        int[] hostedTargets = new int[edgeCount];
+        float[] hostedWeights = new float[edgeCount];
+        int edges = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int from = routingNode[node];
+            if (from < 0) continue;
+            System.arraycopy(coords, node * 3, hostedCoords, from * 3, 3);
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int to = routingNode[targets[edge]];
+                if (to < 0) continue;
+                hostedTargets[edges] = to;
+                hostedWeights[edges] = weights[edge];
+                edges++;
+            }
+            hostedOffsets[from + 1] = edges;
+        }
+        return NavigationGraph.of(ids.toArray(new String[0]), hostedCoords, hostedOffsets,
+                Arrays.copyOf(hostedTargets, edges), Arrays.copyOf(hostedWeights, edges));
+    }
+
+    private void ints(int offset, int[] out) {
+        ByteBuffer view = buffer.duplicate().order(ORDER);
+        ((Buffer) view).position(offset);
+        view.asIntBuffer().get(out);
+    }
+
+    private void floats(int offset, float[] out) {
+        ByteBuffer view = buffer.duplicate().order(ORDER);
+        ((Buffer) view).position(offset);
+        view.asFloatBuffer().get(out);
+    }
+
+    /** Binary search over {@code count} node indices at {@code index}, ordered by string ref. */
+    private int search(int index, int count, int refs, byte[] key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int node = buffer.getInt(index + 4 * mid);
+            int cmp = compare(buffer.getInt(refs + 4 * node), key);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares a stored string with {@code key} in UTF-8 byte order without decoding it. The
+     * writer sorts in the same order.
+     */
+    private int compare(int ref, byte[] keyBytes) {
+        int start = buffer.getInt(stringOffsets + 4 * ref);
+        int length = buffer.getInt(stringOffsets + 4 * (ref + 1)) - start;
+        int common = Math.min(length, keyBytes.length);
+        for (int i = 0; i < common; i++) {
+            int a = buffer.get(stringBytes + start + i) & 0xff;
+            int b = keyBytes[i] & 0xff;
+            if (a != b) return a - b;
+        }
+        return length - keyBytes.length;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String string(int ref) {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsets + 4 * ref);
+        int length = buffer.getInt(stringOffsets + 4 * (ref + 1)) - start;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(stringBytes + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compiles {@code snapshot}: the anchor graph from the anchor positions and connections, and
+     * the landmark paths with {@link LandmarkGraphBuilder}.
+     */
+    public static ByteBuffer encode(GraphSnapshot snapshot) {
+        return encode(snapshot,
+                new LandmarkGraphBuilder(snapshot.anchorConnections()).build(snapshot.landmarkToAnchorMap()));
+    }
+
+    /**
+     * Compiles {@code snapshot} with landmark paths that were already built for it, e.g. by an
+     * {@link IncrementalLandmarkGraph} that has been {@link IncrementalLandmarkGraph#update updated}
+     * to it.
+     */
+    public static ByteBuffer encode(GraphSnapshot snapshot, Map<String, LandmarkNode> landmarks) {
+        Map<String, float[]> positions = new LinkedHashMap<>();
+        Map<String, String> cloudAnchorIds = new HashMap<>();
+        for (AnchorData anchor : snapshot.anchors().values()) {
+            positions.put(anchor.anchorId, new float[] {(float) anchor.x, (float) anchor.y, (float) anchor.z});
+            if (anchor.cloudAnchorId != null) {
+                cloudAnchorIds.put(anchor.anchorId, anchor.cloudAnchorId);
+            }
+        }
+        NavigationGraph graph = NavigationGraph.compile(positions, snapshot.anchorConnections());
+        return encode(snapshot.version(), graph, cloudAnchorIds, snapshot.landmarkToAnchorMap(), landmarks);
+    }
+
+    /**
+     * Encodes a graph into a new buffer, positioned at 0 and limited to the encoded length.
+     *
+     * @param graph anchor graph keyed by anchor id
+     * @param cloudAnchorIds cloud anchor id by anchor id, for the hosted anchors
+     * @param landmarkToAnchor anchor id of every landmark
+     * @param landmarks landmark graph as built by {@link LandmarkGraphBuilder#build}
+     */
+    public static ByteBuffer encode(long version, NavigationGraph graph, Map<String, String> cloudAnchorIds,
+                                    Map<String, String> landmarkToAnchor, Map<String, LandmarkNode> landmarks) {
+        int n = graph.nodeCount();
+
+        // String table, sorted in UTF-8 byte order so the indices can be binary searched.
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> refs = new HashMap<>();
+        List<String> collected = new ArrayList<>();
+        for (int node = 0; node < n; node++) {
+            collected.add(graph.idOf(node));
+            collected.add(cloudAnchorIds.get(graph.idOf(node)));
+        }
+        for (LandmarkNode landmark : landmarks.values()) {
+            collected.add(landmark.landmarkId);
+            collected.add(landmarkToAnchor.get(landmark.landmarkId));
+            for (List<String> path : landmark.paths.values()) {
+                collected.addAll(path);
+            }
+        }
+        for (String value : collected) {
+            if (value != null && !refs.containsKey(value)) {
+                refs.put(value, -1);
+                strings.add(value);
+            }
+        }
+        byte[][] encoded = new byte[strings.size()][];
+        Integer[] order = new Integer[strings.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareBytes(encoded[a], encoded[b]));
+        for (int i = 0; i < order.length; i++) {
+            refs.put(strings.get(order[i]), i);
+        }
+
+        Sink out = new Sink();
+        out.putInt(MAGIC);
+        out.putInt(FORMAT_VERSION);
+        out.putLong(version);
+        out.putInt(6);
+
+        int section = out.beginSection(TAG_STRINGS);
+        out.putInt(order.length);
+        int byteOffset = 0;
+        out.putInt(0);
+        for (Integer i : order) {
+            byteOffset += encoded[i].length;
+            out.putInt(byteOffset);
+        }
+        for (Integer i : order) {
+            out.putBytes(encoded[i]);
+        }
+        out.endSection(section);
+
+        section = out.beginSection(TAG_NODES);
+        out.putInt(n);
+        for (int node = 0; node < n; node++) {
+            out.putInt(refs.get(graph.idOf(node)));
+        }
+        for (int node = 0; node < n; node++) {
+            out.putInt(ref(refs, cloudAnchorIds.get(graph.idOf(node))));
+        }
+        for (int node = 0; node < n; node++) {
+            out.putFloat(graph.x(node));
+            out.putFloat(graph.y(node));
+            out.putFloat(graph.z(node));
+        }
+        out.endSection(section);
+
+        section = out.beginSection(TAG_EDGES);
+        for (int node = 0; node < n; node++) {
+            out.putInt(graph.firstEdge(node));
+        }
+        out.putInt(graph.edgeCount());
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            out.putInt(graph.edgeTarget(e));
+        }
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            out.putFloat(graph.edgeWeight(e));
+        }
+        out.endSection(section);
+
+        Integer[] byId = new Integer[n];
+        List<Integer> hosted = new ArrayList<>();
+        for (int node = 0; node < n; node++) {
+            byId[node] = node;
+            if (cloudAnchorIds.get(graph.idOf(node)) != null) hosted.add(node);
+        }
+        Arrays.sort(byId, (a, b) -> Integer.compare(refs.get(graph.idOf(a)), refs.get(graph.idOf(b))));
+        hosted.sort((a, b) -> Integer.compare(
+                refs.get(cloudAnchorIds.get(graph.idOf(a))), refs.get(cloudAnchorIds.get(graph.idOf(b)))));
+
+        section = out.beginSection(TAG_ANCHOR_INDEX);
+        for (Integer node : byId) {
+            out.putInt(node);
+        }
+        out.endSection(section);
+
+        section = out.beginSection(TAG_CLOUD_INDEX);
+        out.putInt(hosted.size());
+        for (Integer node : hosted) {
+            out.putInt(node);
+        }
+        out.endSection(section);
+
+        List<String> landmarkIds = new ArrayList<>(landmarks.keySet());
+        landmarkIds.sort((a, b) -> Integer.compare(refs.get(a), refs.get(b)));
+        Map<String, Integer> landmarkIndex = new HashMap<>();
+        for (int l = 0; l < landmarkIds.size(); l++) {
+            landmarkIndex.put(landmarkIds.get(l), l);
+        }
+
+        section = out.beginSection(TAG_LANDMARKS);
+        out.putInt(landmarkIds.size());
+        for (String landmarkId : landmarkIds) {
+            out.putInt(refs.get(landmarkId));
+        }
+        for (String landmarkId : landmarkIds) {
+            out.putInt(ref(refs, landmarkToAnchor.get(landmarkId)));
+        }
+        List<Integer> targets = new ArrayList<>();
+        List<List<String>> paths = new ArrayList<>();
+        out.putInt(0);
+        for (String landmarkId : landmarkIds) {
+            LandmarkNode landmark = landmarks.get(landmarkId);
+            for (String connected : landmark.connectedLandmarks) {
+                Integer target = landmarkIndex.get(connected);
+                List<String> path = landmark.paths.get(connected);
+                if (target == null || path == null) continue;
+                targets.add(target);
+                paths.add(path);
+            }
+            out.putInt(targets.size());
+        }
+        for (Integer target : targets) {
+            out.putInt(target);
+        }
+        int pathOffset = 0;
+        out.putInt(0);
+        for (List<String> path : paths) {
+            pathOffset += path.size();
+            out.putInt(pathOffset);
+        }
+        for (List<String> path : paths) {
+            for (String anchorId : path) {
+                out.putInt(refs.get(anchorId));
+            }
+        }
+        out.endSection(section);
+
+        return out.finish();
+    }
+
+    private static int ref(Map<String, Integer> refs, String value) {
+        return value == null ? NO_STRING : refs.get(value);
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return a.length - b.length;
+    }
+
+    /** Growable little-endian buffer with 4-byte aligned, length-prefixed sections. */
+    private static final class Sink {
+        private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ORDER);
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                        .order(ORDER);
+                grown.put(buffer.array(), 0, buffer.position());
+                buffer = grown;
+            }
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putFloat(float value) {
+            ensure(4);
+            buffer.putFloat(value);
+        }
+
+        void putBytes(byte[] bytes) {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        /** Writes the section header and returns the offset of its length field. */
+        int beginSection(int tag) {
+            putInt(tag);
+            int lengthOffset = buffer.position();
+            putInt(0);
+            return lengthOffset;
+        }
+
+        void endSection(int lengthOffset) {
+            while (buffer.position() % 4 != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+            buffer.putInt(lengthOffset, buffer.position() - lengthOffset - 4);
+        }
+
+        ByteBuffer finish() {
+            ByteBuffer result = ByteBuffer.wrap(buffer.array(), 0, buffer.position()).slice();
+            return result.order(ORDER);
+        }
+    }
+}
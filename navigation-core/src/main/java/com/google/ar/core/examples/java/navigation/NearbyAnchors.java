@@ -0,0 +1,27 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/** Finds the anchors close enough to a newly hosted anchor to be connected to it. */
+public final class NearbyAnchors {
+    private NearbyAnchors() {}
+
+    /**
+     * Returns the ids of every anchor strictly closer than {@code threshold} to (x, y, z), skipping
+     * the anchor whose id is {@code excludeId}.
+     */
+    public static List<String> findWithin(Collection<AnchorData> anchors, String excludeId,
+                                          double x, double y, double z, double threshold) {
+        List<String> nearbyAnchors = new ArrayList<>();
+        for (AnchorData anchor : anchors) {
+            if (anchor.anchorId.equals(excludeId)) continue; // Skip itself
+
+            if (Distances.euclidean(x, y, z, anchor.x, anchor.y, anchor.z) < threshold) {
+                nearbyAnchors.add(anchor.anchorId);
+            }
+        }
+        return nearbyAnchors;
+    }
+}
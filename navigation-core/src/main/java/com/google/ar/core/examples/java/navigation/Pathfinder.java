@@ -0,0 +1,51 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point-to-point shortest path queries over a {@link NavigationGraph}. Implementations own
+ * scratch buffers that are reused between queries, so an instance must not be shared between
+ * threads.
+ */
+public interface Pathfinder {
+    /**
+     * Writes the node ids of the shortest path from {@code start} to {@code goal} into {@code out},
+     * start first, and returns the number of ids written or -1 if {@code goal} is unreachable.
+     * {@code out} must be able to hold {@link NavigationGraph#nodeCount()} ids.
+     */
+    int findPath(int start, int goal, int[] out);
+
+    /** Number of nodes the last {@link #findPath} call settled, over all search directions. */
+    int expandedNodes();
+
+    NavigationGraph graph();
+
+    /** Returns the anchor ids from {@code start} to {@code goal}, or null if there is no path. */
+    default List<String> findShortestPath(String start, String goal) {
+        return findShortestPath(start, goal, new int[graph().nodeCount()]);
+    }
+
+    /**
+     * Like {@link #findShortestPath(String, String)}, with {@code nodes} as the scratch buffer for
+     * {@link #findPath}, so repeated queries only allocate the returned list.
+     */
+    default List<String> findShortestPath(String start, String goal, int[] nodes) {
+        NavigationGraph graph = graph();
+        int startNode = graph.indexOf(start);
+        int goalNode = graph.indexOf(goal);
+        if (startNode < 0 || goalNode < 0) {
+            return null;
+        }
+
+        int length = findPath(startNode, goalNode, nodes);
+        if (length < 0) {
+            return null;
+        }
+        List<String> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(graph.idOf(nodes[i]));
+        }
+        return path;
+    }
+}
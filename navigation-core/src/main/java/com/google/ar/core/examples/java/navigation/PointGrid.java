@@ -0,0 +1,120 @@
+package com.google.ar.core.examples.java.navigation;
+
+/**
+ * Static uniform grid over 2D points, for viewport culling: which points fall inside a rectangle.
+ * Points are bucketed once into flat arrays (cell offsets and point indices, like the CSR edges of
+ * {@link NavigationGraph}), so a query only visits the cells the rectangle overlaps and never
+ * allocates. Unlike {@link AnchorGrid} it cannot be updated; build a new one when the points move.
+ */
+public final class PointGrid {
+    // Keeps the cell arrays proportional to the point count when the points are spread thinly
+    private static final int MAX_CELLS_PER_POINT = 4;
+
+    private final float[] xs;
+    private final float[] ys;
+    private final int count;
+    private final float originX;
+    private final float originY;
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] points;
+
+    /**
+     * Indexes the first {@code count} points of {@code xs} and {@code ys}, which are kept, not
+     * copied. {@code cellSize} is a hint; it grows if the points would need too many cells.
+     */
+    public PointGrid(float[] xs, float[] ys, int count, float cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.xs = xs;
+        this.ys = ys;
+        this.count = count;
+
+        float minX = 0, minY = 0, maxX = 0, maxY = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || xs[i] < minX) minX = xs[i];
+            if (i == 0 || ys[i] < minY) minY = ys[i];
+            if (i == 0 || xs[i] > maxX) maxX = xs[i];
+            if (i == 0 || ys[i] > maxY) maxY = ys[i];
+        }
+        long maxCells = (long) MAX_CELLS_PER_POINT * count + 1;
+        while (cellCount(maxX - minX, maxY - minY, cellSize) > maxCells) {
+            cellSize *= 2;
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.cellSize = cellSize;
+        this.columns = (int) ((maxX - minX) / cellSize) + 1;
+        this.rows = (int) ((maxY - minY) / cellSize) + 1;
+
+        // Counting sort of the points by cell
+        this.cellStart = new int[columns * rows + 1];
+        int[] cellOf = new int[count];
+        for (int i = 0; i < count; i++) {
+            cellOf[i] = cell(column(xs[i]), row(ys[i]));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        this.points = new int[count];
+        int[] next = new int[columns * rows];
+        System.arraycopy(cellStart, 0, next, 0, next.length);
+        for (int i = 0; i < count; i++) {
+            points[next[cellOf[i]]++] = i;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the indices of the points inside the rectangle, bounds included, to {@code out} and
+     * returns how many there are. {@code out} must hold {@link #size()} indices.
+     */
+    public int query(float minX, float minY, float maxX, float maxY, int[] out) {
+        if (count == 0 || maxX < minX || maxY < minY) return 0;
+        int firstColumn = column(minX);
+        int lastColumn = column(maxX);
+        int firstRow = row(minY);
+        int lastRow = row(maxY);
+        int found = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int c = cell(column, row);
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = points[k];
+                    if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) {
+                        out[found++] = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static long cellCount(float width, float height, float cellSize) {
+        return ((long) (width / cellSize) + 1) * ((long) (height / cellSize) + 1);
+    }
+
+    // Cell coordinates, clamped so that out-of-range queries visit the border cells
+    private int column(float x) {
+        return clamp((int) Math.floor((x - originX) / cellSize), columns);
+    }
+
+    private int row(float y) {
+        return clamp((int) Math.floor((y - originY) / cellSize), rows);
+    }
+
+    private static int clamp(int value, int size) {
+        return value < 0 ? 0 : Math.min(value, size - 1);
+    }
+
+    private int cell(int column, int row) {
+        return row * columns + column;
+    }
+}
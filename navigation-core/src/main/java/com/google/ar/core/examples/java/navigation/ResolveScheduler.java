@@ -0,0 +1,203 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Decides which cloud anchors of a route are being resolved. At most {@code maxConcurrent}
+ * resolves run at once, so the anchors the user reaches first do not compete for quota and
+ * bandwidth with the far end of the route:
+ * <ul>
+ *   <li>waiting anchors start in path order, nearest to the user's progress first;</li>
+ *   <li>{@link #advanceTo} preempts every anchor the user has walked past: waiting ones are
+ *       dropped and running ones are cancelled, which frees their slots;</li>
+ *   <li>a resolve that failed with a transient error is queued again after an exponential
+ *       backoff with jitter, up to {@code maxAttempts} attempts.</li>
+ * </ul>
+ *
+ * <p>The scheduler never polls; its owner reports the outcome of each task it started with
+ * {@link #complete} or {@link #retry} and calls {@link #pump} once per frame. Not thread-safe.
+ *
+ * @param <T> the backend's handle of a running resolve, e.g. {@code ResolveCloudAnchorFuture}
+ */
+public final class ResolveScheduler<T> {
+    /** Starts and cancels resolves, e.g. through an ARCore session. */
+    public interface Backend<T> {
+        T start(String cloudAnchorId);
+
+        void cancel(T task);
+    }
+
+    private final Backend<T> backend;
+    private final int maxConcurrent;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Random jitter = new Random();
+
+    // Waiting anchors sorted by path index, and the running ones in start order
+    private final List<Entry<T>> waiting = new ArrayList<>();
+    private final List<Entry<T>> running = new ArrayList<>();
+    private int progress;
+
+    public ResolveScheduler(Backend<T> backend, int maxConcurrent, int maxAttempts,
+                            long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1: " + maxConcurrent);
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        this.backend = backend;
+        this.maxConcurrent = maxConcurrent;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Replaces the route to resolve. Running resolves are cancelled; the anchors of {@code path}
+     * start on the next {@link #pump}, from the start of the route.
+     */
+    public void submit(List<String> path) {
+        cancelAll();
+        progress = 0;
+        for (int i = 0; i < path.size(); i++) {
+            waiting.add(new Entry<>(path.get(i), i));
+        }
+    }
+
+    /** Cancels everything running and forgets everything waiting. */
+    public void cancelAll() {
+        for (int i = 0; i < running.size(); i++) {
+            backend.cancel(running.get(i).task);
+        }
+        running.clear();
+        waiting.clear();
+    }
+
+    /**
+     * Records that the user has reached path index {@code pathIndex}. Anchors before it are no
+     * longer needed: waiting ones are dropped and running ones are cancelled. Returns the number
+     * of anchors preempted.
+     */
+    public int advanceTo(int pathIndex) {
+        if (pathIndex <= progress) return 0;
+        progress = pathIndex;
+        int preempted = 0;
+        for (int i = running.size() - 1; i >= 0; i--) {
+            if (running.get(i).pathIndex < pathIndex) {
+                backend.cancel(running.remove(i).task);
+                preempted++;
+            }
+        }
+        while (!waiting.isEmpty() && waiting.get(0).pathIndex < pathIndex) {
+            waiting.remove(0);
+            preempted++;
+        }
+        return preempted;
+    }
+
+    /**
+     * Starts waiting anchors whose backoff has elapsed, lowest path index first, until
+     * {@code maxConcurrent} resolves are running. Returns the number started.
+     */
+    public int pump(long nowMillis) {
+        int started = 0;
+        for (int i = 0; i < waiting.size() && running.size() < maxConcurrent; ) {
+            Entry<T> entry = waiting.get(i);
+            if (entry.readyAtMillis > nowMillis) {
+                i++;
+                continue;
+            }
+            waiting.remove(i);
+            entry.attempts++;
+            entry.task = backend.start(entry.cloudAnchorId);
+            running.add(entry);
+            started++;
+        }
+        return started;
+    }
+
+    /** Number of resolves running. Together with {@link #running(int)} lets the owner poll them. */
+    public int runningCount() {
+        return running.size();
+    }
+
+    public T running(int i) {
+        return running.get(i).task;
+    }
+
+    /** Number of anchors waiting to start, including those backing off. */
+    public int waitingCount() {
+        return waiting.size();
+    }
+
+    /** Path index of a running task, or -1 if the scheduler does not know it. */
+    public int pathIndexOf(T task) {
+        Entry<T> entry = find(task);
+        return entry != null ? entry.pathIndex : -1;
+    }
+
+    /** Cloud anchor id of a running task, or null if the scheduler does not know it. */
+    public String cloudAnchorIdOf(T task) {
+        Entry<T> entry = find(task);
+        return entry != null ? entry.cloudAnchorId : null;
+    }
+
+    /** Frees the slot of a task that finished, successfully or with a permanent error. */
+    public void complete(T task) {
+        Entry<T> entry = find(task);
+        if (entry != null) running.remove(entry);
+    }
+
+    /**
+     * Frees the slot of a task that failed with a transient error and queues its anchor again
+     * after a backoff. Returns false, and drops the anchor, when it has no attempts left or the
+     * user has already passed it.
+     */
+    public boolean retry(T task, long nowMillis) {
+        Entry<T> entry = find(task);
+        if (entry == null) return false;
+        running.remove(entry);
+        if (entry.attempts >= maxAttempts || entry.pathIndex < progress) return false;
+
+        entry.task = null;
+        entry.readyAtMillis = nowMillis + backoffMillis(entry.attempts);
+        int at = 0;
+        while (at < waiting.size() && waiting.get(at).pathIndex < entry.pathIndex) {
+            at++;
+        }
+        waiting.add(at, entry);
+        return true;
+    }
+
+    /** Exponential backoff after the {@code attempts}-th failure, with up to 25% jitter. */
+    private long backoffMillis(int attempts) {
+        long delay = baseBackoffMillis << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, maxBackoffMillis);
+        return delay + (long) (jitter.nextDouble() * delay / 4);
+    }
+
+    private Entry<T> find(T task) {
+        for (int i = 0; i < running.size(); i++) {
+            Entry<T> entry = running.get(i);
+            if (entry.task == task) return entry;
+        }
+        return null;
+    }
+
+    private static final class Entry<T> {
+        final String cloudAnchorId;
+        final int pathIndex;
+        int attempts;
+        long readyAtMillis;
+        T task;
+
+        Entry(String cloudAnchorId, int pathIndex) {
+            this.cloudAnchorId = cloudAnchorId;
+            this.pathIndex = pathIndex;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Arrays;
+
+/**
+ * The edges of a {@link NavigationGraph} grouped by target instead of source, in CSR layout, for
+ * searches that run backwards from a goal.
+ */
+final class ReverseEdges {
+    // node i is the target of edges [offsets[i], offsets[i + 1])
+    final int[] offsets;
+    final int[] sources;
+    final float[] weights;
+
+    private ReverseEdges(int[] offsets, int[] sources, float[] weights) {
+        this.offsets = offsets;
+        this.sources = sources;
+        this.weights = weights;
+    }
+
+    static ReverseEdges of(NavigationGraph graph) {
+        int n = graph.nodeCount();
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            offsets[graph.edgeTarget(e) + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] sources = new int[graph.edgeCount()];
+        float[] weights = new float[graph.edgeCount()];
+        int[] cursor = Arrays.copyOf(offsets, n);
+        for (int from = 0; from < n; from++) {
+            for (int e = graph.firstEdge(from); e < graph.lastEdge(from); e++) {
+                int slot = cursor[graph.edgeTarget(e)]++;
+                sources[slot] = from;
+                weights[slot] = graph.edgeWeight(e);
+            }
+        }
+        return new ReverseEdges(offsets, sources, weights);
+    }
+}
@@ -0,0 +1,127 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * Bounded LRU cache of routes keyed by (start, goal, graph version), shared by the route searches
+ * (A*, the route table, landmark paths) so a repeated request skips the search. A route of an
+ * older graph version is never returned: the first lookup with a newer version drops every entry
+ * of the old one. "No route" results are cached as well.
+ *
+ * <p>Cached routes are unmodifiable. All methods are thread-safe; the search passed to
+ * {@link #computeIfAbsent} runs outside the lock, so two threads missing on the same key may both
+ * search.
+ */
+public final class RouteCache {
+    // Stands in for a cached null ("no route")
+    private static final List<String> NO_ROUTE = Collections.emptyList();
+
+    private final int capacity;
+    private final LinkedHashMap<Key, List<String>> entries;
+    private long version = Long.MIN_VALUE;
+    private long hits;
+    private long misses;
+
+    public RouteCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+                return size() > RouteCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached route from {@code start} to {@code goal} on graph {@code version}, or
+     * runs {@code search} and caches its result. A null result means there is no route.
+     */
+    public List<String> computeIfAbsent(String start, String goal, long version,
+                                        BiFunction<String, String, List<String>> search) {
+        Key key = new Key(start, goal, version);
+        synchronized (this) {
+            List<String> cached = lookup(key);
+            if (cached != null) {
+                hits++;
+                return cached == NO_ROUTE ? null : cached;
+            }
+            misses++;
+        }
+        List<String> route = search.apply(start, goal);
+        List<String> stored = route == null ? NO_ROUTE : Collections.unmodifiableList(route);
+        synchronized (this) {
+            // A newer version may have been seen while searching
+            if (version == this.version) {
+                entries.put(key, stored);
+            }
+        }
+        return route == null ? null : stored;
+    }
+
+    /** Drops every cached route. */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Lookups answered from the cache. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Lookups that had to search. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private List<String> lookup(Key key) {
+        if (key.version != version) {
+            if (key.version < version) return null;
+            entries.clear();
+            version = key.version;
+        }
+        return entries.get(key);
+    }
+
+    private static final class Key {
+        final String start;
+        final String goal;
+        final long version;
+        final int hash;
+
+        Key(String start, String goal, long version) {
+            this.start = start;
+            this.goal = goal;
+            this.version = version;
+            this.hash = Objects.hash(start, goal, version);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return version == other.version && Objects.equals(start, other.start)
+                    && Objects.equals(goal, other.goal);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
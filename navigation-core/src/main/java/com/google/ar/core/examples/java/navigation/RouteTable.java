@@ -0,0 +1,245 @@
+package com.google.ar.core.examples.java.navigation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed shortest routes from every node of a {@link NavigationGraph} to a small fixed set of
+ * destinations (the building's named landmarks). For each destination the table stores the next
+ * hop of every node, so a route is a walk of {@code path length} table lookups instead of a
+ * search.
+ *
+ * <p>The table is computed with one reverse Dijkstra per destination and is bound to the graph it
+ * was computed on: it records the graph version and a fingerprint of the nodes and edges, and
+ * {@link #read} rejects a stored table whose graph no longer matches. Routes have the same length
+ * as the ones {@link AStarPathfinder} finds; where several shortest routes exist another one may be
+ * picked.
+ *
+ * <p>File layout (big-endian):
+ * <pre>
+ * int    MAGIC
+ * int    FORMAT_VERSION
+ * long   graph version
+ * long   graph fingerprint
+ * int    node count
+ * int    destination count, then each destination node
+ * next hops, destination-major: shorts when node count &lt;= Short.MAX_VALUE, ints otherwise
+ * </pre>
+ */
+public final class RouteTable {
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x4c425452; // "RTBL"
+    private static final int UNREACHABLE = -1;
+
+    private final NavigationGraph graph;
+    private final long version;
+    private final int[] destinations;
+    // Node -> destination slot, -1 for nodes that are not a destination
+    private final int[] slotOf;
+    // nextHop[slot * nodeCount + node] is the node after `node` on the way to destination `slot`
+    private final int[] nextHop;
+
+    private RouteTable(NavigationGraph graph, long version, int[] destinations, int[] nextHop) {
+        this.graph = graph;
+        this.version = version;
+        this.destinations = destinations;
+        this.nextHop = nextHop;
+        this.slotOf = new int[graph.nodeCount()];
+        Arrays.fill(slotOf, -1);
+        for (int slot = 0; slot < destinations.length; slot++) {
+            slotOf[destinations[slot]] = slot;
+        }
+    }
+
+    /**
+     * Computes the table for the given destination ids of {@code graph}. Ids that are not part of
+     * the graph are skipped. The destinations are processed in parallel.
+     */
+    public static RouteTable compute(NavigationGraph graph, long version, Collection<String> destinationIds) {
+        int[] destinations = destinationIds.stream()
+                .mapToInt(graph::indexOf)
+                .filter(node -> node >= 0)
+                .distinct()
+                .toArray();
+        int n = graph.nodeCount();
+        int[] nextHop = new int[destinations.length * n];
+
+        // Each destination's Dijkstra walks the edges backwards.
+        ReverseEdges reverse = ReverseEdges.of(graph);
+
+        IntStream.range(0, destinations.length).parallel().forEach(slot -> {
+            float[] dist = new float[n];
+            Arrays.fill(dist, Float.POSITIVE_INFINITY);
+            int base = slot * n;
+            Arrays.fill(nextHop, base, base + n, UNREACHABLE);
+            IndexedMinHeap open = new IndexedMinHeap(n);
+
+            int destination = destinations[slot];
+            dist[destination] = 0f;
+            nextHop[base + destination] = destination;
+            open.insertOrDecrease(destination, 0f);
+            while (!open.isEmpty()) {
+                int current = open.poll();
+                for (int e = reverse.offsets[current]; e < reverse.offsets[current + 1]; e++) {
+                    int previous = reverse.sources[e];
+                    float candidate = dist[current] + reverse.weights[e];
+                    if (candidate < dist[previous]) {
+                        dist[previous] = candidate;
+                        nextHop[base + previous] = current;
+                        open.insertOrDecrease(previous, candidate);
+                    }
+                }
+            }
+        });
+        return new RouteTable(graph, version, destinations, nextHop);
+    }
+
+    /** Version of the graph the table was computed on. */
+    public long version() {
+        return version;
+    }
+
+    public NavigationGraph graph() {
+        return graph;
+    }
+
+    public int destinationCount() {
+        return destinations.length;
+    }
+
+    /** True if routes to {@code goal} can be answered from the table. */
+    public boolean hasDestination(String goal) {
+        int node = graph.indexOf(goal);
+        return node >= 0 && slotOf[node] >= 0;
+    }
+
+    /**
+     * Writes the route from {@code start} to the destination node {@code goal} into {@code out},
+     * start first, like {@link AStarPathfinder#findPath}. Returns the number of nodes written, or
+     * -1 if {@code goal} is unreachable from {@code start}.
+     *
+     * @throws IllegalArgumentException if {@code goal} is not one of the table's destinations
+     */
+    public int findPath(int start, int goal, int[] out) {
+        int slot = slotOf[goal];
+        if (slot < 0) {
+            throw new IllegalArgumentException("Not a destination: " + graph.idOf(goal));
+        }
+        int base = slot * slotOf.length;
+        if (nextHop[base + start] == UNREACHABLE) return -1;
+        int length = 0;
+        for (int node = start; node != goal; node = nextHop[base + node]) {
+            out[length++] = node;
+        }
+        out[length++] = goal;
+        return length;
+    }
+
+    /**
+     * Returns the anchor ids from {@code start} to {@code goal}, or null if there is no route or
+     * {@code goal} is not a destination of the table.
+     */
+    public List<String> findShortestPath(String start, String goal) {
+        int startNode = graph.indexOf(start);
+        int goalNode = graph.indexOf(goal);
+        if (startNode < 0 || goalNode < 0 || slotOf[goalNode] < 0) {
+            return null;
+        }
+        // Walks the table straight into the list; no scratch buffer needed
+        int base = slotOf[goalNode] * slotOf.length;
+        if (nextHop[base + startNode] == UNREACHABLE) {
+            return null;
+        }
+        List<String> path = new ArrayList<>();
+        for (int node = startNode; node != goalNode; node = nextHop[base + node]) {
+            path.add(graph.idOf(node));
+        }
+        path.add(graph.idOf(goalNode));
+        return path;
+    }
+
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(version);
+        out.writeLong(fingerprint(graph));
+        out.writeInt(graph.nodeCount());
+        out.writeInt(destinations.length);
+        for (int destination : destinations) {
+            out.writeInt(destination);
+        }
+        boolean compact = graph.nodeCount() <= Short.MAX_VALUE;
+        for (int hop : nextHop) {
+            if (compact) {
+                out.writeShort(hop);
+            } else {
+                out.writeInt(hop);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a table written by {@link #write} and binds it to {@code graph}. Returns null if the
+     * table was computed on another version of the graph or on different nodes or edges, in which
+     * case it has to be computed again; throws an IOException for input that is not a table.
+     */
+    public static RouteTable read(InputStream input, NavigationGraph graph, long version) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a route table");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported route table format " + formatVersion);
+        }
+        if (in.readLong() != version || in.readLong() != fingerprint(graph)) {
+            return null;
+        }
+        int n = in.readInt();
+        if (n != graph.nodeCount()) {
+            return null;
+        }
+        int[] destinations = new int[in.readInt()];
+        for (int i = 0; i < destinations.length; i++) {
+            destinations[i] = in.readInt();
+            if (destinations[i] < 0 || destinations[i] >= n) {
+                throw new IOException("Destination out of range: " + destinations[i]);
+            }
+        }
+        boolean compact = n <= Short.MAX_VALUE;
+        int[] nextHop = new int[destinations.length * n];
+        for (int i = 0; i < nextHop.length; i++) {
+            nextHop[i] = compact ? in.readShort() : in.readInt();
+        }
+        return new RouteTable(graph, version, destinations, nextHop);
+    }
+
+    /** Hash of the node ids and the edges, to notice a table that no longer fits its graph. */
+    static long fingerprint(NavigationGraph graph) {
+        long hash = 0xcbf29ce484222325L;
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            hash = mix(hash, graph.idOf(node).hashCode());
+            hash = mix(hash, graph.lastEdge(node));
+        }
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            hash = mix(hash, graph.edgeTarget(e));
+            hash = mix(hash, Float.floatToIntBits(graph.edgeWeight(e)));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,146 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class AStarPathfinderTest {
+    @Test
+    public void findPath_matchesDijkstraOnRandomGraphs() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 40; trial++) {
+            NavigationGraph graph = TestGraphs.random(random, 60, 3, trial % 2 == 0);
+            AStarPathfinder pathfinder = new AStarPathfinder(graph);
+            int[] path = new int[graph.nodeCount()];
+            for (int start = 0; start < graph.nodeCount(); start += 7) {
+                double[] dist = TestGraphs.dijkstra(graph, start);
+                for (int goal = 0; goal < graph.nodeCount(); goal++) {
+                    int length = pathfinder.findPath(start, goal, path);
+                    TestGraphs.assertShortestPath(graph, start, goal, dist[goal], path, length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findPath_startIsGoal() {
+        NavigationGraph graph = TestGraphs.random(new Random(2), 10, 2, true);
+        int[] path = new int[graph.nodeCount()];
+        assertEquals(1, new AStarPathfinder(graph).findPath(4, 4, path));
+        assertEquals(4, path[0]);
+    }
+
+    @Test
+    public void findPathBidirectional_matchesDijkstra() {
+        assertBidirectionalMatchesDijkstra(new Random(3), false);
+    }
+
+    @Test
+    public void findPathBidirectional_withLandmarksMatchesDijkstra() {
+        assertBidirectionalMatchesDijkstra(new Random(4), true);
+    }
+
+    @Test
+    public void findPathBidirectional_startIsGoal() {
+        NavigationGraph graph = TestGraphs.random(new Random(5), 10, 2, true);
+        AStarPathfinder pathfinder = new AStarPathfinder(graph);
+        int[] path = new int[graph.nodeCount()];
+        pathfinder.findPathBidirectional(0, 9, path);
+        assertEquals(1, pathfinder.findPathBidirectional(4, 4, path));
+        assertEquals(4, path[0]);
+        assertEquals(0, pathfinder.expandedNodes());
+    }
+
+    /**
+     * Checks the bidirectional search against Dijkstra on random symmetric and asymmetric graphs,
+     * and that every search reports the nodes it expanded.
+     */
+    private static void assertBidirectionalMatchesDijkstra(Random random, boolean withLandmarks) {
+        for (int trial = 0; trial < 40; trial++) {
+            NavigationGraph graph = TestGraphs.random(random, 60, 3, trial % 2 == 0);
+            AStarPathfinder pathfinder = withLandmarks
+                    ? new AStarPathfinder(graph, AltLandmarks.compute(graph, Collections.emptyList(), 6))
+                    : new AStarPathfinder(graph);
+            int[] path = new int[graph.nodeCount()];
+            for (int start = 0; start < graph.nodeCount(); start += 7) {
+                double[] dist = TestGraphs.dijkstra(graph, start);
+                for (int goal = 0; goal < graph.nodeCount(); goal++) {
+                    int length = pathfinder.findPathBidirectional(start, goal, path);
+                    TestGraphs.assertShortestPath(graph, start, goal, dist[goal], path, length);
+                    if (start != goal) {
+                        int expanded = pathfinder.expandedNodes();
+                        assertTrue(start + " -> " + goal + " expanded " + expanded,
+                                expanded > 0 && expanded <= 2 * graph.nodeCount());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findShortestPath_usesAnchorIdsAndSkipsAnchorsWithoutPosition() {
+        Map<String, float[]> positions = new HashMap<>();
+        positions.put("a", new float[] {0, 0, 0});
+        positions.put("b", new float[] {1, 0, 0});
+        positions.put("c", new float[] {2, 0, 0});
+        positions.put("lost", null);
+        Map<String, List<String>> connections = new HashMap<>();
+        connections.put("a", Arrays.asList("b", "lost"));
+        connections.put("b", Collections.singletonList("c"));
+
+        assertEquals(Arrays.asList("a", "b", "c"),
+                AStarPathfinder.findShortestPath("a", "c", positions, connections));
+        assertNull(AStarPathfinder.findShortestPath("c", "a", positions, connections));
+        assertNull(AStarPathfinder.findShortestPath("a", "lost", positions, connections));
+    }
+
+    @Test
+    public void findShortestPath_reusedInstanceMatchesFindPath() {
+        NavigationGraph graph = TestGraphs.random(new Random(3), 40, 3, false);
+        // One instance for every query, as the app keeps one per graph version
+        AStarPathfinder pathfinder = new AStarPathfinder(graph);
+        AStarPathfinder reference = new AStarPathfinder(graph);
+        int[] path = new int[graph.nodeCount()];
+        for (int start = 0; start < graph.nodeCount(); start += 3) {
+            for (int goal = 0; goal < graph.nodeCount(); goal++) {
+                List<String> route = pathfinder.findShortestPath(graph.idOf(start), graph.idOf(goal));
+                int length = reference.findPath(start, goal, path);
+                if (length < 0) {
+                    assertNull(route);
+                    continue;
+                }
+                assertEquals(length, route.size());
+                for (int i = 0; i < length; i++) {
+                    assertEquals(graph.idOf(path[i]), route.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compile_buildsCsrEdgesWithDistanceWeights() {
+        Map<String, float[]> positions = new HashMap<>();
+        positions.put("a", new float[] {0, 0, 0});
+        positions.put("b", new float[] {3, 4, 0});
+        Map<String, List<String>> connections = new HashMap<>();
+        connections.put("a", Collections.singletonList("b"));
+        NavigationGraph graph = NavigationGraph.compile(positions, connections);
+
+        int a = graph.indexOf("a");
+        int b = graph.indexOf("b");
+        assertEquals(2, graph.nodeCount());
+        assertEquals(1, graph.edgeCount());
+        assertEquals(-1, graph.indexOf("missing"));
+        assertEquals(b, graph.edgeTarget(graph.firstEdge(a)));
+        assertEquals(5f, graph.edgeWeight(graph.firstEdge(a)), 1e-6f);
+        assertEquals(graph.firstEdge(b), graph.lastEdge(b));
+    }
+}
@@ -0,0 +1,124 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class AltLandmarksTest {
+    @Test
+    public void lowerBound_isAdmissibleWithUnreachableLandmarks() {
+        Random random = new Random(16);
+        int unreachableLandmarks = 0;
+        for (int trial = 0; trial < 20; trial++) {
+            NavigationGraph graph = TestGraphs.random(random, 60, 3, trial % 2 == 0);
+            // Anchors without edges out reach no other node; prefer them as landmarks
+            List<String> deadEnds = new ArrayList<>();
+            for (int node = 0; node < graph.nodeCount(); node++) {
+                if (graph.firstEdge(node) == graph.lastEdge(node)) deadEnds.add(graph.idOf(node));
+            }
+            AltLandmarks landmarks = AltLandmarks.compute(graph, deadEnds, deadEnds.size() + 4);
+            for (int i = 0; i < landmarks.landmarkCount(); i++) {
+                for (double d : TestGraphs.dijkstra(graph, landmarks.landmark(i))) {
+                    if (Double.isInfinite(d)) {
+                        unreachableLandmarks++;
+                        break;
+                    }
+                }
+            }
+
+            for (int node = 0; node < graph.nodeCount(); node++) {
+                double[] dist = TestGraphs.dijkstra(graph, node);
+                for (int goal = 0; goal < graph.nodeCount(); goal++) {
+                    float bound = landmarks.lowerBound(node, goal);
+                    String pair = node + " -> " + goal;
+                    assertTrue(pair + " bound " + bound, bound >= 0 && bound < Float.POSITIVE_INFINITY);
+                    if (!Double.isInfinite(dist[goal])) {
+                        assertTrue(pair + " bound " + bound + " > " + dist[goal],
+                                bound <= dist[goal] + TestGraphs.COST_TOLERANCE);
+                    }
+                }
+            }
+        }
+        assertTrue("no landmark left nodes unreachable", unreachableLandmarks > 0);
+    }
+
+    @Test
+    public void findPath_withLandmarksMatchesDijkstra() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 20; trial++) {
+            NavigationGraph graph = TestGraphs.random(random, 60, 3, trial % 2 == 0);
+            AStarPathfinder pathfinder = new AStarPathfinder(graph,
+                    AltLandmarks.compute(graph, Collections.emptyList(), 6));
+            int[] path = new int[graph.nodeCount()];
+            for (int start = 0; start < graph.nodeCount(); start += 5) {
+                double[] dist = TestGraphs.dijkstra(graph, start);
+                for (int goal = 0; goal < graph.nodeCount(); goal++) {
+                    int length = pathfinder.findPath(start, goal, path);
+                    TestGraphs.assertShortestPath(graph, start, goal, dist[goal], path, length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findPath_withLandmarksExpandsFewerNodesAroundWalls() {
+        NavigationGraph graph = walledGrid(40);
+        AStarPathfinder euclidean = new AStarPathfinder(graph);
+        AStarPathfinder alt = new AStarPathfinder(graph, AltLandmarks.compute(graph, Collections.emptyList(), 8));
+        int[] path = new int[graph.nodeCount()];
+        long euclideanExpanded = 0;
+        long altExpanded = 0;
+        // Across the wall, where the straight line is far shorter than the route
+        for (int row = 0; row < 40; row += 4) {
+            int start = graph.indexOf(cell(15, row));
+            int goal = graph.indexOf(cell(24, 39 - row));
+            int length = euclidean.findPath(start, goal, path);
+            euclideanExpanded += euclidean.expandedNodes();
+            assertEquals(length, alt.findPath(start, goal, path));
+            altExpanded += alt.expandedNodes();
+        }
+        assertTrue("ALT expanded " + altExpanded + ", Euclidean " + euclideanExpanded,
+                altExpanded < euclideanExpanded);
+    }
+
+    /**
+     * {@code size} × {@code size} grid of anchors one metre apart with a wall down the middle,
+     * open only in the top row.
+     */
+    private static NavigationGraph walledGrid(int size) {
+        Map<String, float[]> positions = new LinkedHashMap<>();
+        Map<String, List<String>> connections = new LinkedHashMap<>();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                positions.put(cell(x, y), new float[] {x, 0, y});
+                connections.put(cell(x, y), new ArrayList<>());
+            }
+        }
+        int wall = size / 2;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (x + 1 < size && (x + 1 != wall || y == size - 1)) {
+                    link(connections, cell(x, y), cell(x + 1, y));
+                }
+                if (y + 1 < size) link(connections, cell(x, y), cell(x, y + 1));
+            }
+        }
+        return NavigationGraph.compile(positions, connections);
+    }
+
+    private static void link(Map<String, List<String>> connections, String a, String b) {
+        connections.get(a).add(b);
+        connections.get(b).add(a);
+    }
+
+    private static String cell(int x, int y) {
+        return x + "," + y;
+    }
+}
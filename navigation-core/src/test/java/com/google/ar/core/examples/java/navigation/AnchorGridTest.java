@@ -0,0 +1,80 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class AnchorGridTest {
+    private static final double CELL_SIZE = 2.0;
+
+    @Test
+    public void findWithin_matchesFullScan() {
+        Random random = new Random(5);
+        AnchorGrid grid = new AnchorGrid(CELL_SIZE);
+        List<AnchorData> anchors = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            AnchorData anchor = anchor(TestGraphs.id(i),
+                    random.nextDouble() * 40 - 20, random.nextDouble() * 6, random.nextDouble() * 40 - 20);
+            anchors.add(anchor);
+            grid.add(anchor);
+        }
+        for (int i = 0; i < 100; i++) {
+            AnchorData probe = anchors.get(random.nextInt(anchors.size()));
+            double radius = random.nextDouble() * 5;
+            List<String> expected = NearbyAnchors.findWithin(anchors, probe.anchorId,
+                    probe.x, probe.y, probe.z, radius);
+            List<String> actual = grid.findWithin(probe.anchorId, probe.x, probe.y, probe.z, radius);
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void replaceCell_dropsAnchorsNoLongerListed() {
+        AnchorGrid grid = new AnchorGrid(CELL_SIZE);
+        AnchorData kept = anchor("kept", 0.5, 0.5, 0.5);
+        AnchorData deleted = anchor("deleted", 1.5, 0.5, 0.5);
+        AnchorData neighbour = anchor("neighbour", 2.5, 0.5, 0.5);
+        grid.add(kept);
+        grid.add(deleted);
+        grid.add(neighbour);
+
+        grid.replaceCell(grid.cellNameOf(0, 0, 0), Collections.singletonList(kept));
+        assertEquals(2, grid.size());
+        assertFalse(grid.contains("deleted"));
+        // Other cells are left alone
+        assertTrue(grid.contains("neighbour"));
+        assertEquals(Arrays.asList("kept"), grid.findWithin("neighbour", 2.5, 0.5, 0.5, 2.5));
+    }
+
+    @Test
+    public void replaceCell_movesAnchorsToTheirOwnCell() {
+        AnchorGrid grid = new AnchorGrid(CELL_SIZE);
+        grid.add(anchor("moved", 0.5, 0.5, 0.5));
+        grid.replaceCell(grid.cellNameOf(-1, -1, -1),
+                Arrays.asList(anchor("moved", 0.5, 0.5, 0.5), anchor("new", -1, -1, -1)));
+        assertEquals(2, grid.size());
+        assertEquals(Arrays.asList("moved"), grid.findWithin("new", 0.5, 0.5, 0.5, 0.1));
+
+        grid.replaceCell(grid.cellNameOf(0, 0, 0), Collections.emptyList());
+        assertFalse(grid.contains("moved"));
+        assertTrue(grid.contains("new"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void replaceCell_rejectsOtherNames() {
+        new AnchorGrid(CELL_SIZE).replaceCell("0_0", Collections.emptyList());
+    }
+
+    private static AnchorData anchor(String id, double x, double y, double z) {
+        return new AnchorData(id, null, 0, x, y, z);
+    }
+}
@@ -0,0 +1,53 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ContractionHierarchyTest {
+    @Test
+    public void findPath_matchesDijkstraOnSymmetricGraphs() {
+        assertMatchesDijkstra(new Random(15), true);
+    }
+
+    @Test
+    public void findPath_matchesDijkstraOnAsymmetricGraphs() {
+        assertMatchesDijkstra(new Random(16), false);
+    }
+
+    @Test
+    public void findPath_startIsGoal() {
+        NavigationGraph graph = TestGraphs.random(new Random(17), 30, 3, true);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        int[] path = new int[graph.nodeCount()];
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            assertEquals(1, hierarchy.findPath(node, node, path));
+            assertEquals(node, path[0]);
+        }
+    }
+
+    /** Every pair of 25 random graphs, with the reachable and unreachable pairs counted. */
+    private static void assertMatchesDijkstra(Random random, boolean symmetric) {
+        int unreachable = 0;
+        int reachable = 0;
+        for (int trial = 0; trial < 25; trial++) {
+            NavigationGraph graph = TestGraphs.random(random, 50, 3, symmetric);
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+            int[] path = new int[graph.nodeCount()];
+            for (int start = 0; start < graph.nodeCount(); start++) {
+                double[] dist = TestGraphs.dijkstra(graph, start);
+                for (int goal = 0; goal < graph.nodeCount(); goal++) {
+                    // The same instance answers every query, as in the app
+                    int length = hierarchy.findPath(start, goal, path);
+                    TestGraphs.assertShortestPath(graph, start, goal, dist[goal], path, length);
+                    if (Double.isInfinite(dist[goal])) unreachable++;
+                    else reachable++;
+                }
+            }
+        }
+        assertTrue("no unreachable pairs tested", unreachable > 0);
+        assertTrue("no reachable pairs tested", reachable > 0);
+    }
+}
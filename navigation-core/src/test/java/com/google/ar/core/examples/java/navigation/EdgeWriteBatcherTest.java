@@ -0,0 +1,123 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class EdgeWriteBatcherTest {
+    private static final long DELAY_MS = 100;
+
+    private final InMemoryEdgeBackend backend = new InMemoryEdgeBackend();
+    // Timers armed by the batcher, run by hand
+    private final List<Runnable> timers = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+
+    private EdgeWriteBatcher batcher(int maxEdges) {
+        return new EdgeWriteBatcher(backend, (task, delayMillis) -> {
+            timers.add(task);
+            delays.add(delayMillis);
+        }, "anchorConnections", maxEdges, DELAY_MS);
+    }
+
+    @Test
+    public void connect_flushesWhenBatchIsFull() {
+        EdgeWriteBatcher batcher = batcher(3);
+        batcher.connect("a", "b");
+        batcher.connect("a", "c");
+        assertEquals(0, backend.writes().size());
+        assertEquals(2, batcher.pendingEdges());
+
+        batcher.connect("b", "c");
+        assertEquals(1, backend.writes().size());
+        assertEquals(6, backend.writes().get(0).size());
+        assertEquals(0, batcher.pendingEdges());
+        assertEquals(1, batcher.flushes());
+    }
+
+    @Test
+    public void timer_flushesPartialBatch() {
+        EdgeWriteBatcher batcher = batcher(10);
+        batcher.connect("a", "b");
+        batcher.connect("a", "c");
+        // Armed once, by the first edge of the batch
+        assertEquals(1, timers.size());
+        assertEquals(Long.valueOf(DELAY_MS), delays.get(0));
+        assertEquals(0, backend.writes().size());
+
+        timers.get(0).run();
+        assertEquals(1, backend.writes().size());
+        assertEquals(4, backend.writes().get(0).size());
+        assertEquals(0, batcher.pendingEdges());
+    }
+
+    @Test
+    public void staleTimer_doesNotFlushLaterBatch() {
+        EdgeWriteBatcher batcher = batcher(2);
+        batcher.connect("a", "b");
+        batcher.connect("a", "c"); // fills and flushes the first batch
+        assertEquals(1, backend.writes().size());
+
+        batcher.connect("b", "c"); // starts the second batch and arms its own timer
+        assertEquals(2, timers.size());
+
+        timers.get(0).run();
+        assertEquals(1, backend.writes().size());
+        assertEquals(1, batcher.pendingEdges());
+
+        timers.get(1).run();
+        assertEquals(2, backend.writes().size());
+        assertEquals(0, batcher.pendingEdges());
+    }
+
+    @Test
+    public void bothDirectionsOfEveryEdge_landInOneUpdate() {
+        EdgeWriteBatcher batcher = batcher(10);
+        batcher.connect("a", "b");
+        batcher.connect("c", "a");
+        batcher.flush();
+
+        assertEquals(1, backend.writes().size());
+        Map<String, Object> update = backend.writes().get(0);
+        for (String path : new String[] {
+                "anchorConnections/a/b", "anchorConnections/b/a",
+                "anchorConnections/c/a", "anchorConnections/a/c"}) {
+            assertEquals(path, Boolean.TRUE, update.get(path));
+            assertEquals(path, Boolean.TRUE, backend.get(path));
+        }
+        assertEquals(4, update.size());
+    }
+
+    @Test
+    public void flush_onShutdownWritesPendingEdgesWithoutTheTimer() {
+        EdgeWriteBatcher batcher = batcher(10);
+        batcher.connect("a", "b");
+        batcher.connect("b", "c");
+        // The activity pauses before the batch timer fires; it may never fire after that
+        batcher.flush();
+
+        assertEquals(1, backend.writes().size());
+        assertEquals(0, batcher.pendingEdges());
+        assertEquals(Boolean.TRUE, backend.get("anchorConnections/a/b"));
+        assertEquals(Boolean.TRUE, backend.get("anchorConnections/c/b"));
+        // If it does fire later, it does not write the edges a second time
+        timers.get(0).run();
+        assertEquals(1, backend.writes().size());
+    }
+
+    @Test
+    public void flush_withNothingPendingDoesNotWrite() {
+        EdgeWriteBatcher batcher = batcher(10);
+        batcher.flush();
+        batcher.connect("a", "b");
+        batcher.flush();
+        batcher.flush();
+        assertEquals(1, backend.writes().size());
+        // The timer of the flushed batch finds nothing to do
+        timers.get(0).run();
+        assertEquals(1, backend.writes().size());
+        assertEquals(1, batcher.flushes());
+    }
+}
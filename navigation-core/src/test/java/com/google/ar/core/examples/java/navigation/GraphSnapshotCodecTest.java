@@ -0,0 +1,104 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class GraphSnapshotCodecTest {
+    @Test
+    public void read_returnsWhatWasWritten() throws IOException {
+        GraphSnapshot snapshot = sample();
+        GraphSnapshot read = GraphSnapshotCodec.read(new ByteArrayInputStream(write(snapshot)));
+
+        assertEquals(42L, read.version());
+        assertEquals(snapshot.anchors().keySet(), read.anchors().keySet());
+        AnchorData b = read.anchors().get("b");
+        assertNull(b.cloudAnchorId);
+        assertEquals(3, b.roomCode);
+        assertEquals(2.5, b.x, 0);
+        assertEquals(snapshot.anchorConnections(), read.anchorConnections());
+        DetectedImage image = read.detectedImages().get("key1");
+        assertEquals("img1", image.imageId);
+        assertEquals("cloud_a", image.cloudAnchorId);
+        assertEquals("a", image.matchedAnchorId);
+        assertEquals(snapshot.landmarkToAnchorMap(), read.landmarkToAnchorMap());
+    }
+
+    @Test
+    public void read_truncatedInputThrowsIOException() throws IOException {
+        byte[] bytes = write(sample());
+        for (int length = 0; length < bytes.length; length++) {
+            assertRejectedOrRead(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    @Test
+    public void read_corruptedInputOnlyThrowsIOException() throws IOException {
+        byte[] bytes = write(sample());
+        Random random = new Random(6);
+        for (int trial = 0; trial < 5000; trial++) {
+            byte[] corrupted = bytes.clone();
+            int flips = 1 + random.nextInt(4);
+            for (int k = 0; k < flips; k++) {
+                corrupted[random.nextInt(corrupted.length)] = (byte) random.nextInt(256);
+            }
+            assertRejectedOrRead(corrupted);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_hugeCountThrowsIOException() throws IOException {
+        byte[] bytes = write(sample());
+        // String count follows the 16-byte header
+        bytes[16] = 0x7f;
+        GraphSnapshotCodec.read(new ByteArrayInputStream(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_trailingBytesThrowIOException() throws IOException {
+        byte[] bytes = write(sample());
+        GraphSnapshotCodec.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length + 1)));
+    }
+
+    private static void assertRejectedOrRead(byte[] bytes) {
+        try {
+            GraphSnapshotCodec.read(new ByteArrayInputStream(bytes));
+        } catch (IOException expected) {
+            // Rejected the way loadFromDisk handles
+        } catch (RuntimeException | OutOfMemoryError e) {
+            fail("read threw " + e);
+        }
+    }
+
+    private static GraphSnapshot sample() {
+        Map<String, AnchorData> anchors = new LinkedHashMap<>();
+        anchors.put("a", new AnchorData("a", "cloud_a", 1, 0, 0, 0));
+        anchors.put("b", new AnchorData("b", null, 3, 2.5, 1, -4));
+        anchors.put("c", new AnchorData("c", "cloud_c", 1, 5, 0, 1));
+        Map<String, List<String>> connections = new LinkedHashMap<>();
+        connections.put("a", Arrays.asList("b", "c"));
+        connections.put("b", Collections.singletonList("a"));
+        connections.put("c", Collections.emptyList());
+        Map<String, DetectedImage> images = new LinkedHashMap<>();
+        images.put("key1", new DetectedImage("key1", "img1", "cloud_a", "a"));
+        images.put("key2", new DetectedImage("key2", "img2", "cloud_c", null));
+        return new GraphSnapshot(42L, anchors, connections, images);
+    }
+
+    private static byte[] write(GraphSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshotCodec.write(snapshot, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,149 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class IncrementalLandmarkGraphTest {
+    private static final int ANCHORS = 30;
+    private static final int IMAGES = 8;
+    private static final int MUTATIONS = 400;
+
+    // Database state the engines are checked against
+    private final Map<String, AnchorData> anchors = new LinkedHashMap<>();
+    private final Map<String, List<String>> connections = new LinkedHashMap<>();
+    private final Map<String, DetectedImage> images = new LinkedHashMap<>();
+
+    @Test
+    public void build_matchesFullRebuildOverRandomMutations() {
+        Random random = new Random(9);
+        IncrementalLandmarkGraph events = new IncrementalLandmarkGraph();
+        IncrementalLandmarkGraph snapshots = new IncrementalLandmarkGraph();
+        int recomputed = 0;
+        for (int i = 0; i < MUTATIONS; i++) {
+            mutate(random, events);
+            GraphSnapshot snapshot = new GraphSnapshot(i, anchors, connections, images);
+            snapshots.update(snapshot);
+
+            Map<String, String> landmarkToAnchor = snapshot.landmarkToAnchorMap();
+            Map<String, LandmarkNode> expected =
+                    new LandmarkGraphBuilder(connections).build(landmarkToAnchor);
+            assertEquals(landmarkToAnchor, events.landmarkToAnchorMap());
+            assertEquals(landmarkToAnchor, snapshots.landmarkToAnchorMap());
+            assertSameGraph("mutation " + i, expected, events.build(), landmarkToAnchor);
+            recomputed += events.lastRecomputedTrees();
+            assertSameGraph("snapshot " + i, expected, snapshots.build(), landmarkToAnchor);
+        }
+        // Most mutations leave most trees alone
+        assertTrue("recomputed " + recomputed + " trees", recomputed < MUTATIONS * IMAGES / 2);
+    }
+
+    /** Applies one random change to the database state and the same change to {@code graph}. */
+    private void mutate(Random random, IncrementalLandmarkGraph graph) {
+        String anchorId = TestGraphs.id(random.nextInt(ANCHORS));
+        switch (random.nextInt(10)) {
+            case 0:
+            case 1:
+            case 2: {
+                // Add one edge
+                List<String> neighbors = new ArrayList<>(connections.getOrDefault(anchorId, new ArrayList<>()));
+                neighbors.add(TestGraphs.id(random.nextInt(ANCHORS)));
+                connections.put(anchorId, neighbors);
+                graph.setConnections(anchorId, neighbors);
+                break;
+            }
+            case 3:
+            case 4: {
+                // Remove one edge
+                List<String> neighbors = connections.get(anchorId);
+                if (neighbors == null || neighbors.isEmpty()) break;
+                neighbors = new ArrayList<>(neighbors);
+                neighbors.remove(random.nextInt(neighbors.size()));
+                connections.put(anchorId, neighbors);
+                graph.setConnections(anchorId, neighbors);
+                break;
+            }
+            case 5:
+                connections.remove(anchorId);
+                graph.removeConnections(anchorId);
+                break;
+            case 6: {
+                AnchorData anchor = new AnchorData(anchorId, "cloud_" + random.nextInt(ANCHORS), 1,
+                        random.nextFloat(), 0, random.nextFloat());
+                anchors.put(anchorId, anchor);
+                graph.putAnchor(anchor);
+                break;
+            }
+            case 7:
+                anchors.remove(anchorId);
+                graph.removeAnchor(anchorId);
+                break;
+            case 8: {
+                String key = "key_" + random.nextInt(IMAGES);
+                String matched = random.nextBoolean() ? anchorId : null;
+                DetectedImage image = new DetectedImage(key, "image_" + random.nextInt(IMAGES),
+                        "cloud_" + random.nextInt(ANCHORS), matched);
+                images.put(key, image);
+                graph.putDetectedImage(image);
+                break;
+            }
+            default: {
+                String key = "key_" + random.nextInt(IMAGES);
+                images.remove(key);
+                graph.removeDetectedImage(key);
+                break;
+            }
+        }
+    }
+
+    /**
+     * The incremental graph may pick another of several shortest paths, so paths are compared by
+     * length and checked to be real paths between the right anchors, in the direction the full
+     * rebuild used.
+     */
+    private void assertSameGraph(String step, Map<String, LandmarkNode> expected,
+                                 Map<String, LandmarkNode> actual, Map<String, String> landmarkToAnchor) {
+        assertEquals(step, expected.keySet(), actual.keySet());
+        for (LandmarkNode want : expected.values()) {
+            LandmarkNode got = actual.get(want.landmarkId);
+            String row = step + ", landmark " + want.landmarkId;
+            assertEquals(row, want.connectedLandmarks, got.connectedLandmarks);
+            for (String target : want.connectedLandmarks) {
+                List<String> wantPath = want.paths.get(target);
+                List<String> gotPath = got.paths.get(target);
+                String pair = row + " -> " + target;
+                assertEquals(pair, wantPath.size(), gotPath.size());
+                assertEquals(pair, landmarkToAnchor.get(want.landmarkId), gotPath.get(0));
+                assertEquals(pair, landmarkToAnchor.get(target), gotPath.get(gotPath.size() - 1));
+                if (isForwardPath(wantPath)) {
+                    assertTrue(pair, isForwardPath(gotPath));
+                } else {
+                    assertTrue(pair, isForwardPath(reversed(gotPath)));
+                }
+            }
+            assertEquals(row, want.path == null ? null : want.path.size(),
+                    got.path == null ? null : got.path.size());
+        }
+    }
+
+    private boolean isForwardPath(List<String> path) {
+        for (int i = 0; i + 1 < path.size(); i++) {
+            List<String> neighbors = connections.get(path.get(i));
+            if (neighbors == null || !neighbors.contains(path.get(i + 1))) return false;
+        }
+        return true;
+    }
+
+    private static List<String> reversed(List<String> path) {
+        List<String> reversed = new ArrayList<>(path);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+}
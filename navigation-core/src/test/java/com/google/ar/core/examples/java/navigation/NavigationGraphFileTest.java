@@ -0,0 +1,149 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class NavigationGraphFileTest {
+    @Test
+    public void wrap_readsWhatEncodeWrote() throws IOException {
+        NavigationGraphFile file = NavigationGraphFile.wrap(NavigationGraphFile.encode(sample()));
+
+        assertEquals(7L, file.version());
+        assertEquals(3, file.nodeCount());
+        int b = file.indexOf("b");
+        assertEquals("b", file.idOf(b));
+        assertNull(file.cloudAnchorIdOf(b));
+        assertEquals(file.indexOf("c"), file.indexOfCloudAnchor("cloud_c"));
+        assertEquals(2f, file.x(b), 0);
+        assertEquals(-1, file.indexOf("missing"));
+
+        assertEquals(2, file.landmarkCount());
+        Map<String, LandmarkNode> landmarks = file.landmarkNodes();
+        assertEquals(Arrays.asList("a", "b", "c"), landmarks.get("img1").paths.get("img2"));
+        // b was never hosted, so the routing graph only has a and c, and no edge between them
+        NavigationGraph routing = file.navigationGraph();
+        assertEquals(2, routing.nodeCount());
+        assertEquals("cloud_a", file.routingIdOf(file.indexOf("a")));
+        assertNull(file.routingIdOf(b));
+        assertEquals(-1, routing.indexOf("b"));
+        assertNull(new AStarPathfinder(routing).findShortestPath("cloud_a", "cloud_c"));
+    }
+
+    @Test
+    public void navigationGraph_routesOnlyThroughHostedAnchors() throws IOException {
+        Random random = new Random(8);
+        for (int trial = 0; trial < 10; trial++) {
+            Map<String, AnchorData> anchors = new LinkedHashMap<>();
+            Map<String, List<String>> connections = new LinkedHashMap<>();
+            Set<String> cloudIds = new HashSet<>();
+            for (int i = 0; i < 60; i++) {
+                String id = TestGraphs.id(i);
+                // About one anchor in four was never hosted
+                String cloudId = random.nextInt(4) == 0 ? null : "cloud_" + i;
+                anchors.put(id, new AnchorData(id, cloudId, 1,
+                        random.nextFloat() * 30, 0, random.nextFloat() * 30));
+                if (cloudId != null) cloudIds.add(cloudId);
+                List<String> neighbors = new ArrayList<>();
+                for (int k = 0; k < 3; k++) neighbors.add(TestGraphs.id(random.nextInt(60)));
+                connections.put(id, neighbors);
+            }
+            GraphSnapshot snapshot = new GraphSnapshot(trial, anchors, connections, Collections.emptyMap());
+            NavigationGraph routing = NavigationGraphFile.wrap(NavigationGraphFile.encode(snapshot)).navigationGraph();
+            NavigationGraph legacy = NavigationGraph.compile(
+                    snapshot.positionsByCloudAnchorId(), snapshot.connectionsByCloudAnchorId());
+            assertEquals(cloudIds.size(), routing.nodeCount());
+            assertEquals(legacy.edgeCount(), routing.edgeCount());
+
+            AStarPathfinder pathfinder = new AStarPathfinder(routing);
+            int[] path = new int[routing.nodeCount()];
+            for (String start : cloudIds) {
+                double[] dist = TestGraphs.dijkstra(legacy, legacy.indexOf(start));
+                for (String goal : cloudIds) {
+                    List<String> route = pathfinder.findShortestPath(start, goal);
+                    double expected = dist[legacy.indexOf(goal)];
+                    if (route == null) {
+                        assertTrue(start + " -> " + goal, Double.isInfinite(expected));
+                        continue;
+                    }
+                    assertTrue(start + " -> " + goal + " via " + route, cloudIds.containsAll(route));
+                    for (int i = 0; i < route.size(); i++) path[i] = legacy.indexOf(route.get(i));
+                    assertEquals(expected, TestGraphs.pathCost(legacy, path, route.size()), TestGraphs.COST_TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void wrap_truncatedFileThrowsIOException() {
+        byte[] bytes = bytes(NavigationGraphFile.encode(sample()));
+        for (int length = 0; length < bytes.length; length++) {
+            assertRejectedOrWrapped(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    @Test
+    public void wrap_corruptedCountsOnlyThrowIOException() {
+        byte[] bytes = bytes(NavigationGraphFile.encode(sample()));
+        Random random = new Random(7);
+        int[] values = {-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 28, 3, 1000};
+        for (int trial = 0; trial < 5000; trial++) {
+            byte[] corrupted = bytes.clone();
+            ByteBuffer buffer = ByteBuffer.wrap(corrupted).order(ByteOrder.LITTLE_ENDIAN);
+            // Overwrite aligned ints, where the header, section lengths and counts are
+            int flips = 1 + random.nextInt(3);
+            for (int k = 0; k < flips; k++) {
+                int offset = 4 * random.nextInt(corrupted.length / 4);
+                buffer.putInt(offset, random.nextBoolean()
+                        ? values[random.nextInt(values.length)] : random.nextInt());
+            }
+            assertRejectedOrWrapped(corrupted);
+        }
+    }
+
+    private static void assertRejectedOrWrapped(byte[] bytes) {
+        try {
+            NavigationGraphFile.wrap(ByteBuffer.wrap(bytes));
+        } catch (IOException expected) {
+            // Rejected the way GraphStore.mapGraph handles
+        } catch (RuntimeException e) {
+            fail("wrap threw " + e);
+        }
+    }
+
+    private static GraphSnapshot sample() {
+        Map<String, AnchorData> anchors = new LinkedHashMap<>();
+        anchors.put("a", new AnchorData("a", "cloud_a", 1, 0, 0, 0));
+        anchors.put("b", new AnchorData("b", null, 1, 2, 0, 0));
+        anchors.put("c", new AnchorData("c", "cloud_c", 1, 4, 0, 0));
+        Map<String, List<String>> connections = new LinkedHashMap<>();
+        connections.put("a", Collections.singletonList("b"));
+        connections.put("b", Arrays.asList("a", "c"));
+        connections.put("c", Collections.singletonList("b"));
+        Map<String, DetectedImage> images = new LinkedHashMap<>();
+        images.put("key1", new DetectedImage("key1", "img1", "cloud_a", "a"));
+        images.put("key2", new DetectedImage("key2", "img2", "cloud_c", "c"));
+        return new GraphSnapshot(7L, anchors, connections, images);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,172 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class RouteTableTest {
+    private static final long VERSION = 12L;
+
+    @Test
+    public void findPath_matchesDijkstraOnRandomGraphs() {
+        Random random = new Random(14);
+        for (int trial = 0; trial < 20; trial++) {
+            NavigationGraph graph = TestGraphs.random(random, 80, 3, trial % 2 == 0);
+            List<String> destinations = destinations(random, graph.nodeCount(), 6);
+            RouteTable table = RouteTable.compute(graph, VERSION, destinations);
+            assertEquals(6, table.destinationCount());
+
+            int[] path = new int[graph.nodeCount()];
+            for (String id : destinations) {
+                int goal = graph.indexOf(id);
+                // Dijkstra from every start, read at the goal
+                for (int start = 0; start < graph.nodeCount(); start++) {
+                    double expected = TestGraphs.dijkstra(graph, start)[goal];
+                    int length = table.findPath(start, goal, path);
+                    TestGraphs.assertShortestPath(graph, start, goal, expected, path, length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compute_skipsUnknownAndDuplicateDestinations() {
+        NavigationGraph graph = TestGraphs.random(new Random(15), 20, 2, true);
+        RouteTable table = RouteTable.compute(graph, VERSION,
+                Arrays.asList(TestGraphs.id(3), "missing", TestGraphs.id(3), TestGraphs.id(5)));
+        assertEquals(2, table.destinationCount());
+        assertTrue(table.hasDestination(TestGraphs.id(5)));
+        assertFalse(table.hasDestination(TestGraphs.id(4)));
+        assertNull(table.findShortestPath(TestGraphs.id(0), TestGraphs.id(4)));
+        assertEquals(Collections.singletonList(TestGraphs.id(3)),
+                table.findShortestPath(TestGraphs.id(3), TestGraphs.id(3)));
+    }
+
+    @Test
+    public void read_roundTripsShortEncoding() throws IOException {
+        Random random = new Random(16);
+        NavigationGraph graph = TestGraphs.random(random, 60, 3, false);
+        RouteTable table = RouteTable.compute(graph, VERSION, destinations(random, graph.nodeCount(), 5));
+        byte[] bytes = write(table);
+        assertEquals(headerBytes(5) + 2L * 5 * graph.nodeCount(), bytes.length);
+
+        RouteTable read = RouteTable.read(new ByteArrayInputStream(bytes), graph, VERSION);
+        assertSameRoutes(table, read, 1);
+    }
+
+    @Test
+    public void read_roundTripsIntEncoding() throws IOException {
+        // One node more than a short can index
+        int n = Short.MAX_VALUE + 1;
+        Map<String, float[]> positions = new LinkedHashMap<>();
+        Map<String, List<String>> connections = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            positions.put(TestGraphs.id(i), new float[] {i, 0, 0});
+            connections.put(TestGraphs.id(i), i + 1 < n
+                    ? Collections.singletonList(TestGraphs.id(i + 1)) : Collections.emptyList());
+        }
+        NavigationGraph graph = NavigationGraph.compile(positions, connections);
+        RouteTable table = RouteTable.compute(graph, VERSION,
+                Arrays.asList(TestGraphs.id(n - 1), TestGraphs.id(n / 2)));
+        byte[] bytes = write(table);
+        assertEquals(headerBytes(2) + 4L * 2 * n, bytes.length);
+
+        RouteTable read = RouteTable.read(new ByteArrayInputStream(bytes), graph, VERSION);
+        assertSameRoutes(table, read, 997);
+        // The walk to the last node goes through next hops above Short.MAX_VALUE
+        int[] path = new int[n];
+        int last = graph.indexOf(TestGraphs.id(n - 1));
+        assertEquals(n, read.findPath(graph.indexOf(TestGraphs.id(0)), last, path));
+        assertEquals(last, path[n - 1]);
+        // The chain only runs forwards
+        assertEquals(-1, read.findPath(last, graph.indexOf(TestGraphs.id(n / 2)), path));
+    }
+
+    @Test
+    public void read_returnsNullForAnotherVersion() throws IOException {
+        NavigationGraph graph = TestGraphs.random(new Random(17), 30, 2, true);
+        byte[] bytes = write(RouteTable.compute(graph, VERSION, Collections.singletonList(TestGraphs.id(1))));
+        assertNull(RouteTable.read(new ByteArrayInputStream(bytes), graph, VERSION + 1));
+    }
+
+    @Test
+    public void read_returnsNullForAnotherGraph() throws IOException {
+        Map<String, float[]> positions = new LinkedHashMap<>();
+        positions.put("a", new float[] {0, 0, 0});
+        positions.put("b", new float[] {1, 0, 0});
+        positions.put("c", new float[] {2, 0, 0});
+        Map<String, List<String>> connections = new LinkedHashMap<>();
+        connections.put("a", Collections.singletonList("b"));
+        connections.put("b", Collections.singletonList("c"));
+        NavigationGraph graph = NavigationGraph.compile(positions, connections);
+        byte[] bytes = write(RouteTable.compute(graph, VERSION, Collections.singletonList("c")));
+
+        // Same nodes, one more edge: same version, other fingerprint
+        connections.put("a", Arrays.asList("b", "c"));
+        NavigationGraph changed = NavigationGraph.compile(positions, connections);
+        assertNull(RouteTable.read(new ByteArrayInputStream(bytes), changed, VERSION));
+        assertNotNull(RouteTable.read(new ByteArrayInputStream(bytes), graph, VERSION));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherInput() throws IOException {
+        NavigationGraph graph = TestGraphs.random(new Random(18), 10, 2, true);
+        RouteTable.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}), graph, VERSION);
+    }
+
+    private static List<String> destinations(Random random, int nodes, int count) {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) all.add(i);
+        Collections.shuffle(all, random);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) ids.add(TestGraphs.id(all.get(i)));
+        return ids;
+    }
+
+    /** Compares the routes to every destination from every {@code step}-th start. */
+    private static void assertSameRoutes(RouteTable expected, RouteTable actual, int step) {
+        assertNotNull(actual);
+        NavigationGraph graph = expected.graph();
+        assertEquals(expected.version(), actual.version());
+        assertEquals(expected.destinationCount(), actual.destinationCount());
+        int[] want = new int[graph.nodeCount()];
+        int[] got = new int[graph.nodeCount()];
+        for (int goal = 0; goal < graph.nodeCount(); goal++) {
+            assertEquals(expected.hasDestination(graph.idOf(goal)), actual.hasDestination(graph.idOf(goal)));
+            if (!expected.hasDestination(graph.idOf(goal))) continue;
+            for (int start = 0; start < graph.nodeCount(); start += step) {
+                int length = expected.findPath(start, goal, want);
+                assertEquals(length, actual.findPath(start, goal, got));
+                if (length > 0) {
+                    assertArrayEquals(Arrays.copyOf(want, length), Arrays.copyOf(got, length));
+                }
+            }
+        }
+    }
+
+    private static long headerBytes(int destinations) {
+        // magic, format, version, fingerprint, node count, destination count, destinations
+        return 4 + 4 + 8 + 8 + 4 + 4 + 4L * destinations;
+    }
+
+    private static byte[] write(RouteTable table) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table.write(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,111 @@
+package com.google.ar.core.examples.java.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Random graphs and a plain Dijkstra to check the pathfinders against. Graphs are built through
+ * {@link NavigationGraph#compile}, so edge weights are straight-line distances like in the app.
+ */
+final class TestGraphs {
+    // Float sums along different paths of equal length may differ in the last bits
+    static final double COST_TOLERANCE = 1e-3;
+
+    private TestGraphs() {}
+
+    /**
+     * {@code nodes} anchors scattered in a 3D box, each with up to {@code degree} random
+     * neighbours. Symmetric graphs add every edge in both directions. A few nodes are left
+     * without edges, so some pairs are unreachable.
+     */
+    static NavigationGraph random(Random random, int nodes, int degree, boolean symmetric) {
+        Map<String, float[]> positions = new LinkedHashMap<>();
+        Map<String, List<String>> connections = new LinkedHashMap<>();
+        for (int i = 0; i < nodes; i++) {
+            positions.put(id(i), new float[] {
+                    random.nextFloat() * 50, random.nextFloat() * 6, random.nextFloat() * 50});
+            connections.put(id(i), new ArrayList<>());
+        }
+        for (int i = 0; i < nodes; i++) {
+            if (random.nextInt(10) == 0) continue;
+            int edges = 1 + random.nextInt(degree);
+            for (int k = 0; k < edges; k++) {
+                int j = random.nextInt(nodes);
+                if (j == i) continue;
+                connections.get(id(i)).add(id(j));
+                if (symmetric) connections.get(id(j)).add(id(i));
+            }
+        }
+        return NavigationGraph.compile(positions, connections);
+    }
+
+    static String id(int i) {
+        return "anchor_" + i;
+    }
+
+    /** Shortest distance from {@code source} to every node; infinity where there is no path. */
+    static double[] dijkstra(NavigationGraph graph, int source) {
+        double[] dist = new double[graph.nodeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[] {0, source});
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int node = (int) top[1];
+            if (top[0] > dist[node]) continue;
+            for (int e = graph.firstEdge(node); e < graph.lastEdge(node); e++) {
+                int target = graph.edgeTarget(e);
+                double candidate = dist[node] + graph.edgeWeight(e);
+                if (candidate < dist[target]) {
+                    dist[target] = candidate;
+                    queue.add(new double[] {candidate, target});
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Fails unless {@code path[0, length)} is a path of {@code graph} from {@code start} to
+     * {@code goal} whose cost is {@code expectedCost}, or {@code length} is -1 and
+     * {@code expectedCost} infinite.
+     */
+    static void assertShortestPath(NavigationGraph graph, int start, int goal, double expectedCost,
+                                   int[] path, int length) {
+        String pair = start + " -> " + goal;
+        if (Double.isInfinite(expectedCost)) {
+            assertEquals("unreachable " + pair, -1, length);
+            return;
+        }
+        assertTrue("no path found for reachable " + pair, length > 0);
+        assertEquals(pair, start, path[0]);
+        assertEquals(pair, goal, path[length - 1]);
+        assertEquals(pair, expectedCost, pathCost(graph, path, length), COST_TOLERANCE);
+    }
+
+    /** Cost of a node sequence, taking the cheapest edge between consecutive nodes. */
+    static double pathCost(NavigationGraph graph, int[] path, int length) {
+        double cost = 0;
+        for (int i = 0; i + 1 < length; i++) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = graph.firstEdge(path[i]); e < graph.lastEdge(path[i]); e++) {
+                if (graph.edgeTarget(e) == path[i + 1]) best = Math.min(best, graph.edgeWeight(e));
+            }
+            if (Double.isInfinite(best)) {
+                fail("no edge " + path[i] + " -> " + path[i + 1]);
+            }
+            cost += best;
+        }
+        return cost;
+    }
+}